@@ -0,0 +1,85 @@
+package snake;
+
+/**
+ *
+ * A closed path through every cell inside the walls of a board. Following it,
+ * a snake of any length moves forever without hitting a wall or itself.
+ *
+ * The path goes right along the first row, then zigzags down the board on
+ * every column but the first one, and comes back up the first column. This
+ * only closes if there is an even number of rows inside the walls, so the
+ * board's height must be odd.
+ */
+public class BoardCycle
+{
+	/*
+	 * Number of columns of the board, walls included.
+	 */
+	private final int columns;
+
+	/*
+	 * The direction to take on each cell inside the walls, indexed by
+	 * y * columns + x.
+	 */
+	private final Direction[] directions;
+
+	/**
+	 * Instantiates a new BoardCycle object.
+	 *
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom
+	 * wall. Must be odd.
+	 */
+	public BoardCycle(int width, int height)
+	{
+		if(height % 2 == 0)
+			throw new IllegalArgumentException("The board's height must be odd");
+
+		if(width < 4)
+			throw new IllegalArgumentException("The board is too narrow");
+
+		columns    = width + 1;
+		directions = new Direction[columns * (height + 1)];
+
+		int last_x = width  - 1;
+		int last_y = height - 1;
+
+		for(int y = 1; y <= last_y; y++)
+		{
+			for(int x = 1; x <= last_x; x++)
+			{
+				directions[y * columns + x] = direction(x, y, last_x, last_y);
+			}
+		}
+	}
+
+	/**
+	 * @param head the snake's head, which must be inside the walls.
+	 * @return the direction to take from the given position.
+	 */
+	public Direction next(Position head)
+	{
+		return directions[head.getY() * columns + head.getX()];
+	}
+
+	/**
+	 * @return the direction to take from (x, y), where last_x and last_y are
+	 * the coordinates of the last cell inside the walls.
+	 */
+	private static Direction direction(int x, int y, int last_x, int last_y)
+	{
+		// The way back up, along the first column.
+		if(x == 1)
+			return (y == 1) ? Direction.RIGHT : Direction.UP;
+
+		// Odd rows go right, even rows go left, and each row ends by going
+		// down to the next one. The last row ends on the first column.
+		if(y % 2 == 1)
+			return (x < last_x) ? Direction.RIGHT : Direction.DOWN;
+
+		if(x > 2 || y == last_y)
+			return Direction.LEFT;
+
+		return Direction.DOWN;
+	}
+}
@@ -0,0 +1,104 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures how the game state's per-tick operations scale with the board's
+ * size and the number of fruits and dynamites on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark
+{
+	/*
+	 * The game play width. The height is the next odd number, so that the
+	 * snake can follow a BoardCycle.
+	 */
+	@Param({"80", "500"})
+	public int board_size;
+
+	/*
+	 * The number of fruits and dynamites on the board, half of each.
+	 */
+	@Param({"10", "1000", "5000"})
+	public int item_count;
+
+	private GameState state;
+	private BoardCycle cycle;
+
+	@Setup
+	public void setUp()
+	{
+		int height = board_size | 1;
+
+		state = new GameState(board_size, height);
+		cycle = new BoardCycle(board_size, height);
+
+		for(int i = 0; i < item_count; i++)
+		{
+			Position p = state.generateRandomObject();
+
+			if(i % 2 == 0)
+				state.addFruit(p);
+			else
+				state.addDynamite(p);
+		}
+	}
+
+	/**
+	 * One move of the snake, which also keeps the free cells up to date.
+	 */
+	@Benchmark
+	public Position moveSnake()
+	{
+		state.setDirection(cycle.next(state.getSnakeHead()));
+		state.moveSnake();
+
+		return state.getSnakeHead();
+	}
+
+	/**
+	 * The check for a fruit under the snake's head, done on every tick. The
+	 * head is never over one here, so the snake does not grow.
+	 */
+	@Benchmark
+	public boolean snakeAteFruit()
+	{
+		return state.snakeAteFruit();
+	}
+
+	/**
+	 * The check for a dynamite under the snake's head, done on every tick.
+	 */
+	@Benchmark
+	public boolean snakeSteppedDynamite()
+	{
+		return state.snakeSteppedDynamite();
+	}
+
+	/**
+	 * Picking a free position for a new object.
+	 */
+	@Benchmark
+	public Position generateRandomObject()
+	{
+		return state.generateRandomObject();
+	}
+}
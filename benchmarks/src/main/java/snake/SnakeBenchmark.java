@@ -0,0 +1,105 @@
+package snake;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Measures how moving the snake and checking its body scale with the snake's
+ * length and the board's size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnakeBenchmark
+{
+	/*
+	 * The game play width. The height is the next odd number, so that the
+	 * snake can follow a BoardCycle.
+	 */
+	@Param({"80", "500"})
+	public int board_size;
+
+	/*
+	 * The number of segments of the snake.
+	 */
+	@Param({"4", "256", "4096"})
+	public int snake_length;
+
+	private Snake snake;
+	private BoardCycle cycle;
+
+	/*
+	 * A position in the middle of the snake's body.
+	 */
+	private Position probe;
+
+	@Setup
+	public void setUp()
+	{
+		int height = board_size | 1;
+
+		Position.preallocate(board_size + 1, height + 1);
+
+		snake = new Snake(Direction.RIGHT, board_size, height);
+		cycle = new BoardCycle(board_size, height);
+
+		for(int i = snake.getSize(); i < snake_length; i++)
+			snake.increaseSize();
+
+		// Unroll the new segments, which all start on the tail.
+		for(int i = 0; i < snake_length; i++)
+			followCycle();
+
+		probe = snake.getBody().get(snake_length / 2);
+	}
+
+	/**
+	 * One move of the snake, as done on every tick.
+	 */
+	@Benchmark
+	public Position move()
+	{
+		followCycle();
+
+		return snake.getHead();
+	}
+
+	/**
+	 * The self collision check done after every move.
+	 */
+	@Benchmark
+	public boolean selfCollision()
+	{
+		return snake.hasBittenItself();
+	}
+
+	/**
+	 * The body lookup used to find empty cells.
+	 */
+	@Benchmark
+	public boolean isBody()
+	{
+		return snake.isBody(probe);
+	}
+
+	private void followCycle()
+	{
+		snake.setDirection(cycle.next(snake.getHead()));
+		snake.move();
+	}
+}
@@ -0,0 +1,653 @@
+package snake;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * A game of several snakes sharing one board, each one driven by a human or
+ * by a bot.
+ *
+ * Every cell covered by a snake holds the index of its owner in a shared
+ * occupancy grid, so a head is checked against every other snake with a single
+ * lookup, and a move costs the same whatever the number of segments.
+ *
+ * All the snakes move at once. Tails leave their cells first, so a head may
+ * follow another snake's tail. Then a head dies if it hits a wall, its own
+ * body or another snake's body, and heads that meet on the same cell all die,
+ * whatever the order of the snakes. Dead snakes are taken off the board.
+ */
+public class Arena
+{
+	/*
+	 * The largest number of snakes, as owners are stored in bytes.
+	 */
+	public final static int MAX_SNAKES = Byte.MAX_VALUE;
+
+	/*
+	 * The kind of object lying on each cell of the board.
+	 */
+	public final static byte EMPTY    = 0;
+	public final static byte FRUIT    = 1;
+	public final static byte DYNAMITE = 2;
+
+	/*
+	 * The number of random cells tried for a new object, before looking for
+	 * a free cell one by one.
+	 */
+	private final static int MAX_SAMPLING_ATTEMPTS = 64;
+
+	/*
+	 * The game play dimensions, and the number of columns and rows of the
+	 * board, walls included.
+	 */
+	private final int width;
+	private final int height;
+	private final int columns;
+	private final int rows;
+
+	/*
+	 * The snakes, and the score of each one.
+	 */
+	private final Snake[] snakes;
+	private final int[] scores;
+
+	/*
+	 * The owner of each cell, as the index of the snake covering it plus one,
+	 * or 0 if no snake covers it.
+	 */
+	private final SparseGrid owners;
+
+	/*
+	 * The fruits to catch and the obstacles to avoid, indexed by cell, and
+	 * their positions.
+	 */
+	private final SparseGrid objects;
+	private final Set<Position> fruits;
+	private final Set<Position> dynamites;
+
+	/*
+	 * Read-only views of the above, made once.
+	 */
+	private final Set<Position> fruits_view;
+	private final Set<Position> dynamites_view;
+
+	/*
+	 * The cells of the fruits, so that bots can walk them without allocating.
+	 */
+	private final CellList fruit_cells;
+
+	/*
+	 * The number of times an object was placed or taken.
+	 */
+	private int object_changes;
+
+	/*
+	 * The value used to decrement a score when a snake steps over an
+	 * obstacle.
+	 */
+	private final int score_penalty;
+
+	/*
+	 * Whether each snake has crashed during the move being resolved.
+	 */
+	private final boolean[] crashed;
+
+	/*
+	 * What happened since the start of the last move, reused on every move.
+	 */
+	private final ArenaEvents events;
+
+	/*
+	 * A Random number generator, owned by this arena alone.
+	 */
+	private final GameRandom rand;
+
+	/**
+	 * Instantiate a new arena, with the rules of GameConfig.DEFAULT. The
+	 * snakes start on rows spread evenly over the board, the even ones on the
+	 * left facing RIGHT and the odd ones on the right facing LEFT.
+	 *
+	 * @param width The game play width, i.e. the X coordinate of the right wall.
+	 * @param height The game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param snake_count The number of snakes.
+	 * @param seed The seed of this arena's random number generator.
+	 * @throws IllegalArgumentException if the snakes don't fit on the board.
+	 */
+	public Arena(int width, int height, int snake_count, long seed)
+	{
+		this(GameConfig.DEFAULT.withBoardSize(width, height), snake_count, seed);
+	}
+
+	/**
+	 * Instantiate a new arena on the board and with the rules of the given
+	 * configuration: the snakes' initial length and the points a dynamite
+	 * costs.
+	 *
+	 * @param config The board's dimensions and the rules of the game.
+	 * @param snake_count The number of snakes.
+	 * @param seed The seed of this arena's random number generator.
+	 * @throws IllegalArgumentException if the snakes don't fit on the board.
+	 */
+	public Arena(GameConfig config, int snake_count, long seed)
+	{
+		int width        = config.getWidth();
+		int height       = config.getHeight();
+		int initial_size = config.getInitialSize();
+
+		if(snake_count < 1 || snake_count > MAX_SNAKES)
+			throw new IllegalArgumentException("No such number of snakes: " + snake_count);
+
+		if(snake_count >= height || width <= initial_size + 1)
+			throw new IllegalArgumentException("The board is too small for " + snake_count + " snakes");
+
+		Position.preallocate(width + 1, height + 1);
+
+		this.width         = width;
+		this.height        = height;
+		this.score_penalty = config.getScorePenalty();
+
+		columns = width  + 1;
+		rows    = height + 1;
+
+		owners    = new SparseGrid(columns, rows);
+		objects   = new SparseGrid(columns, rows);
+		fruits    = new LinkedHashSet<Position>();
+		dynamites = new LinkedHashSet<Position>();
+
+		fruits_view    = Collections.unmodifiableSet(fruits);
+		dynamites_view = Collections.unmodifiableSet(dynamites);
+		fruit_cells    = new CellList();
+
+		snakes  = new Snake[snake_count];
+		scores  = new int[snake_count];
+		crashed = new boolean[snake_count];
+		events  = new ArenaEvents(snake_count);
+
+		rand = new GameRandom(seed);
+
+		for(int i = 0; i < snake_count; i++)
+		{
+			int y = (i + 1) * height / (snake_count + 1);
+
+			if(i % 2 == 0)
+			{
+				snakes[i] = new Snake(Direction.RIGHT, width, height,
+				                      Position.of(initial_size, y), initial_size, BoardStorage.HEAP);
+			}
+			else
+			{
+				snakes[i] = new Snake(Direction.LEFT, width, height,
+				                      Position.of(width - initial_size, y), initial_size, BoardStorage.HEAP);
+			}
+
+			for(Position p : snakes[i].getBody())
+				owners.set(toCell(p), (byte) (i + 1));
+		}
+	}
+
+	/**
+	 * @return The game play width.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return The game play height.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return The number of snakes, dead or alive.
+	 */
+	public int getSnakeCount()
+	{
+		return snakes.length;
+	}
+
+	/**
+	 * @return The number of snakes still alive.
+	 */
+	public int getAliveCount()
+	{
+		int alive = 0;
+
+		for(Snake snake : snakes)
+		{
+			if(snake.isAlive())
+				alive++;
+		}
+
+		return alive;
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return True if the snake is alive.
+	 */
+	public boolean isSnakeAlive(int snake)
+	{
+		return snakes[snake].isAlive();
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return The snake's score.
+	 */
+	public int getScore(int snake)
+	{
+		return scores[snake];
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return The snake's head.
+	 */
+	public Position getSnakeHead(int snake)
+	{
+		return snakes[snake].getHead();
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return The direction in which the snake is moving.
+	 */
+	public Direction getSnakeDirection(int snake)
+	{
+		return snakes[snake].getDirection();
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return The number of segments of the snake.
+	 */
+	public int getSnakeLength(int snake)
+	{
+		return snakes[snake].getSize();
+	}
+
+	/**
+	 * @param snake The index of a snake.
+	 * @return A read-only view of the snake's body, from tail to head.
+	 */
+	public List<Position> getSnakeBody(int snake)
+	{
+		return snakes[snake].getBody();
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return The index of the living snake covering the given position, or
+	 * -1 if there is none.
+	 */
+	public int getOwner(Position p)
+	{
+		if(isOutside(p))
+			return -1;
+
+		return owners.get(toCell(p)) - 1;
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if a living snake covers the given position.
+	 */
+	public boolean isSnakeBody(Position p)
+	{
+		return getOwner(p) >= 0;
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if there is a fruit at the given position.
+	 */
+	public boolean isFruit(Position p)
+	{
+		return !isOutside(p) && objects.get(toCell(p)) == FRUIT;
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if there is a dynamite at the given position.
+	 */
+	public boolean isDynamite(Position p)
+	{
+		return !isOutside(p) && objects.get(toCell(p)) == DYNAMITE;
+	}
+
+	/**
+	 * @return A read-only view of the fruits' positions.
+	 */
+	public Set<Position> getFruits()
+	{
+		return fruits_view;
+	}
+
+	/**
+	 * @return A read-only view of the dynamites' positions.
+	 */
+	public Set<Position> getDynamites()
+	{
+		return dynamites_view;
+	}
+
+	/**
+	 * @return The number of fruits.
+	 */
+	public int getFruitCount()
+	{
+		return fruit_cells.size();
+	}
+
+	/**
+	 * Gives the fruits by index, in no particular order, so that they can be
+	 * walked without allocating.
+	 *
+	 * @param i The index of a fruit, from 0 to getFruitCount() - 1.
+	 * @return The fruit's cell, as given by toCell().
+	 */
+	public int getFruitCell(int i)
+	{
+		return fruit_cells.get(i);
+	}
+
+	/**
+	 * @return A counter that changes whenever a fruit or a dynamite is placed
+	 * or taken.
+	 */
+	public int getObjectChanges()
+	{
+		return object_changes;
+	}
+
+	/**
+	 * @param p A position on the board.
+	 * @return The cell index of the given position, as used by ArenaEvents.
+	 */
+	public int toCell(Position p)
+	{
+		return p.getY() * columns + p.getX();
+	}
+
+	/**
+	 * Places a fruit on a random free cell.
+	 *
+	 * @return The position of the fruit, or null if the board is full.
+	 */
+	public Position spawnFruit()
+	{
+		return spawn(FRUIT, fruits);
+	}
+
+	/**
+	 * Places a dynamite on a random free cell.
+	 *
+	 * @return The position of the dynamite, or null if the board is full.
+	 */
+	public Position spawnDynamite()
+	{
+		return spawn(DYNAMITE, dynamites);
+	}
+
+	/**
+	 * Moves every living snake once.
+	 *
+	 * @param directions The direction each snake turns to, indexed like the
+	 * snakes, where null keeps it going. The array itself may be null.
+	 * @return What happened during the move. The same object is returned on
+	 * every move, and objects placed after the move are added to it.
+	 */
+	public ArenaEvents step(Direction[] directions)
+	{
+		events.reset();
+
+		// Move every snake, freeing the cells their tails leave behind.
+		for(int i = 0; i < snakes.length; i++)
+		{
+			Snake snake = snakes[i];
+
+			crashed[i] = false;
+
+			if(!snake.isAlive())
+				continue;
+
+			if(directions != null && directions[i] != null)
+				turn(snake, directions[i]);
+
+			// A snake that has just grown has two segments on its tail's
+			// cell, and keeps it.
+			List<Position> body = snake.getBody();
+			Position tail       = body.get(0);
+			boolean grown       = body.size() > 1 && tail.equals(body.get(1));
+
+			snake.move();
+
+			int freed = ArenaEvents.NO_CELL;
+
+			if(!grown)
+			{
+				freed = toCell(tail);
+				owners.set(freed, (byte) 0);
+			}
+
+			events.moved(i, toCell(snake.getHead()), freed);
+		}
+
+		// A head on a wall, on its own body or on another snake's body crashes.
+		for(int i = 0; i < snakes.length; i++)
+		{
+			Snake snake = snakes[i];
+
+			if(!snake.isAlive())
+				continue;
+
+			Position head = snake.getHead();
+
+			crashed[i] = isWall(head) || snake.hasBittenItself()
+			          || owners.get(toCell(head)) != 0;
+		}
+
+		// Heads claim their cells in turn. A cell already claimed during this
+		// move holds another head, and both crash.
+		for(int i = 0; i < snakes.length; i++)
+		{
+			if(!snakes[i].isAlive() || crashed[i])
+				continue;
+
+			int head  = toCell(snakes[i].getHead());
+			int owner = owners.get(head);
+
+			if(owner == 0)
+			{
+				owners.set(head, (byte) (i + 1));
+			}
+			else
+			{
+				crashed[i]         = true;
+				crashed[owner - 1] = true;
+			}
+		}
+
+		for(int i = 0; i < snakes.length; i++)
+		{
+			if(crashed[i])
+				removeSnake(i);
+		}
+
+		for(int i = 0; i < snakes.length; i++)
+		{
+			if(snakes[i].isAlive())
+				takeObjects(i);
+		}
+
+		return events;
+	}
+
+	/**
+	 * Turns a snake, unless the new direction is opposite to the current one.
+	 */
+	private void turn(Snake snake, Direction dir)
+	{
+		Direction current = snake.getDirection();
+
+		switch(dir)
+		{
+			case UP:
+
+				if(current != Direction.DOWN)
+					snake.setDirection(dir);
+
+				break;
+
+			case DOWN:
+
+				if(current != Direction.UP)
+					snake.setDirection(dir);
+
+				break;
+
+			case LEFT:
+
+				if(current != Direction.RIGHT)
+					snake.setDirection(dir);
+
+				break;
+
+			case RIGHT:
+
+				if(current != Direction.LEFT)
+					snake.setDirection(dir);
+
+				break;
+
+			default:
+				throw new IllegalArgumentException("No such direction");
+		}
+	}
+
+	/**
+	 * Kills a snake and frees the cells it owns.
+	 */
+	private void removeSnake(int snake)
+	{
+		snakes[snake].kill();
+		events.died(snake);
+
+		byte owner = (byte) (snake + 1);
+
+		for(Position p : snakes[snake].getBody())
+		{
+			if(isOutside(p))
+				continue;
+
+			int cell = toCell(p);
+
+			if(owners.get(cell) == owner)
+				owners.set(cell, (byte) 0);
+		}
+	}
+
+	/**
+	 * Lets a snake eat the fruit or step on the dynamite under its head. An
+	 * eaten fruit is replaced by a new one.
+	 */
+	private void takeObjects(int snake)
+	{
+		Position head = snakes[snake].getHead();
+		int cell      = toCell(head);
+		byte object   = objects.get(cell);
+
+		if(object == EMPTY)
+			return;
+
+		objects.set(cell, EMPTY);
+		object_changes++;
+
+		events.taken(cell);
+
+		if(object == FRUIT)
+		{
+			fruits.remove(head);
+			fruit_cells.remove(cell);
+
+			scores[snake] += snakes[snake].getSize() * 2 + dynamites.size();
+			snakes[snake].increaseSize();
+
+			spawnFruit();
+		}
+		else
+		{
+			dynamites.remove(head);
+
+			scores[snake] -= score_penalty;
+		}
+
+		events.scored(snake, scores[snake]);
+	}
+
+	/**
+	 * Places an object on a random cell inside the walls that holds neither
+	 * a snake nor another object. Random cells are tried first, and failing
+	 * that, the cells that follow the last one tried are searched in order.
+	 *
+	 * @return The position of the object, or null if the board is full.
+	 */
+	private Position spawn(byte object, Set<Position> positions)
+	{
+		int inner_columns = columns - 2;
+		int inner_cells   = inner_columns * (rows - 2);
+
+		int k = 0;
+
+		for(int i = 0; i < inner_cells + MAX_SAMPLING_ATTEMPTS; i++)
+		{
+			if(i < MAX_SAMPLING_ATTEMPTS)
+				k = rand.nextInt(inner_cells);
+			else
+				k = (k + 1) % inner_cells;
+
+			int cell = (1 + k / inner_columns) * columns + 1 + k % inner_columns;
+
+			if(owners.get(cell) == 0 && objects.get(cell) == EMPTY)
+			{
+				Position p = Position.of(cell % columns, cell / columns);
+
+				objects.set(cell, object);
+				positions.add(p);
+				object_changes++;
+
+				if(object == FRUIT)
+					fruit_cells.add(cell);
+
+				events.spawned(object, cell);
+
+				return p;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return True if the given position is part of the walls.
+	 */
+	private boolean isWall(Position p)
+	{
+		return p.getX() <= 0 || p.getX() >= width || p.getY() <= 0 || p.getY() >= height;
+	}
+
+	/**
+	 * @return True if the given position is off the board.
+	 */
+	private boolean isOutside(Position p)
+	{
+		return p.getX() < 0 || p.getX() >= columns || p.getY() < 0 || p.getY() >= rows;
+	}
+}
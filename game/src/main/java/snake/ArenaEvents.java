@@ -0,0 +1,241 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ *
+ * What happened on an arena since the start of its last move: the snakes that
+ * moved or died, the objects placed or taken, and the scores that changed.
+ * The arena reuses the same object on every move, so its contents are only
+ * valid until the next one.
+ *
+ * Cells are packed as y * (width + 1) + x.
+ */
+public class ArenaEvents
+{
+	/*
+	 * Value of a cell that is not there.
+	 */
+	public final static int NO_CELL = -1;
+
+	/*
+	 * The head of each snake after the move, or NO_CELL if it did not move.
+	 */
+	private final int[] heads;
+
+	/*
+	 * The cell each snake's tail left, or NO_CELL if it did not leave one.
+	 */
+	private final int[] tails;
+
+	/*
+	 * Whether each snake died, whether its score changed, and its new score.
+	 */
+	private final boolean[] died;
+	private final boolean[] scored;
+	private final int[] scores;
+
+	/*
+	 * The objects placed, as pairs of kind and cell, and the cells of the
+	 * objects taken.
+	 */
+	private int[] spawns;
+	private int spawn_count;
+	private int[] takes;
+	private int take_count;
+
+	/**
+	 * Instantiate a new, empty set of events.
+	 *
+	 * @param snake_count the number of snakes of the arena.
+	 */
+	ArenaEvents(int snake_count)
+	{
+		heads  = new int[snake_count];
+		tails  = new int[snake_count];
+		died   = new boolean[snake_count];
+		scored = new boolean[snake_count];
+		scores = new int[snake_count];
+
+		spawns = new int[16];
+		takes  = new int[8];
+
+		reset();
+	}
+
+	/**
+	 * Clears every event, ready for a new move.
+	 */
+	void reset()
+	{
+		Arrays.fill(heads, NO_CELL);
+		Arrays.fill(tails, NO_CELL);
+		Arrays.fill(died, false);
+		Arrays.fill(scored, false);
+
+		spawn_count = 0;
+		take_count  = 0;
+	}
+
+	/**
+	 * Records a snake's movement.
+	 *
+	 * @param snake the index of the snake.
+	 * @param head the cell of its new head.
+	 * @param tail the cell its tail left, or NO_CELL.
+	 */
+	void moved(int snake, int head, int tail)
+	{
+		heads[snake] = head;
+		tails[snake] = tail;
+	}
+
+	/**
+	 * Records that a snake died. Its movement is forgotten, as the whole
+	 * snake is taken off the board.
+	 *
+	 * @param snake the index of the snake.
+	 */
+	void died(int snake)
+	{
+		heads[snake] = NO_CELL;
+		tails[snake] = NO_CELL;
+		died[snake]  = true;
+	}
+
+	/**
+	 * Records that a snake's score changed.
+	 *
+	 * @param snake the index of the snake.
+	 * @param score its new score.
+	 */
+	void scored(int snake, int score)
+	{
+		scored[snake] = true;
+		scores[snake] = score;
+	}
+
+	/**
+	 * Records that an object was placed.
+	 *
+	 * @param object the kind of object.
+	 * @param cell its cell.
+	 */
+	void spawned(byte object, int cell)
+	{
+		if(spawn_count + 2 > spawns.length)
+			spawns = Arrays.copyOf(spawns, spawns.length * 2);
+
+		spawns[spawn_count++] = object;
+		spawns[spawn_count++] = cell;
+	}
+
+	/**
+	 * Records that an object was taken.
+	 *
+	 * @param cell its cell.
+	 */
+	void taken(int cell)
+	{
+		if(take_count == takes.length)
+			takes = Arrays.copyOf(takes, takes.length * 2);
+
+		takes[take_count++] = cell;
+	}
+
+	/**
+	 * @return the number of snakes of the arena.
+	 */
+	public int getSnakeCount()
+	{
+		return heads.length;
+	}
+
+	/**
+	 * @param snake the index of a snake.
+	 * @return the cell of its new head, or NO_CELL if it did not move.
+	 */
+	public int getHead(int snake)
+	{
+		return heads[snake];
+	}
+
+	/**
+	 * @param snake the index of a snake.
+	 * @return the cell its tail left, or NO_CELL if it did not leave one.
+	 */
+	public int getTail(int snake)
+	{
+		return tails[snake];
+	}
+
+	/**
+	 * @param snake the index of a snake.
+	 * @return true if the snake died.
+	 */
+	public boolean hasDied(int snake)
+	{
+		return died[snake];
+	}
+
+	/**
+	 * @param snake the index of a snake.
+	 * @return true if the snake's score changed.
+	 */
+	public boolean hasScoreChanged(int snake)
+	{
+		return scored[snake];
+	}
+
+	/**
+	 * @param snake the index of a snake whose score changed.
+	 * @return its new score.
+	 */
+	public int getScore(int snake)
+	{
+		return scores[snake];
+	}
+
+	/**
+	 * @return the number of objects placed.
+	 */
+	public int getSpawnCount()
+	{
+		return spawn_count / 2;
+	}
+
+	/**
+	 * @param i the index of a placed object.
+	 * @return its kind: 1 for a fruit, 2 for a dynamite.
+	 */
+	public int getSpawnedObject(int i)
+	{
+		return spawns[2 * i];
+	}
+
+	/**
+	 * @param i the index of a placed object.
+	 * @return its cell.
+	 */
+	public int getSpawnedCell(int i)
+	{
+		return spawns[2 * i + 1];
+	}
+
+	/**
+	 * @return the number of objects taken.
+	 */
+	public int getTakeCount()
+	{
+		return take_count;
+	}
+
+	/**
+	 * @param i the index of a taken object.
+	 * @return its cell.
+	 */
+	public int getTakenCell(int i)
+	{
+		return takes[i];
+	}
+}
@@ -0,0 +1,16 @@
+package snake;
+
+/**
+ *
+ * A player that decides, before every move, where one of the snakes of an
+ * arena should go.
+ */
+public interface ArenaPolicy
+{
+	/**
+	 * @param arena the arena before the move.
+	 * @param snake the index of the snake to decide for.
+	 * @return the direction to turn to, or null to keep going.
+	 */
+	Direction decide(Arena arena, int snake);
+}
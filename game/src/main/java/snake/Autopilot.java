@@ -0,0 +1,434 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A bot that drives the snake along the shortest path to the nearest fruit,
+ * avoiding walls, its own body and dynamites.
+ *
+ * The path is found by a breadth first search, and then followed move by move.
+ * It is only searched again when an object is placed or taken, or when the
+ * snake is not where the path expected it to be. Cells on the path were free
+ * when it was found, and the body only ever leaves cells behind, so the path
+ * stays safe until then.
+ *
+ * In an arena, the other snakes move on every tick, so the path is searched
+ * again before every move.
+ *
+ * The search is bounded to a window of at most WINDOW_SIZE cells a side around
+ * the head, so that its memory doesn't grow with huge boards. When the nearest
+ * fruit lies outside the window, the path leads to the cell of the window
+ * closest to it instead, and the next search is centred on the new head.
+ *
+ * All the memory is allocated when the autopilot first sees a board of a given
+ * size, so deciding a move allocates nothing.
+ */
+public class Autopilot implements SnakePolicy, ArenaPolicy
+{
+	/*
+	 * Every direction, without the copy Direction.values() makes on each call.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	/*
+	 * The largest side of the window searched, in cells.
+	 */
+	private final static int WINDOW_SIZE = 255;
+
+	/*
+	 * The game play dimensions the buffers were allocated for, and the number
+	 * of columns walls included.
+	 */
+	private int width;
+	private int height;
+	private int columns;
+
+	/*
+	 * The size of the window searched, and the board coordinates of its top
+	 * left corner during the last search.
+	 */
+	private int window_width;
+	private int window_height;
+	private int window_x;
+	private int window_y;
+
+	/*
+	 * The search of each cell was last visited by, so that the grid never has
+	 * to be cleared between searches.
+	 */
+	private int[] visited;
+	private int search;
+
+	/*
+	 * The cell each visited cell was reached from. This and the above are
+	 * indexed by the cell's place in the window.
+	 */
+	private int[] parent;
+
+	/*
+	 * The cells waiting to be expanded by the search.
+	 */
+	private int[] queue;
+
+	/*
+	 * The cells to move to, in order, from path_start up to path_end.
+	 */
+	private int[] path;
+	private int path_start;
+	private int path_end;
+
+	/*
+	 * The game being decided for: either a single snake game or an arena.
+	 */
+	private GameState state;
+	private Arena arena;
+
+	/*
+	 * The game the path was found for, its object changes at that time, and
+	 * the cell the head should be on before the next move.
+	 */
+	private Object planned_state;
+	private int planned_changes;
+	private int expected_head;
+
+	/**
+	 * @param state the state of the game before the move.
+	 * @return the direction to the next cell of the path, or a direction that
+	 * keeps the snake alive for one more move if no fruit can be reached.
+	 */
+	@Override
+	public Direction decide(GameState state)
+	{
+		this.state = state;
+		this.arena = null;
+
+		allocate(state.getWidth(), state.getHeight());
+
+		return follow(state.getSnakeHead(), state.getSnakeDirection(), state,
+		              state.getObjectChanges());
+	}
+
+	/**
+	 * @param arena the arena before the move.
+	 * @param snake the index of the snake to decide for.
+	 * @return the direction to the next cell of the path, or a direction that
+	 * keeps the snake alive for one more move if no fruit can be reached.
+	 */
+	@Override
+	public Direction decide(Arena arena, int snake)
+	{
+		this.state = null;
+		this.arena = arena;
+
+		allocate(arena.getWidth(), arena.getHeight());
+
+		// The other snakes may have moved onto the path.
+		planned_state = null;
+
+		return follow(arena.getSnakeHead(snake), arena.getSnakeDirection(snake), arena,
+		              arena.getObjectChanges());
+	}
+
+	/**
+	 * Searches a path if the current one can't be followed anymore, and then
+	 * takes its next step.
+	 */
+	private Direction follow(Position p, Direction current, Object game, int changes)
+	{
+		int head = p.getY() * columns + p.getX();
+
+		if(game != planned_state || changes != planned_changes
+		   || head != expected_head || path_start == path_end)
+		{
+			plan(game, changes, head);
+		}
+
+		if(path_start == path_end)
+		{
+			expected_head = -1;
+
+			return escape(head, current);
+		}
+
+		expected_head = path[path_start++];
+
+		return directionTo(head, expected_head);
+	}
+
+	/**
+	 * Allocates the buffers for a board, unless they already fit it.
+	 */
+	private void allocate(int width, int height)
+	{
+		if(visited != null && this.width == width && this.height == height)
+			return;
+
+		this.width  = width;
+		this.height = height;
+		columns     = width + 1;
+
+		window_width  = Math.min(columns, WINDOW_SIZE);
+		window_height = Math.min(height + 1, WINDOW_SIZE);
+
+		int cells = window_width * window_height;
+
+		visited = new int[cells];
+		parent  = new int[cells];
+		queue   = new int[cells];
+		path    = new int[cells];
+		search  = 0;
+
+		planned_state = null;
+	}
+
+	/**
+	 * Searches the shortest path from the head to the nearest fruit inside the
+	 * window, and stores it. If the nearest fruit is outside the window, the
+	 * path leads to the reachable cell closest to it. Otherwise the path is
+	 * left empty if no fruit can be reached.
+	 */
+	private void plan(Object game, int changes, int head)
+	{
+		planned_state   = game;
+		planned_changes = changes;
+		path_start      = 0;
+		path_end        = 0;
+
+		if(++search == 0)
+		{
+			Arrays.fill(visited, 0);
+			search = 1;
+		}
+
+		int head_x = head % columns;
+		int head_y = head / columns;
+
+		window_x = Math.max(0, Math.min(head_x - window_width / 2, columns - window_width));
+		window_y = Math.max(0, Math.min(head_y - window_height / 2, height + 1 - window_height));
+
+		Position goal = nearestFruit(head_x, head_y);
+
+		if(goal != null && toWindow(goal.getY() * columns + goal.getX()) >= 0)
+			goal = null;
+
+		int closest          = head;
+		int closest_distance = (goal != null) ? distance(head, goal) : 0;
+
+		int read  = 0;
+		int write = 0;
+
+		visited[toWindow(head)] = search;
+		queue[write++]          = head;
+
+		while(read < write)
+		{
+			int cell = queue[read++];
+
+			if(goal != null && distance(cell, goal) < closest_distance)
+			{
+				closest          = cell;
+				closest_distance = distance(cell, goal);
+			}
+
+			for(int i = 0; i < 4; i++)
+			{
+				int next  = neighbour(cell, i);
+				int index = toWindow(next);
+
+				if(index < 0 || visited[index] == search || isWall(next))
+					continue;
+
+				visited[index] = search;
+				parent[index]  = cell;
+
+				Position p = Position.of(next % columns, next / columns);
+
+				if(isFruit(p))
+				{
+					storePath(head, next);
+					return;
+				}
+
+				if(!isBlocked(p))
+					queue[write++] = next;
+			}
+		}
+
+		if(closest != head)
+			storePath(head, closest);
+	}
+
+	/**
+	 * @return the fruit nearest to the given cell, or null if there is none
+	 * or if the window holds the whole board.
+	 */
+	private Position nearestFruit(int x, int y)
+	{
+		if(window_width == columns && window_height == height + 1)
+			return null;
+
+		int count            = (arena != null) ? arena.getFruitCount() : state.getFruitCount();
+		int nearest          = -1;
+		int nearest_distance = Integer.MAX_VALUE;
+
+		for(int i = 0; i < count; i++)
+		{
+			int cell     = (arena != null) ? arena.getFruitCell(i) : state.getFruitCell(i);
+			int distance = Math.abs(cell % columns - x) + Math.abs(cell / columns - y);
+
+			if(distance < nearest_distance)
+			{
+				nearest          = cell;
+				nearest_distance = distance;
+			}
+		}
+
+		return (nearest >= 0) ? Position.of(nearest % columns, nearest / columns) : null;
+	}
+
+	/**
+	 * @return the number of moves from a cell to a position, if nothing is in
+	 * the way.
+	 */
+	private int distance(int cell, Position p)
+	{
+		return Math.abs(cell % columns - p.getX()) + Math.abs(cell / columns - p.getY());
+	}
+
+	/**
+	 * @return the place of a cell in the window of the last search, or -1 if
+	 * it is outside.
+	 */
+	private int toWindow(int cell)
+	{
+		int x = cell % columns - window_x;
+		int y = cell / columns - window_y;
+
+		if(x < 0 || x >= window_width || y < 0 || y >= window_height)
+			return -1;
+
+		return y * window_width + x;
+	}
+
+	/**
+	 * Walks the parents back from the target to the head, and stores the
+	 * cells on the way in moving order.
+	 */
+	private void storePath(int head, int target)
+	{
+		int length = 0;
+
+		for(int cell = target; cell != head; cell = parent[toWindow(cell)])
+			length++;
+
+		path_end = length;
+
+		for(int cell = target; cell != head; cell = parent[toWindow(cell)])
+			path[--length] = cell;
+	}
+
+	/**
+	 * @return a direction to a cell holding no wall, body nor dynamite, going
+	 * straight if possible, or null if there is none.
+	 */
+	private Direction escape(int head, Direction current)
+	{
+		if(isSafe(head, current))
+			return current;
+
+		for(Direction dir : DIRECTIONS)
+		{
+			if(dir != current && isSafe(head, dir))
+				return dir;
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return true if the cell next to the head in the given direction holds
+	 * no wall, body nor dynamite.
+	 */
+	private boolean isSafe(int head, Direction dir)
+	{
+		int next = neighbour(head, dir.ordinal());
+
+		if(isWall(next))
+			return false;
+
+		return !isBlocked(Position.of(next % columns, next / columns));
+	}
+
+	/**
+	 * @return true if there is a fruit at the given position.
+	 */
+	private boolean isFruit(Position p)
+	{
+		if(arena != null)
+			return arena.isFruit(p);
+
+		return state.isFruit(p);
+	}
+
+	/**
+	 * @return true if a snake or a dynamite is at the given position.
+	 */
+	private boolean isBlocked(Position p)
+	{
+		if(arena != null)
+			return arena.isSnakeBody(p) || arena.isDynamite(p);
+
+		return state.isSnakeBody(p) || state.isDynamite(p);
+	}
+
+	/**
+	 * @return the cell next to the given one, in the direction whose ordinal
+	 * is given.
+	 */
+	private int neighbour(int cell, int direction)
+	{
+		switch(direction)
+		{
+			case 0:
+				return cell - columns;	// UP
+
+			case 1:
+				return cell + columns;	// DOWN
+
+			case 2:
+				return cell - 1;		// LEFT
+
+			default:
+				return cell + 1;		// RIGHT
+		}
+	}
+
+	/**
+	 * @return the direction from a cell to one of its neighbours.
+	 */
+	private Direction directionTo(int from, int to)
+	{
+		if(to == from - columns)
+			return Direction.UP;
+
+		if(to == from + columns)
+			return Direction.DOWN;
+
+		if(to == from - 1)
+			return Direction.LEFT;
+
+		return Direction.RIGHT;
+	}
+
+	/**
+	 * @return true if the cell is part of the walls.
+	 */
+	private boolean isWall(int cell)
+	{
+		int x = cell % columns;
+		int y = cell / columns;
+
+		return x <= 0 || x >= width || y <= 0 || y >= height;
+	}
+}
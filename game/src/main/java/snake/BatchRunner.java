@@ -0,0 +1,208 @@
+package snake;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ *
+ * Plays many independent headless games in parallel on a work-stealing pool,
+ * and aggregates their scores and lengths. Used to evaluate bots and AI
+ * players.
+ *
+ * Every game has its own engine and its own random number generator, split
+ * from a single seed. The splits follow the shape of the task tree rather
+ * than the order in which tasks run, so the same seed always plays the same
+ * games, whatever the number of threads.
+ */
+public class BatchRunner
+{
+	/*
+	 * Number of games a task plays itself rather than splitting further.
+	 */
+	private final static int GAMES_PER_TASK = 8;
+
+	/*
+	 * The board's dimensions and the rules of every game.
+	 */
+	private final GameConfig config;
+
+	/*
+	 * The maximum number of moves of a game, in case the snake never dies.
+	 */
+	private final int max_ticks;
+
+	/*
+	 * The number of moves between two new fruits and dynamites, which the
+	 * view generates on a timer instead.
+	 */
+	private final int spawn_interval;
+
+	/*
+	 * The pool running the games.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Instantiates a new BatchRunner object on the common pool.
+	 *
+	 * @param width the game play width.
+	 * @param height the game play height.
+	 * @param max_ticks the maximum number of moves of a game.
+	 * @param spawn_interval the number of moves between two new objects.
+	 */
+	public BatchRunner(int width, int height, int max_ticks, int spawn_interval)
+	{
+		this(width, height, max_ticks, spawn_interval, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new BatchRunner object.
+	 *
+	 * @param width the game play width.
+	 * @param height the game play height.
+	 * @param max_ticks the maximum number of moves of a game.
+	 * @param spawn_interval the number of moves between two new objects.
+	 * @param pool the pool to run the games on.
+	 */
+	public BatchRunner(int width, int height, int max_ticks, int spawn_interval, ForkJoinPool pool)
+	{
+		this(GameConfig.DEFAULT.withBoardSize(width, height), max_ticks, spawn_interval, pool);
+	}
+
+	/**
+	 * Instantiates a new BatchRunner object on the common pool, playing on the
+	 * board and with the rules of the given configuration.
+	 *
+	 * @param config the board's dimensions and the rules of every game.
+	 * @param max_ticks the maximum number of moves of a game.
+	 * @param spawn_interval the number of moves between two new objects.
+	 */
+	public BatchRunner(GameConfig config, int max_ticks, int spawn_interval)
+	{
+		this(config, max_ticks, spawn_interval, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new BatchRunner object, playing on the board and with the
+	 * rules of the given configuration.
+	 *
+	 * @param config the board's dimensions and the rules of every game.
+	 * @param max_ticks the maximum number of moves of a game.
+	 * @param spawn_interval the number of moves between two new objects.
+	 * @param pool the pool to run the games on.
+	 */
+	public BatchRunner(GameConfig config, int max_ticks, int spawn_interval, ForkJoinPool pool)
+	{
+		if(max_ticks <= 0 || spawn_interval <= 0)
+			throw new IllegalArgumentException("The number of moves must be positive");
+
+		this.config         = config;
+		this.max_ticks      = max_ticks;
+		this.spawn_interval = spawn_interval;
+		this.pool           = pool;
+	}
+
+	/**
+	 * Plays the given number of games and waits for all of them to end.
+	 *
+	 * @param games the number of games to play.
+	 * @param seed the seed all the games' generators are split from.
+	 * @param policies creates a new player for every game.
+	 * @return the aggregated statistics.
+	 */
+	public BatchStatistics run(int games, long seed, Supplier<? extends SnakePolicy> policies)
+	{
+		return pool.invoke(new GamesTask(games, new SplittableRandom(seed), policies));
+	}
+
+	/**
+	 * Plays one game until the snake dies or runs out of moves.
+	 *
+	 * @param engine the engine, holding a freshly started game.
+	 * @param policy the player.
+	 * @return the number of moves played.
+	 */
+	private int play(SnakeEngine engine, SnakePolicy policy)
+	{
+		GameState state = engine.getState();
+
+		int tick = 0;
+
+		while(state.isSnakeAlive() && tick < max_ticks)
+		{
+			if(tick % spawn_interval == 0)
+			{
+				engine.spawnFruit();
+				engine.spawnDynamite();
+			}
+
+			engine.step(policy.decide(state));
+			tick++;
+		}
+
+		return tick;
+	}
+
+	/**
+	 * Plays a range of games, splitting it in halves until it is small enough.
+	 */
+	private class GamesTask extends RecursiveTask<BatchStatistics>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int games;
+		private final SplittableRandom rand;
+		private final Supplier<? extends SnakePolicy> policies;
+
+		GamesTask(int games, SplittableRandom rand, Supplier<? extends SnakePolicy> policies)
+		{
+			this.games    = games;
+			this.rand     = rand;
+			this.policies = policies;
+		}
+
+		@Override protected BatchStatistics compute()
+		{
+			if(games <= GAMES_PER_TASK)
+				return playAll();
+
+			int half = games / 2;
+
+			GamesTask left  = new GamesTask(half, rand.split(), policies);
+			GamesTask right = new GamesTask(games - half, rand, policies);
+
+			left.fork();
+
+			BatchStatistics stats = right.compute();
+
+			return stats.merge(left.join());
+		}
+
+		/**
+		 * Plays every game of this task on a single engine.
+		 */
+		private BatchStatistics playAll()
+		{
+			BatchStatistics stats = new BatchStatistics();
+
+			if(games == 0)
+				return stats;
+
+			SnakeEngine engine = new SnakeEngine(config, rand, BoardStorage.HEAP);
+
+			for(int i = 0; i < games; i++)
+			{
+				if(i > 0)
+					engine.reset();
+
+				int ticks = play(engine, policies.get());
+
+				stats.add(engine.getState(), ticks);
+			}
+
+			return stats;
+		}
+	}
+}
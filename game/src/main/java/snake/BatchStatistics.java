@@ -0,0 +1,168 @@
+package snake;
+
+/**
+ *
+ * Scores and lengths aggregated over a batch of games. Each worker fills in
+ * its own instance, and the instances are merged at the end, so this class
+ * does not need to be thread-safe.
+ */
+public class BatchStatistics
+{
+	/*
+	 * Number of games played, and how many of them ended with the snake dead
+	 * rather than out of moves.
+	 */
+	private int games;
+	private int deaths;
+
+	/*
+	 * Total number of moves played across every game.
+	 */
+	private long ticks;
+
+	/*
+	 * Score totals and extremes.
+	 */
+	private long total_score;
+	private int min_score;
+	private int max_score;
+
+	/*
+	 * Snake length totals and extremes.
+	 */
+	private long total_length;
+	private int max_length;
+
+	/**
+	 * Instantiates a new, empty BatchStatistics object.
+	 */
+	public BatchStatistics()
+	{
+		games        = 0;
+		deaths       = 0;
+		ticks        = 0;
+		total_score  = 0;
+		min_score    = Integer.MAX_VALUE;
+		max_score    = Integer.MIN_VALUE;
+		total_length = 0;
+		max_length   = 0;
+	}
+
+	/**
+	 * Adds a finished game.
+	 *
+	 * @param state the state of the game when it ended.
+	 * @param game_ticks the number of moves played.
+	 */
+	public void add(GameState state, int game_ticks)
+	{
+		int score  = state.getScore();
+		int length = state.getSnakeLength();
+
+		games++;
+		ticks += game_ticks;
+
+		if(!state.isSnakeAlive())
+			deaths++;
+
+		total_score += score;
+		min_score    = Math.min(min_score, score);
+		max_score    = Math.max(max_score, score);
+
+		total_length += length;
+		max_length    = Math.max(max_length, length);
+	}
+
+	/**
+	 * Adds every game of another batch to this one.
+	 *
+	 * @param other the statistics to merge.
+	 * @return this object.
+	 */
+	public BatchStatistics merge(BatchStatistics other)
+	{
+		games  += other.games;
+		deaths += other.deaths;
+		ticks  += other.ticks;
+
+		total_score += other.total_score;
+		min_score    = Math.min(min_score, other.min_score);
+		max_score    = Math.max(max_score, other.max_score);
+
+		total_length += other.total_length;
+		max_length    = Math.max(max_length, other.max_length);
+
+		return this;
+	}
+
+	/**
+	 * @return the number of games played.
+	 */
+	public int getGames()
+	{
+		return games;
+	}
+
+	/**
+	 * @return the number of games that ended with the snake dead.
+	 */
+	public int getDeaths()
+	{
+		return deaths;
+	}
+
+	/**
+	 * @return the total number of moves played.
+	 */
+	public long getTicks()
+	{
+		return ticks;
+	}
+
+	/**
+	 * @return the average score, or 0 if no game was played.
+	 */
+	public double getAverageScore()
+	{
+		return (games == 0) ? 0 : (double) total_score / games;
+	}
+
+	/**
+	 * @return the lowest score, or 0 if no game was played.
+	 */
+	public int getMinScore()
+	{
+		return (games == 0) ? 0 : min_score;
+	}
+
+	/**
+	 * @return the highest score, or 0 if no game was played.
+	 */
+	public int getMaxScore()
+	{
+		return (games == 0) ? 0 : max_score;
+	}
+
+	/**
+	 * @return the average final length of the snake, or 0 if no game was played.
+	 */
+	public double getAverageLength()
+	{
+		return (games == 0) ? 0 : (double) total_length / games;
+	}
+
+	/**
+	 * @return the longest final length of the snake.
+	 */
+	public int getMaxLength()
+	{
+		return max_length;
+	}
+
+	@Override public String toString()
+	{
+		return String.format("%d games, %d deaths, %d moves, score avg %.1f [%d, %d], length avg %.1f max %d",
+			games, deaths, ticks, getAverageScore(), getMinScore(), getMaxScore(),
+			getAverageLength(), max_length);
+	}
+}
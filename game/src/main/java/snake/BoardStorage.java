@@ -0,0 +1,61 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ *
+ * Where a game keeps its board: what lies on each cell, the snake's body and
+ * the index of free cells.
+ */
+public enum BoardStorage
+{
+	/*
+	 * On the Java heap, in sparse grids and arrays: memory follows what is on
+	 * the board rather than its size. This is the default.
+	 */
+	HEAP
+	{
+		@Override Grid newGrid(int columns, int rows)
+		{
+			return new SparseGrid(columns, rows);
+		}
+
+		@Override IntBuffer newInts(int capacity)
+		{
+			return IntBuffer.allocate(capacity);
+		}
+	},
+
+	/*
+	 * Off the Java heap, in direct buffers: the heap only holds a few objects
+	 * per game, so neither its size nor the garbage collector's pauses grow
+	 * with the boards, at the cost of a byte per cell up front.
+	 */
+	DIRECT
+	{
+		@Override Grid newGrid(int columns, int rows)
+		{
+			return new DirectGrid(columns, rows);
+		}
+
+		@Override IntBuffer newInts(int capacity)
+		{
+			return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+	};
+
+	/**
+	 * @param columns the number of columns of the grid
+	 * @param rows the number of rows of the grid
+	 * @return a new grid of the given size, with every cell set to zero.
+	 */
+	abstract Grid newGrid(int columns, int rows);
+
+	/**
+	 * @param capacity the number of ints
+	 * @return a new buffer of the given number of ints, all set to zero.
+	 */
+	abstract IntBuffer newInts(int capacity);
+}
@@ -0,0 +1,337 @@
+package snake;
+
+/**
+ *
+ * An immutable game state for bots that look ahead, branching over possible
+ * moves. Forking a state is free, since states never change: moving returns a
+ * new state that shares almost everything with its parent.
+ *
+ * The snake's body is not stored as a list. Instead, every cell remembers the
+ * last tick at which the head entered it, and the body is made of the cells
+ * entered during the last 'length' ticks. Both that and the objects on the
+ * board are PersistentIntArrays, so a move copies a few small tree nodes
+ * rather than the whole board.
+ *
+ * Branches don't generate new objects, as those depend on the future.
+ */
+public final class BranchState
+{
+	/*
+	 * The kind of object lying on each cell of the board.
+	 */
+	private final static int EMPTY    = 0;
+	private final static int FRUIT    = 1;
+	private final static int DYNAMITE = 2;
+
+	/*
+	 * The game play dimensions, and the number of columns walls included.
+	 */
+	private final int width;
+	private final int height;
+	private final int columns;
+
+	/*
+	 * The points a dynamite costs, as in the game the branch was taken from.
+	 */
+	private final int score_penalty;
+
+	/*
+	 * The tick at which the head last entered each cell, or 0 if never.
+	 */
+	private final PersistentIntArray visits;
+
+	/*
+	 * The object lying on each cell.
+	 */
+	private final PersistentIntArray objects;
+
+	/*
+	 * The number of moves since the start of the branch, offset so that the
+	 * initial body has positive ticks.
+	 */
+	private final int tick;
+
+	/*
+	 * The number of segments of the snake, and whether the last one was added
+	 * by the last move. A new segment starts on the tail's cell and only
+	 * extends the body on the next move.
+	 */
+	private final int length;
+	private final boolean grown;
+
+	/*
+	 * The cell of the snake's head, and the direction it is moving in.
+	 */
+	private final int head;
+	private final Direction direction;
+
+	/*
+	 * Whether or not the snake is alive.
+	 */
+	private final boolean alive;
+
+	/*
+	 * The score, and the number of dynamites used to compute it.
+	 */
+	private final int score;
+	private final int dynamite_count;
+
+	private BranchState(int width, int height, int score_penalty, PersistentIntArray visits,
+	                    PersistentIntArray objects, int tick, int length, boolean grown,
+	                    int head, Direction direction, boolean alive, int score,
+	                    int dynamite_count)
+	{
+		this.width          = width;
+		this.height         = height;
+		this.columns        = width + 1;
+		this.score_penalty  = score_penalty;
+		this.visits         = visits;
+		this.objects        = objects;
+		this.tick           = tick;
+		this.length         = length;
+		this.grown          = grown;
+		this.head           = head;
+		this.direction      = direction;
+		this.alive          = alive;
+		this.score          = score;
+		this.dynamite_count = dynamite_count;
+	}
+
+	/**
+	 * Takes a copy of a game, as the root of a search. This costs time
+	 * proportional to the snake's length and the number of objects, once.
+	 * Dynamites cost the points of the game's configuration.
+	 *
+	 * @param state the game to copy.
+	 * @return the root state.
+	 */
+	public static BranchState of(GameState state)
+	{
+		int width   = state.getWidth();
+		int height  = state.getHeight();
+		int columns = width + 1;
+		int cells   = columns * (height + 1);
+
+		// The body's segments are entered at ticks 1 to length, from tail to
+		// head, so they are all inside the window of the last 'length' ticks.
+		PersistentIntArray visits = new PersistentIntArray(cells);
+		int tick                  = 0;
+
+		for(Position p : state.getSnakeBody())
+			visits = visits.set(p.getY() * columns + p.getX(), ++tick);
+
+		PersistentIntArray objects = new PersistentIntArray(cells);
+
+		for(Position p : state.getFruits())
+			objects = objects.set(p.getY() * columns + p.getX(), FRUIT);
+
+		for(Position p : state.getDynamites())
+			objects = objects.set(p.getY() * columns + p.getX(), DYNAMITE);
+
+		Position head     = state.getSnakeHead();
+		int score_penalty = state.getConfig().getScorePenalty();
+
+		return new BranchState(width, height, score_penalty, visits, objects, tick,
+		                       state.getSnakeLength(), false,
+		                       head.getY() * columns + head.getX(),
+		                       state.getSnakeDirection(), state.isSnakeAlive(),
+		                       state.getScore(), state.getDynamites().size());
+	}
+
+	/**
+	 * Moves the snake once, following the same rules as the game: turning to
+	 * the opposite direction is ignored, walls and the snake's own body kill
+	 * it, fruits make it grow and dynamites cost points.
+	 *
+	 * @param dir the direction to turn to, or null to keep going.
+	 * @return the state after the move. This state is left unchanged.
+	 */
+	public BranchState move(Direction dir)
+	{
+		if(!alive)
+			return this;
+
+		Direction next = direction;
+
+		if(dir != null && dir != opposite(direction))
+			next = dir;
+
+		int x = head % columns;
+		int y = head / columns;
+
+		switch(next)
+		{
+			case UP:
+				y--;
+				break;
+
+			case DOWN:
+				y++;
+				break;
+
+			case LEFT:
+				x--;
+				break;
+
+			case RIGHT:
+				x++;
+				break;
+
+			default:
+				throw new IllegalArgumentException("There is no such direction");
+		}
+
+		int next_tick = tick + 1;
+		int cell      = y * columns + x;
+
+		if(x <= 0 || x >= width || y <= 0 || y >= height)
+		{
+			return new BranchState(width, height, score_penalty, visits, objects, next_tick, length,
+			                       false, cell, next, false, score, dynamite_count);
+		}
+
+		// Once the tail has moved, the body is made of the cells entered after
+		// tick 'next_tick - length'.
+		boolean bitten = visits.get(cell) > next_tick - length;
+
+		PersistentIntArray next_visits = visits.set(cell, next_tick);
+
+		if(bitten)
+		{
+			return new BranchState(width, height, score_penalty, next_visits, objects, next_tick, length,
+			                       false, cell, next, false, score, dynamite_count);
+		}
+
+		int object = objects.get(cell);
+
+		if(object == FRUIT)
+		{
+			return new BranchState(width, height, score_penalty, next_visits, objects.set(cell, EMPTY),
+			                       next_tick, length + 1, true, cell, next, true,
+			                       score + length * 2 + dynamite_count, dynamite_count);
+		}
+
+		if(object == DYNAMITE)
+		{
+			return new BranchState(width, height, score_penalty, next_visits, objects.set(cell, EMPTY),
+			                       next_tick, length, false, cell, next, true,
+			                       score - score_penalty, dynamite_count - 1);
+		}
+
+		return new BranchState(width, height, score_penalty, next_visits, objects, next_tick, length,
+		                       false, cell, next, true, score, dynamite_count);
+	}
+
+	/**
+	 * @return true if the snake is alive.
+	 */
+	public boolean isAlive()
+	{
+		return alive;
+	}
+
+	/**
+	 * @return the score.
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * @return the number of segments of the snake.
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return the direction in which the snake is moving.
+	 */
+	public Direction getDirection()
+	{
+		return direction;
+	}
+
+	/**
+	 * @return the snake's head.
+	 */
+	public Position getHead()
+	{
+		return Position.of(head % columns, head / columns);
+	}
+
+	/**
+	 * @param p the position to check.
+	 * @return true if the snake's body is over the given position.
+	 */
+	public boolean isSnakeBody(Position p)
+	{
+		int cell = toCell(p);
+
+		if(cell < 0)
+			return false;
+
+		// A segment added by the last move still sits on the tail's cell.
+		int body_cells = grown ? length - 1 : length;
+
+		int visit = visits.get(cell);
+
+		return visit > 0 && visit > tick - body_cells;
+	}
+
+	/**
+	 * @param p the position to check.
+	 * @return true if there is a fruit at the given position.
+	 */
+	public boolean isFruit(Position p)
+	{
+		int cell = toCell(p);
+
+		return cell >= 0 && objects.get(cell) == FRUIT;
+	}
+
+	/**
+	 * @param p the position to check.
+	 * @return true if there is a dynamite at the given position.
+	 */
+	public boolean isDynamite(Position p)
+	{
+		int cell = toCell(p);
+
+		return cell >= 0 && objects.get(cell) == DYNAMITE;
+	}
+
+	/**
+	 * @return the cell of the given position, or -1 if it is off the board.
+	 */
+	private int toCell(Position p)
+	{
+		if(p.getX() < 0 || p.getX() > width || p.getY() < 0 || p.getY() > height)
+			return -1;
+
+		return p.getY() * columns + p.getX();
+	}
+
+	/**
+	 * @return the direction opposite to the given one.
+	 */
+	private static Direction opposite(Direction dir)
+	{
+		switch(dir)
+		{
+			case UP:
+				return Direction.DOWN;
+
+			case DOWN:
+				return Direction.UP;
+
+			case LEFT:
+				return Direction.RIGHT;
+
+			default:
+				return Direction.LEFT;
+		}
+	}
+}
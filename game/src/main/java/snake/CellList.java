@@ -0,0 +1,188 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A list of board cells kept in an int array, so that it can be walked by
+ * index without allocating. Removing a cell moves the last one into its slot,
+ * so the order of the cells is not kept.
+ *
+ * Each cell's slot is found in a hash table keyed by cell, so adding and
+ * removing take constant time, and memory grows with the cells in the list
+ * rather than with the board, which may be huge.
+ */
+public class CellList
+{
+	/*
+	 * Key of an empty entry of the table.
+	 */
+	private final static int NO_CELL = -1;
+
+	/*
+	 * The cells, packed in the first 'size' slots.
+	 */
+	private int[] cells;
+	private int size;
+
+	/*
+	 * An open-addressing table, probed linearly, from each cell to its slot in
+	 * 'cells'. It is kept at most half full.
+	 */
+	private int[] keys;
+	private int[] slots;
+	private int shift;
+
+	/**
+	 * Instantiate a new, empty list of cells.
+	 */
+	public CellList()
+	{
+		cells = new int[16];
+		size  = 0;
+
+		resize(32);
+	}
+
+	/**
+	 * @return the number of cells.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param i the index of a cell, from 0 to size() - 1.
+	 * @return the cell.
+	 */
+	public int get(int i)
+	{
+		if(i >= size)
+			throw new IndexOutOfBoundsException("No such cell: " + i);
+
+		return cells[i];
+	}
+
+	/**
+	 * @param cell the cell to check.
+	 * @return true if the cell is in the list.
+	 */
+	public boolean contains(int cell)
+	{
+		return keys[find(cell)] == cell;
+	}
+
+	/**
+	 * Adds a cell, which must not be in the list already.
+	 *
+	 * @param cell the cell to add.
+	 */
+	public void add(int cell)
+	{
+		if(size == cells.length)
+			cells = Arrays.copyOf(cells, size * 2);
+
+		if((size + 1) * 2 > keys.length)
+			resize(keys.length * 2);
+
+		int entry = find(cell);
+
+		keys[entry]   = cell;
+		slots[entry]  = size;
+		cells[size++] = cell;
+	}
+
+	/**
+	 * Removes a cell. Nothing happens if it is not in the list.
+	 *
+	 * @param cell the cell to remove.
+	 */
+	public void remove(int cell)
+	{
+		int entry = find(cell);
+
+		if(keys[entry] != cell)
+			return;
+
+		int slot = slots[entry];
+		int last = cells[--size];
+
+		cells[slot] = last;
+		slots[find(last)] = slot;
+
+		delete(entry);
+	}
+
+	/**
+	 * @return the entry of the table holding the given cell, or the empty one
+	 * where it would go.
+	 */
+	private int find(int cell)
+	{
+		int mask  = keys.length - 1;
+		int entry = hash(cell);
+
+		while(keys[entry] != cell && keys[entry] != NO_CELL)
+			entry = (entry + 1) & mask;
+
+		return entry;
+	}
+
+	/**
+	 * @return the entry a cell is looked up from.
+	 */
+	private int hash(int cell)
+	{
+		return (cell * 0x9E3779B9) >>> shift;
+	}
+
+	/**
+	 * Empties an entry of the table, moving back the entries after it that
+	 * could no longer be found otherwise.
+	 */
+	private void delete(int entry)
+	{
+		int mask = keys.length - 1;
+		int next = (entry + 1) & mask;
+
+		while(keys[next] != NO_CELL)
+		{
+			int home = hash(keys[next]);
+
+			// The entry may move back if its home is not between the empty
+			// entry, excluded, and itself, going round the table.
+			if(((next - home) & mask) >= ((next - entry) & mask))
+			{
+				keys[entry]  = keys[next];
+				slots[entry] = slots[next];
+				entry        = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		keys[entry] = NO_CELL;
+	}
+
+	/**
+	 * Replaces the table with one of the given capacity, a power of two,
+	 * holding the cells of the list.
+	 */
+	private void resize(int capacity)
+	{
+		keys  = new int[capacity];
+		slots = new int[capacity];
+		shift = Integer.numberOfLeadingZeros(capacity - 1);
+
+		Arrays.fill(keys, NO_CELL);
+
+		for(int i = 0; i < size; i++)
+		{
+			int entry = find(cells[i]);
+
+			keys[entry]  = cells[i];
+			slots[entry] = i;
+		}
+	}
+}
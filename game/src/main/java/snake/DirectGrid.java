@@ -0,0 +1,48 @@
+package snake;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * A grid of bytes kept off the Java heap, in a direct buffer holding one byte
+ * per cell. It costs the whole board up front, but nothing the garbage
+ * collector has to look at, however large the board or many the games.
+ *
+ * The memory is released when the grid is collected, and counts towards the
+ * JVM's -XX:MaxDirectMemorySize rather than its heap.
+ */
+public class DirectGrid implements Grid
+{
+	/*
+	 * The cells, row by row.
+	 */
+	private final ByteBuffer cells;
+
+	/**
+	 * Instantiate a new grid, with every cell set to zero.
+	 *
+	 * @param columns the number of columns of the grid
+	 * @param rows the number of rows of the grid
+	 * @throws IllegalArgumentException if the cells can't be packed in an int.
+	 */
+	public DirectGrid(int columns, int rows)
+	{
+		if((long) columns * rows > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The board is too large: " + columns + "x" + rows);
+
+		// Direct buffers are zeroed when allocated.
+		cells = ByteBuffer.allocateDirect(columns * rows);
+	}
+
+	@Override
+	public byte get(int cell)
+	{
+		return cells.get(cell);
+	}
+
+	@Override
+	public void set(int cell, byte value)
+	{
+		cells.put(cell, value);
+	}
+}
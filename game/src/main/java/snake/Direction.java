@@ -1,3 +1,5 @@
+package snake;
+
 /**
  * 
  * A enumeration that represents all possible movements.
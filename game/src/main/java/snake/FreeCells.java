@@ -0,0 +1,170 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ *
+ * A set of free board cells that supports picking a uniformly random member.
+ * Cells are kept in a dense array, and each cell remembers its slot in that
+ * array, so adding, removing and sampling all take constant time.
+ *
+ * Both arrays are int buffers from a BoardStorage, so the set may live off
+ * the heap along with the rest of the board.
+ */
+public class FreeCells
+{
+	/*
+	 * Slot value of a cell that is not in the set.
+	 */
+	private final static int NO_SLOT = -1;
+
+	/*
+	 * The free cells, packed in the first 'count' slots.
+	 */
+	private final IntBuffer cells;
+
+	/*
+	 * The slot of each cell in 'cells', or NO_SLOT.
+	 */
+	private final IntBuffer slots;
+
+	/*
+	 * Number of free cells.
+	 */
+	private int count;
+
+	/**
+	 * Instantiate a new, empty set of free cells, on the heap.
+	 *
+	 * @param capacity the number of cells of the board
+	 */
+	public FreeCells(int capacity)
+	{
+		this(capacity, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiate a new, empty set of free cells.
+	 *
+	 * @param capacity the number of cells of the board
+	 * @param storage where to keep the cells
+	 */
+	public FreeCells(int capacity, BoardStorage storage)
+	{
+		cells = storage.newInts(capacity);
+		slots = storage.newInts(capacity);
+		count = 0;
+
+		for(int i = 0; i < capacity; i++)
+			slots.put(i, NO_SLOT);
+	}
+
+	/**
+	 * @return the number of free cells.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * @param cell the cell to check.
+	 * @return true if the given cell is free.
+	 */
+	public boolean contains(int cell)
+	{
+		return slots.get(cell) != NO_SLOT;
+	}
+
+	/**
+	 * Marks a cell as free. Nothing happens if it already is.
+	 *
+	 * @param cell the cell to add.
+	 */
+	public void add(int cell)
+	{
+		if(slots.get(cell) != NO_SLOT)
+			return;
+
+		cells.put(count, cell);
+		slots.put(cell, count);
+		count++;
+	}
+
+	/**
+	 * Marks a cell as occupied. The last free cell is moved into its slot to
+	 * keep the array dense. Nothing happens if the cell was not free.
+	 *
+	 * @param cell the cell to remove.
+	 */
+	public void remove(int cell)
+	{
+		int slot = slots.get(cell);
+
+		if(slot == NO_SLOT)
+			return;
+
+		count--;
+
+		int last = cells.get(count);
+
+		cells.put(slot, last);
+		slots.put(last, slot);
+		slots.put(cell, NO_SLOT);
+	}
+
+	/**
+	 * @param rand the random number generator to use.
+	 * @return a uniformly random free cell, or -1 if there is none.
+	 */
+	public int random(GameRandom rand)
+	{
+		if(count == 0)
+			return -1;
+
+		return cells.get(rand.nextInt(count));
+	}
+
+	/**
+	 * @return the size, in bytes, of a snapshot of this set.
+	 */
+	public int getSnapshotSize()
+	{
+		return 4 + 4 * count;
+	}
+
+	/**
+	 * Writes the number of free cells followed by the cells themselves, in
+	 * the order they are sampled from.
+	 *
+	 * @param out the buffer to write to.
+	 */
+	public void writeSnapshot(ByteBuffer out)
+	{
+		out.putInt(count);
+
+		for(int i = 0; i < count; i++)
+			out.putInt(cells.get(i));
+	}
+
+	/**
+	 * Replaces the content of this set with a snapshot written by
+	 * writeSnapshot(), keeping the cells in the same slots, so that sampling
+	 * picks the same cells as before.
+	 *
+	 * @param in the buffer to read from.
+	 */
+	public void readSnapshot(ByteBuffer in)
+	{
+		for(int i = 0; i < count; i++)
+			slots.put(cells.get(i), NO_SLOT);
+
+		count = 0;
+
+		int restored = in.getInt();
+
+		for(int i = 0; i < restored; i++)
+			add(in.getInt());
+	}
+}
@@ -0,0 +1,363 @@
+package snake;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ *
+ * The geometry and the rules of a game: the size of the board, the speeds the
+ * main menu offers, how often new objects are generated, the length and the
+ * row the snake starts with, and the points a dynamite costs.
+ *
+ * A configuration is immutable. It is read from properties named after the
+ * constants below, e.g. "width" or "score.penalty", each one taken from the
+ * first of these that sets it:
+ *
+ *     the command line, as --name=value
+ *     the system properties, as snake.name
+ *     the properties file given by --config=file or snake.config
+ *     the defaults, which are those of the original game
+ *
+ * so that large boards, dense objects or long snakes can be tried without
+ * changing the code.
+ */
+public final class GameConfig
+{
+	/*
+	 * The names of the properties.
+	 */
+	public final static String WIDTH         = "width";
+	public final static String HEIGHT        = "height";
+	public final static String SPEEDS        = "speeds";
+	public final static String SPAWN_PERIOD  = "spawn.period";
+	public final static String INITIAL_SIZE  = "initial.size";
+	public final static String START_ROW     = "start.row";
+	public final static String SCORE_PENALTY = "score.penalty";
+
+	/*
+	 * The name of the option giving the properties file.
+	 */
+	public final static String CONFIG = "config";
+
+	/*
+	 * What comes before a property's name on the command line, and in the
+	 * system properties.
+	 */
+	public final static String OPTION_PREFIX = "--";
+	public final static String SYSTEM_PREFIX = "snake.";
+
+	/*
+	 * The number of speeds the main menu offers.
+	 */
+	public final static int SPEED_COUNT = 5;
+
+	/*
+	 * The defaults. The board fits GameView's terminal.
+	 */
+	private final static int DEFAULT_WIDTH        = GameView.LARGE_WIDTH - GameView.X_COORDINATE_OFFSET;
+	private final static int DEFAULT_HEIGHT       = GameView.LARGE_HEIGHT - GameView.Y_COORDINATE_OFFSET;
+	private final static int[] DEFAULT_SPEEDS     = { 90, 75, 60, 45, 35 };
+	private final static int DEFAULT_SPAWN_PERIOD = 6000;
+	private final static int DEFAULT_START_ROW    = 15;
+
+	/*
+	 * Every property, to tell the unknown ones.
+	 */
+	private final static String[] NAMES = { WIDTH, HEIGHT, SPEEDS, SPAWN_PERIOD, INITIAL_SIZE,
+	                                        START_ROW, SCORE_PENALTY };
+
+	/*
+	 * The configuration of the original game.
+	 */
+	public final static GameConfig DEFAULT = new GameConfig(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_SPEEDS,
+	                                                        DEFAULT_SPAWN_PERIOD, Snake.SNAKE_INITIAL_SIZE,
+	                                                        DEFAULT_START_ROW, GameState.SCORE_PENALTY);
+
+	/*
+	 * The game play dimensions, i.e. the coordinates of the right and bottom
+	 * walls.
+	 */
+	private final int width;
+	private final int height;
+
+	/*
+	 * The time in milliseconds between two moves of the snake, for each
+	 * speed of the main menu, from the slowest.
+	 */
+	private final int[] speeds;
+
+	/*
+	 * The time in milliseconds between two new objects being generated.
+	 */
+	private final int spawn_period;
+
+	/*
+	 * The snake's initial length, and the row it starts on when the board is
+	 * tall enough.
+	 */
+	private final int initial_size;
+	private final int start_row;
+
+	/*
+	 * The value used to decrement the score when the snake steps over an
+	 * obstacle.
+	 */
+	private final int score_penalty;
+
+	/**
+	 * Instantiates a new GameConfig object.
+	 *
+	 * @throws IllegalArgumentException if the values make no game.
+	 */
+	private GameConfig(int width, int height, int[] speeds, int spawn_period, int initial_size,
+	                   int start_row, int score_penalty)
+	{
+		if(initial_size < 1)
+			throw new IllegalArgumentException("The snake must have at least one segment");
+
+		if(width <= initial_size + 2 || height < 2)
+			throw new IllegalArgumentException("The board is too small for the snake");
+
+		if(speeds.length != SPEED_COUNT)
+			throw new IllegalArgumentException("There must be " + SPEED_COUNT + " speeds");
+
+		for(int speed : speeds)
+		{
+			if(speed <= 0)
+				throw new IllegalArgumentException("Invalid speed: " + speed);
+		}
+
+		if(spawn_period <= 0 || start_row < 1)
+			throw new IllegalArgumentException("Invalid spawn period or start row");
+
+		this.width         = width;
+		this.height        = height;
+		this.speeds        = speeds.clone();
+		this.spawn_period  = spawn_period;
+		this.initial_size  = initial_size;
+		this.start_row     = start_row;
+		this.score_penalty = score_penalty;
+	}
+
+	/**
+	 * Reads a configuration from the command line, the system properties and
+	 * a properties file, as described above. The arguments that do not start
+	 * with OPTION_PREFIX are left to the caller.
+	 *
+	 * @param args the command line.
+	 * @return the configuration.
+	 * @throws IOException if the properties file can't be read.
+	 * @throws IllegalArgumentException if a property is unknown or invalid.
+	 */
+	public static GameConfig load(String[] args) throws IOException
+	{
+		Properties options = new Properties();
+
+		for(String arg : args)
+		{
+			if(!isOption(arg))
+				continue;
+
+			int equals = arg.indexOf('=');
+
+			if(equals < 0)
+				throw new IllegalArgumentException("Expected " + arg + "=value");
+
+			options.setProperty(arg.substring(OPTION_PREFIX.length(), equals), arg.substring(equals + 1));
+		}
+
+		Properties properties = new Properties();
+		String file           = options.getProperty(CONFIG, System.getProperty(SYSTEM_PREFIX + CONFIG));
+
+		if(file != null)
+		{
+			try(Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8))
+			{
+				properties.load(in);
+			}
+		}
+
+		for(String name : NAMES)
+		{
+			String value = System.getProperty(SYSTEM_PREFIX + name);
+
+			if(value != null)
+				properties.setProperty(name, value);
+		}
+
+		options.remove(CONFIG);
+		properties.putAll(options);
+
+		return fromProperties(properties);
+	}
+
+	/**
+	 * Reads a configuration from properties named after the constants above.
+	 * Those that are not set keep their default.
+	 *
+	 * @param properties the properties.
+	 * @return the configuration.
+	 * @throws IllegalArgumentException if a property is unknown or invalid.
+	 */
+	public static GameConfig fromProperties(Properties properties)
+	{
+		for(String name : properties.stringPropertyNames())
+		{
+			if(!Arrays.asList(NAMES).contains(name))
+				throw new IllegalArgumentException("Unknown setting: " + name);
+		}
+
+		int[] speeds = DEFAULT.speeds;
+		String value = properties.getProperty(SPEEDS);
+
+		if(value != null)
+		{
+			String[] values = value.split(",");
+
+			speeds = new int[values.length];
+
+			for(int i = 0; i < values.length; i++)
+				speeds[i] = parse(SPEEDS, values[i]);
+		}
+
+		return new GameConfig(getInt(properties, WIDTH, DEFAULT.width),
+		                      getInt(properties, HEIGHT, DEFAULT.height),
+		                      speeds,
+		                      getInt(properties, SPAWN_PERIOD, DEFAULT.spawn_period),
+		                      getInt(properties, INITIAL_SIZE, DEFAULT.initial_size),
+		                      getInt(properties, START_ROW, DEFAULT.start_row),
+		                      getInt(properties, SCORE_PENALTY, DEFAULT.score_penalty));
+	}
+
+	/**
+	 * @param arg a command line argument.
+	 * @return true if it is a property, to be read by load().
+	 */
+	public static boolean isOption(String arg)
+	{
+		return arg.startsWith(OPTION_PREFIX);
+	}
+
+	/**
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall.
+	 * @return this configuration, on a board of the given size.
+	 * @throws IllegalArgumentException if the board is too small for the snake.
+	 */
+	public GameConfig withBoardSize(int width, int height)
+	{
+		if(width == this.width && height == this.height)
+			return this;
+
+		return new GameConfig(width, height, speeds, spawn_period, initial_size, start_row, score_penalty);
+	}
+
+	/**
+	 * @param initial_size the snake's initial length.
+	 * @param start_row the row the snake starts on when the board is tall enough.
+	 * @param score_penalty the points a dynamite costs.
+	 * @return this configuration, with the given rules.
+	 * @throws IllegalArgumentException if they make no game on this board.
+	 */
+	public GameConfig withRules(int initial_size, int start_row, int score_penalty)
+	{
+		return new GameConfig(width, height, speeds, spawn_period, initial_size, start_row, score_penalty);
+	}
+
+	/**
+	 * @return the game play width, i.e. the X coordinate of the right wall.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the game play height, i.e. the Y coordinate of the bottom wall.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @param level the speed, from 1 (the slowest) to SPEED_COUNT.
+	 * @return the time in milliseconds between two moves at that speed.
+	 */
+	public int getSpeed(int level)
+	{
+		return speeds[level - 1];
+	}
+
+	/**
+	 * @return the time in milliseconds between two new objects being generated.
+	 */
+	public int getSpawnPeriod()
+	{
+		return spawn_period;
+	}
+
+	/**
+	 * @return the snake's initial length.
+	 */
+	public int getInitialSize()
+	{
+		return initial_size;
+	}
+
+	/**
+	 * @return the row the snake starts on when the board is tall enough, as
+	 * configured.
+	 */
+	public int getConfiguredStartRow()
+	{
+		return start_row;
+	}
+
+	/**
+	 * @return the row the snake starts on: the configured one, or the middle
+	 * of the board if it is not tall enough.
+	 */
+	public int getStartRow()
+	{
+		return (start_row < height) ? start_row : height / 2;
+	}
+
+	/**
+	 * @return the points a dynamite costs.
+	 */
+	public int getScorePenalty()
+	{
+		return score_penalty;
+	}
+
+	/**
+	 * @return the value of a property, or the given default if it is not set.
+	 */
+	private static int getInt(Properties properties, String name, int default_value)
+	{
+		String value = properties.getProperty(name);
+
+		return (value != null) ? parse(name, value) : default_value;
+	}
+
+	/**
+	 * @return the value of a property, as an int.
+	 */
+	private static int parse(String name, String value)
+	{
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException nfe)
+		{
+			throw new IllegalArgumentException("Invalid " + name + ": " + value);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package snake;
+
+/**
+ *
+ * A enumeration that represents the phases the game goes through, from the
+ * main menu to game play and to the game over menu, until the player quits.
+ */
+public enum GamePhase
+{
+	MAIN_MENU, PLAYING, GAME_OVER, QUIT
+}
@@ -0,0 +1,105 @@
+package snake;
+
+/**
+ *
+ * The random number generator of a game. It is the SplitMix64 algorithm used
+ * by java.util.SplittableRandom, and produces the very same numbers from the
+ * same seed, but its whole state is a single long that can be read back, so
+ * that a game can be saved and restored mid-way.
+ *
+ * Like SplittableRandom, it is not thread-safe. Every game has its own.
+ */
+public class GameRandom
+{
+	/*
+	 * The increment of the state on every number drawn.
+	 */
+	final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/*
+	 * The generator's state.
+	 */
+	private long state;
+
+	/**
+	 * Instantiates a new GameRandom object.
+	 *
+	 * @param seed the initial state, either a seed or a value returned by
+	 * getState().
+	 */
+	public GameRandom(long seed)
+	{
+		state = seed;
+	}
+
+	/**
+	 * @return the generator's state, from which a new generator continues
+	 * with the same numbers as this one.
+	 */
+	public long getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return a pseudo-random long.
+	 */
+	public long nextLong()
+	{
+		return mix64(state += GOLDEN_GAMMA);
+	}
+
+	/**
+	 * @return a pseudo-random int.
+	 */
+	public int nextInt()
+	{
+		return mix32(state += GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Returns a pseudo-random number between 0 (inclusive) and bound
+	 * (exclusive), without modulo bias.
+	 *
+	 * @param bound the upper bound. Must be positive.
+	 * @return Integer between 0 (inclusive) and bound (exclusive).
+	 */
+	public int nextInt(int bound)
+	{
+		if(bound <= 0)
+			throw new IllegalArgumentException("The bound must be positive");
+
+		int r = nextInt();
+		int m = bound - 1;
+
+		if((bound & m) == 0)
+		{
+			// A power of two: just keep the lower bits.
+			r &= m;
+		}
+		else
+		{
+			// Reject the values at the top of the range that would make the
+			// lower results more likely.
+			for(int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1)
+				;
+		}
+
+		return r;
+	}
+
+	static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+		return z ^ (z >>> 31);
+	}
+
+	static int mix32(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+}
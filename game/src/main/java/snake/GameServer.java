@@ -0,0 +1,569 @@
+package snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Hosts an arena over TCP. The first clients to join each drive a snake, by
+ * sending directions, and the others watch. Every move is broadcast to all of
+ * them as a TICK message, see NetFormat. When every snake is dead, a new round
+ * starts on a new arena.
+ *
+ * A single thread runs both the game and the network, on a selector. Sockets
+ * never block: each message is encoded once per move and copied into every
+ * client's own buffer, which is written out as fast as the client reads it. A
+ * client that falls more than MAX_BACKLOG bytes behind is disconnected, so a
+ * slow client never delays the others or the game.
+ */
+public class GameServer implements Closeable
+{
+	/*
+	 * The most bytes a client may have waiting to be sent to it.
+	 */
+	private final static int MAX_BACKLOG = 1 << 18;
+
+	/*
+	 * The initial size of the buffers, in bytes.
+	 */
+	private final static int BUFFER_SIZE = 4096;
+
+	/*
+	 * The port and the number of snakes used when none is given.
+	 */
+	private final static int DEFAULT_PORT        = 7777;
+	private final static int DEFAULT_SNAKE_COUNT = 8;
+
+	/*
+	 * The network.
+	 */
+	private final Selector selector;
+	private final ServerSocketChannel server;
+
+	/*
+	 * The board and the rules, and the number of snakes of every round.
+	 */
+	private final GameConfig config;
+	private final int snake_count;
+
+	/*
+	 * The time in nanoseconds between two moves, and the number of moves
+	 * between two new objects.
+	 */
+	private final long tick_period;
+	private final int spawn_interval;
+
+	/*
+	 * Picks the seed of every round.
+	 */
+	private final SplittableRandom rand;
+
+	/*
+	 * The current round, and the number of moves since it started.
+	 */
+	private Arena arena;
+	private int tick;
+
+	/*
+	 * Every client, and the client driving each snake, or null.
+	 */
+	private final ArrayList<Client> clients;
+	private final Client[] players;
+
+	/*
+	 * The direction each snake was last told to turn to since the last move.
+	 */
+	private final Direction[] directions;
+
+	/*
+	 * The message being broadcast.
+	 */
+	private ByteBuffer message;
+
+	/*
+	 * Whether or not the server should keep running.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Opens a server, ready to accept clients once run() is called. The
+	 * snakes move at the configuration's fastest speed.
+	 *
+	 * @param address the address to listen on; port 0 picks a free one.
+	 * @param config the board, the speeds, the spawn period and the rules.
+	 * @param snake_count the number of snakes of every round.
+	 * @param seed the seed the rounds' seeds are drawn from.
+	 * @throws IOException if the address can't be bound.
+	 */
+	public GameServer(InetSocketAddress address, GameConfig config, int snake_count,
+	                  long seed) throws IOException
+	{
+		this.config      = config;
+		this.snake_count = snake_count;
+
+		int tick_millis = config.getSpeed(GameConfig.SPEED_COUNT);
+
+		tick_period    = TimeUnit.MILLISECONDS.toNanos(tick_millis);
+		spawn_interval = Math.max(1, config.getSpawnPeriod() / tick_millis);
+
+		rand = new SplittableRandom(seed);
+
+		clients    = new ArrayList<Client>();
+		players    = new Client[snake_count];
+		directions = new Direction[snake_count];
+		message    = ByteBuffer.allocate(BUFFER_SIZE);
+
+		newArena();
+
+		selector = Selector.open();
+
+		ServerSocketChannel channel = null;
+
+		try
+		{
+			channel = ServerSocketChannel.open();
+
+			channel.bind(address);
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_ACCEPT);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			closeQuietly(channel);
+			closeQuietly(selector);
+			throw e;
+		}
+
+		server = channel;
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	public int getPort()
+	{
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * @return the number of clients connected.
+	 */
+	public int getClientCount()
+	{
+		return clients.size();
+	}
+
+	/**
+	 * Runs the game and serves the clients until stop() is called.
+	 *
+	 * @throws IOException if the selector fails.
+	 */
+	public void run() throws IOException
+	{
+		running = true;
+
+		long next_tick = System.nanoTime();
+
+		while(running)
+		{
+			long wait = next_tick - System.nanoTime();
+
+			if(wait > 0)
+				selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+			else
+				selector.selectNow();
+
+			handleSelectedKeys();
+
+			long now = System.nanoTime();
+
+			if(now - next_tick >= 0)
+			{
+				tick();
+
+				next_tick += tick_period;
+
+				// Too far behind: skip the missed moves rather than rushing them.
+				if(now - next_tick >= 0)
+					next_tick = now + tick_period;
+			}
+		}
+	}
+
+	/**
+	 * Makes run() return. May be called from any thread.
+	 */
+	public void stop()
+	{
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Disconnects every client and stops listening.
+	 *
+	 * @throws IOException if the server can't be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		for(int i = clients.size() - 1; i >= 0; i--)
+			disconnect(clients.get(i));
+
+		server.close();
+		selector.close();
+	}
+
+	/**
+	 * Accepts new clients, reads their directions and writes what is waiting
+	 * to be sent to them.
+	 */
+	private void handleSelectedKeys()
+	{
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+		while(keys.hasNext())
+		{
+			SelectionKey key = keys.next();
+			keys.remove();
+
+			if(!key.isValid())
+				continue;
+
+			if(key.isAcceptable())
+			{
+				accept();
+				continue;
+			}
+
+			Client client = (Client) key.attachment();
+
+			if(key.isReadable())
+				read(client);
+
+			if(key.isValid() && key.isWritable())
+				flush(client);
+		}
+	}
+
+	/**
+	 * Accepts a client, gives it a snake if one is free, and sends it the
+	 * arena.
+	 */
+	private void accept()
+	{
+		SocketChannel channel = null;
+
+		try
+		{
+			channel = server.accept();
+
+			if(channel == null)
+				return;
+
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+			Client client = new Client(channel);
+			client.key    = channel.register(selector, SelectionKey.OP_READ, client);
+
+			for(int i = 0; i < players.length && client.snake < 0; i++)
+			{
+				if(players[i] == null)
+				{
+					players[i]   = client;
+					client.snake = i;
+				}
+			}
+
+			clients.add(client);
+
+			sendState(client);
+		}
+		catch (IOException ioe)
+		{
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Reads the directions a client sent. Only the last one before a move
+	 * counts.
+	 */
+	private void read(Client client)
+	{
+		ByteBuffer in = client.in;
+
+		try
+		{
+			in.clear();
+
+			if(client.channel.read(in) < 0)
+			{
+				disconnect(client);
+				return;
+			}
+		}
+		catch (IOException ioe)
+		{
+			disconnect(client);
+			return;
+		}
+
+		if(client.snake < 0)
+			return;
+
+		for(int i = 0; i < in.position(); i++)
+		{
+			Direction dir = NetFormat.decodeInput(in.get(i));
+
+			if(dir != null)
+				directions[client.snake] = dir;
+		}
+	}
+
+	/**
+	 * Moves the snakes, generates new objects on time, and broadcasts what
+	 * changed. A new round starts when every snake is dead.
+	 */
+	private void tick()
+	{
+		ArenaEvents events = arena.step(directions);
+
+		Arrays.fill(directions, null);
+		tick++;
+
+		if(tick % spawn_interval == 0)
+		{
+			arena.spawnFruit();
+			arena.spawnDynamite();
+		}
+
+		ensureMessageCapacity(NetFormat.getTickSize(events));
+
+		message.clear();
+		NetFormat.writeTick(message, events, tick);
+		message.flip();
+
+		for(int i = clients.size() - 1; i >= 0; i--)
+			send(clients.get(i));
+
+		if(arena.getAliveCount() == 0)
+		{
+			newArena();
+
+			for(int i = clients.size() - 1; i >= 0; i--)
+				sendState(clients.get(i));
+		}
+	}
+
+	/**
+	 * Starts a new round, with a fruit for every snake.
+	 */
+	private void newArena()
+	{
+		arena = new Arena(config, snake_count, rand.nextLong());
+		tick  = 0;
+
+		for(int i = 0; i < snake_count; i++)
+			arena.spawnFruit();
+	}
+
+	/**
+	 * Sends the whole arena to a client.
+	 */
+	private void sendState(Client client)
+	{
+		ensureMessageCapacity(NetFormat.getStateSize(arena));
+
+		message.clear();
+		NetFormat.writeState(message, arena, tick, client.snake);
+		message.flip();
+
+		send(client);
+	}
+
+	/**
+	 * Queues the message for a client and writes as much as the socket takes
+	 * right away. The client is disconnected if it is too far behind.
+	 */
+	private void send(Client client)
+	{
+		int length     = message.remaining();
+		ByteBuffer out = client.out;
+
+		if(out.remaining() < length)
+		{
+			int needed = out.position() + length;
+
+			if(needed > MAX_BACKLOG)
+			{
+				disconnect(client);
+				return;
+			}
+
+			ByteBuffer grown = ByteBuffer.allocate(Math.min(MAX_BACKLOG,
+			                                       Math.max(needed, out.capacity() * 2)));
+			out.flip();
+			grown.put(out);
+
+			out = grown;
+			client.out = grown;
+		}
+
+		out.put(message.array(), message.position(), length);
+
+		flush(client);
+	}
+
+	/**
+	 * Writes what is waiting to be sent to a client, and asks the selector to
+	 * tell when the socket can take more if some is left.
+	 */
+	private void flush(Client client)
+	{
+		ByteBuffer out = client.out;
+
+		try
+		{
+			out.flip();
+			client.channel.write(out);
+			out.compact();
+		}
+		catch (IOException ioe)
+		{
+			disconnect(client);
+			return;
+		}
+
+		if(out.position() > 0)
+			client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		else
+			client.key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Closes a client's connection and frees its snake, which keeps going
+	 * straight.
+	 */
+	private void disconnect(Client client)
+	{
+		if(!clients.remove(client))
+			return;
+
+		if(client.snake >= 0)
+			players[client.snake] = null;
+
+		client.key.cancel();
+		closeQuietly(client.channel);
+	}
+
+	/**
+	 * Makes sure the message buffer holds at least the given number of bytes.
+	 */
+	private void ensureMessageCapacity(int size)
+	{
+		if(message.capacity() < size)
+			message = ByteBuffer.allocate(Math.max(size, message.capacity() * 2));
+	}
+
+	/**
+	 * Closes a channel, ignoring errors as it is being dropped anyway.
+	 */
+	private static void closeQuietly(Closeable channel)
+	{
+		if(channel == null)
+			return;
+
+		try
+		{
+			channel.close();
+		}
+		catch (IOException ioe)
+		{
+			// Nothing left to do with this channel.
+		}
+	}
+
+	/**
+	 * A connected client.
+	 */
+	private final static class Client
+	{
+		/*
+		 * The client's socket, and its registration with the selector.
+		 */
+		final SocketChannel channel;
+		SelectionKey key;
+
+		/*
+		 * The index of the snake driven by this client, or -1.
+		 */
+		int snake;
+
+		/*
+		 * Bytes read from the client, and bytes waiting to be sent to it.
+		 */
+		final ByteBuffer in;
+		ByteBuffer out;
+
+		Client(SocketChannel channel)
+		{
+			this.channel = channel;
+
+			snake = -1;
+			in    = ByteBuffer.allocate(64);
+			out   = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Hosts a game until the process is killed.
+	 *
+	 * The board, the speed, the spawn period and the rules are read by
+	 * GameConfig.load() from the options, the system properties and a
+	 * properties file, as for GameView. The snakes move at the fastest speed.
+	 *
+	 * @param args the optional port and number of snakes, and GameConfig
+	 * options.
+	 * @throws IOException if the configuration file can't be read or the
+	 * server can't be started.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		GameConfig config = GameConfig.load(args);
+		int port          = DEFAULT_PORT;
+		int snake_count   = DEFAULT_SNAKE_COUNT;
+		int position      = 0;
+
+		for(String arg : args)
+		{
+			if(GameConfig.isOption(arg))
+				continue;
+
+			if(position++ == 0)
+				port = Integer.parseInt(arg);
+			else
+				snake_count = Integer.parseInt(arg);
+		}
+
+		try(GameServer server = new GameServer(new InetSocketAddress(port), config, snake_count,
+		                                       new SplittableRandom().nextLong()))
+		{
+			System.out.println("Listening on port " + server.getPort());
+			server.run();
+		}
+	}
+}
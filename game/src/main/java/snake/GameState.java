@@ -0,0 +1,851 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ *
+ * A generic class that holds the state of a snake game.
+ */
+public class GameState
+{
+	/*
+	 * The value used to decrement the score when the snake steps over
+	 * an obstacle, unless a GameConfig gives another one.
+	 */
+	final static int SCORE_PENALTY = 25;
+
+	/*
+	 * The maximum number of turns waiting to be taken by the snake.
+	 */
+	private final static int MAX_QUEUED_TURNS = 3;
+
+	/*
+	 * The largest board, in cells, whose free cells are indexed. Objects on
+	 * larger boards are placed by sampling random cells instead, as the index
+	 * takes memory proportional to the board's area.
+	 */
+	final static int MAX_INDEXED_CELLS = 1 << 20;
+
+	/*
+	 * The number of random cells tried for a new object on a board that is
+	 * too large to index, before looking for a free cell one by one.
+	 */
+	private final static int MAX_SAMPLING_ATTEMPTS = 64;
+
+	/*
+	 * "SNKS", the first bytes of every snapshot.
+	 */
+	private final static int SNAPSHOT_MAGIC = 0x534E4B53;
+
+	/*
+	 * The kind of object lying on each cell of the board.
+	 */
+	private final static byte EMPTY    = 0;
+	private final static byte FRUIT    = 1;
+	private final static byte DYNAMITE = 2;
+
+	/*
+	 * Snake object.
+	 */
+	private Snake snake;
+
+	/*
+	 * The board's dimensions and the rules of this game.
+	 */
+	private final GameConfig config;
+
+	/*
+	 * Number of columns and rows of the board, walls included.
+	 */
+	private final int columns;
+	private final int rows;
+
+	/*
+	 * The fruits to catch and the obstacles to avoid, indexed by cell
+	 * (y * columns + x).
+	 */
+	private final Grid objects;
+
+	/*
+	 * The positions of the fruits and obstacles on the board.
+	 */
+	private final Set<Position> fruits;
+	private final Set<Position> dynamites;
+
+	/*
+	 * Read-only views of the above, made once.
+	 */
+	private final Set<Position> fruits_view;
+	private final Set<Position> dynamites_view;
+
+	/*
+	 * The cells of the fruits, so that bots can walk them without allocating.
+	 */
+	private final CellList fruit_cells;
+
+	/*
+	 * The cells inside the walls that hold neither the snake nor an object,
+	 * or null if the board is too large to index them.
+	 */
+	private final FreeCells free_cells;
+
+	/*
+	 * Turns requested by the player, taken one per move.
+	 */
+	private final ArrayDeque<Direction> turns;
+
+	/*
+	 * The score regarding this game.
+	 */
+	private int score;
+
+	/*
+	 * The number of times an object was placed or taken.
+	 */
+	private int object_changes;
+
+	/*
+	 * A Random number generator, owned by this game alone.
+	 */
+	private final GameRandom rand;
+
+	/**
+	 * Instantiate a new GameState object.
+	 *
+	 * @param width The game play width, i.e. the X coordinate of the right wall.
+	 * @param height The game play height, i.e. the Y coordinate of the bottom wall.
+	 */
+	public GameState(int width, int height)
+	{
+		this(width, height, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Instantiate a new GameState object whose random number generator has
+	 * the given seed. Two games with the same seed and the same moves play
+	 * exactly the same.
+	 *
+	 * @param width The game play width, i.e. the X coordinate of the right wall.
+	 * @param height The game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param seed The seed of this game's random number generator.
+	 */
+	public GameState(int width, int height, long seed)
+	{
+		this(width, height, seed, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiate a new GameState object whose board is kept in the given
+	 * storage. The game plays the same whatever the storage.
+	 *
+	 * @param width The game play width, i.e. the X coordinate of the right wall.
+	 * @param height The game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param seed The seed of this game's random number generator.
+	 * @param storage Where to keep the board, the snake and the free cells.
+	 */
+	public GameState(int width, int height, long seed, BoardStorage storage)
+	{
+		this(GameConfig.DEFAULT.withBoardSize(width, height), seed, storage);
+	}
+
+	/**
+	 * Instantiate a new GameState object on the board and with the rules of
+	 * the given configuration, whose board is kept in the given storage.
+	 *
+	 * @param config The board's dimensions, the snake's initial length and row,
+	 * and the points a dynamite costs.
+	 * @param seed The seed of this game's random number generator.
+	 * @param storage Where to keep the board, the snake and the free cells.
+	 */
+	public GameState(GameConfig config, long seed, BoardStorage storage)
+	{
+		// Create a snake facing the RIGHT direction.
+		this(config, new GameRandom(seed), new Snake(Direction.RIGHT, config, storage), storage);
+
+		if(free_cells == null)
+			return;
+
+		for(int y = 1; y < rows - 1; y++)
+		{
+			for(int x = 1; x < columns - 1; x++)
+			{
+				updateFreeCell(y * columns + x);
+			}
+		}
+	}
+
+	/**
+	 * Instantiate a new GameState object with the given snake, no objects and
+	 * no free cells. The free cells are only indexed on boards of up to
+	 * MAX_INDEXED_CELLS cells.
+	 */
+	private GameState(GameConfig config, GameRandom rand, Snake snake, BoardStorage storage)
+	{
+		Position.preallocate(config.getWidth() + 1, config.getHeight() + 1);
+
+		this.config = config;
+		this.rand   = rand;
+		this.snake  = snake;
+
+		columns = config.getWidth()  + 1;
+		rows    = config.getHeight() + 1;
+
+		objects   = storage.newGrid(columns, rows);
+		fruits    = new LinkedHashSet<Position>();
+		dynamites = new LinkedHashSet<Position>();
+
+		fruits_view    = Collections.unmodifiableSet(fruits);
+		dynamites_view = Collections.unmodifiableSet(dynamites);
+		fruit_cells    = new CellList();
+
+		if((long) columns * rows <= MAX_INDEXED_CELLS)
+			free_cells = new FreeCells(columns * rows, storage);
+		else
+			free_cells = null;
+
+		turns  = new ArrayDeque<Direction>();
+		score  = 0;
+	}
+
+	/**
+	 * @return The game play width, i.e. the X coordinate of the right wall.
+	 */
+	public int getWidth()
+	{
+		return columns - 1;
+	}
+
+	/**
+	 * @return The game play height, i.e. the Y coordinate of the bottom wall.
+	 */
+	public int getHeight()
+	{
+		return rows - 1;
+	}
+
+	/**
+	 * @return The board's dimensions and the rules of this game.
+	 */
+	public GameConfig getConfig()
+	{
+		return config;
+	}
+
+	/**
+	 * @return A read-only view of the fruits.
+	 */
+	public Set<Position> getFruits()
+	{
+		return fruits_view;
+	}
+
+	/**
+	 * @return A read-only view of the dynamites.
+	 */
+	public Set<Position> getDynamites()
+	{
+		return dynamites_view;
+	}
+
+	/**
+	 * @return The number of fruits.
+	 */
+	public int getFruitCount()
+	{
+		return fruit_cells.size();
+	}
+
+	/**
+	 * Gives the fruits by index, in no particular order, so that they can be
+	 * walked without allocating.
+	 *
+	 * @param i The index of a fruit, from 0 to getFruitCount() - 1.
+	 * @return The fruit's cell, as y * (width + 1) + x.
+	 */
+	public int getFruitCell(int i)
+	{
+		return fruit_cells.get(i);
+	}
+
+	/**
+	 * Places a fruit at the given position.
+	 *
+	 * @param p The position of the new fruit.
+	 */
+	public void addFruit(Position p)
+	{
+		if(putObject(p, FRUIT))
+		{
+			fruits.add(p);
+			fruit_cells.add(toCell(p));
+		}
+	}
+
+	/**
+	 * Places a dynamite at the given position.
+	 *
+	 * @param p The position of the new dynamite.
+	 */
+	public void addDynamite(Position p)
+	{
+		if(putObject(p, DYNAMITE))
+			dynamites.add(p);
+	}
+
+	/**
+	 * @return The score.
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * @return A counter that changes whenever a fruit or a dynamite is placed
+	 * or taken, so that bots know when to plan again.
+	 */
+	public int getObjectChanges()
+	{
+		return object_changes;
+	}
+
+	/**
+	 * @return True if the snake is alive.
+	 */
+	public boolean isSnakeAlive()
+	{
+		return snake.isAlive();
+	}
+
+	/**
+	 * Kills the snake.
+	 */
+	public void killSnake()
+	{
+		snake.kill();
+	}
+
+	/**
+	 * Takes the next queued turn, if any, and moves the snake in its
+	 * current direction.
+	 */
+	public void moveSnake()
+	{
+		takeQueuedTurn();
+
+		Position tail = snake.getTail();
+
+		snake.move();
+
+		updateFreeCell(toCell(tail));
+		updateFreeCell(toCell(snake.getHead()));
+	}
+
+	/**
+	 * @return The snake's body.
+	 */
+	public List<Position> getSnakeBody()
+	{
+		return snake.getBody();
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if the snake's body is over the given position.
+	 */
+	public boolean isSnakeBody(Position p)
+	{
+		return snake.isBody(p);
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if there is a fruit at the given position.
+	 */
+	public boolean isFruit(Position p)
+	{
+		return fruits.contains(p);
+	}
+
+	/**
+	 * @param p The position to check.
+	 * @return True if there is a dynamite at the given position.
+	 */
+	public boolean isDynamite(Position p)
+	{
+		return dynamites.contains(p);
+	}
+
+	/**
+	 * @return True if the snake's head has just moved over its own body.
+	 */
+	public boolean snakeBitItself()
+	{
+		return snake.hasBittenItself();
+	}
+
+	/**
+	 * @return The direction in which the snake is moving.
+	 */
+	public Direction getSnakeDirection()
+	{
+		return snake.getDirection();
+	}
+
+	/**
+	 * @return The number of segments of the snake's body.
+	 */
+	public int getSnakeLength()
+	{
+		return snake.getSize();
+	}
+
+	/**
+	 * @return The snake's head.
+	 */
+	public Position getSnakeHead()
+	{
+		return snake.getHead();
+	}
+
+	/**
+	 * @return The snake's tail.
+	 */
+	public Position getSnakeTail()
+	{
+		return snake.getTail();
+	}
+
+	/**
+	 * If the snake has eaten the fruit, then the score will be increased and
+	 * then returns true.
+	 *
+	 * @return True if the snake ate a fruit.
+	 */
+	public boolean snakeAteFruit()
+	{
+		if(takeObjectAtHead(FRUIT))
+		{
+			fruits.remove(snake.getHead());
+			fruit_cells.remove(toCell(snake.getHead()));
+			updateScore(true);
+			snake.increaseSize();
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * If the snake has stepped over the obstacle, then the score will be
+	 * decreased and then returns true.
+	 *
+	 * @return True if the snake stepped over an obstacle.
+	 */
+	public boolean snakeSteppedDynamite()
+	{
+		if(takeObjectAtHead(DYNAMITE))
+		{
+			dynamites.remove(snake.getHead());
+			updateScore(false);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Sets a new snake direction, preventing it from turning to its opposite
+	 * direction, otherwise the player will instantly lose the game.
+	 *
+	 * @param dir The direction so set.
+	 */
+	public void setDirection(Direction dir)
+	{
+		switch(dir)
+		{
+			case UP:
+
+				if(snake.getDirection() != Direction.DOWN)
+					snake.setDirection(Direction.UP);
+
+				break;
+
+			case DOWN:
+
+				if(snake.getDirection() != Direction.UP)
+					snake.setDirection(Direction.DOWN);
+
+				break;
+
+			case LEFT:
+
+				if(snake.getDirection() != Direction.RIGHT)
+					snake.setDirection(Direction.LEFT);
+
+				break;
+
+			case RIGHT:
+
+				if(snake.getDirection() != Direction.LEFT)
+					snake.setDirection(Direction.RIGHT);
+
+				break;
+
+			default:
+				throw new IllegalArgumentException("No such direction");
+		}
+	}
+
+	/**
+	 * Queues a new snake direction, to be taken on a later move. This way,
+	 * turns requested faster than the snake moves are all taken, in order.
+	 *
+	 * @param dir The direction to queue.
+	 */
+	public void queueDirection(Direction dir)
+	{
+		if(turns.size() < MAX_QUEUED_TURNS)
+			turns.add(dir);
+	}
+
+	/**
+	 * Sets the first queued direction that actually turns the snake,
+	 * discarding the ones that don't.
+	 */
+	private void takeQueuedTurn()
+	{
+		while(!turns.isEmpty())
+		{
+			Direction before = snake.getDirection();
+
+			setDirection(turns.poll());
+
+			if(snake.getDirection() != before)
+				break;
+		}
+	}
+
+	/**
+	 * Updates the players' score.
+	 *
+	 * @param increase Whether or not the score should be increased. For instance,
+	 * if the snake steps over a dynamite, the score should decrease.
+	 */
+	private void updateScore(boolean increase)
+	{
+		if(increase)
+			score += (snake.getSize() * 2 + dynamites.size());
+		else
+			score -= config.getScorePenalty();
+	}
+
+	/**
+	 * Returns true if the specified position is empty, meaning that it is not
+	 * occupied by another object, which can be this snake, a fruit, or an
+	 * dynamite.
+	 *
+	 * @param p The position to check.
+	 * @return True if the specified position is empty.
+	 */
+	private boolean isEmptyPosition(Position p)
+	{
+		return !snake.isBody(p) && objects.get(toCell(p)) == EMPTY;
+	}
+
+	/**
+	 * Places an object on the given position, unless another object is
+	 * already there.
+	 *
+	 * @param p The position of the object.
+	 * @param object The kind of object to place.
+	 * @return True if the object was placed.
+	 */
+	private boolean putObject(Position p, byte object)
+	{
+		int cell = toCell(p);
+
+		if(objects.get(cell) != EMPTY)
+			return false;
+
+		objects.set(cell, object);
+		updateFreeCell(cell);
+
+		object_changes++;
+
+		return true;
+	}
+
+	/**
+	 * Removes the object under the snake's head if it is of the given kind.
+	 *
+	 * @param object The kind of object to look for.
+	 * @return True if the snake's head was over such an object.
+	 */
+	private boolean takeObjectAtHead(byte object)
+	{
+		int cell = toCell(snake.getHead());
+
+		if(objects.get(cell) != object)
+			return false;
+
+		objects.set(cell, EMPTY);
+
+		object_changes++;
+
+		return true;
+	}
+
+	/**
+	 * Adds the given cell to the free cells if it is inside the walls and
+	 * holds neither the snake nor an object, or removes it otherwise.
+	 *
+	 * @param cell The cell to update.
+	 */
+	private void updateFreeCell(int cell)
+	{
+		if(free_cells == null)
+			return;
+
+		int x = cell % columns;
+		int y = cell / columns;
+
+		boolean inside = x > 0 && x < columns - 1 && y > 0 && y < rows - 1;
+
+		if(inside && isEmptyPosition(Position.of(x, y)))
+			free_cells.add(cell);
+		else
+			free_cells.remove(cell);
+	}
+
+	/**
+	 * @param p A position inside the board.
+	 * @return The cell index of the given position.
+	 */
+	private int toCell(Position p)
+	{
+		return p.getY() * columns + p.getX();
+	}
+
+	/**
+	 * Picks a random position for a new object, ensuring that it is not
+	 * generated in a position already occupied by another object or over the
+	 * board's wall. Every free position is equally likely to be picked, unless
+	 * the board is too large to index its free cells and is almost full.
+	 *
+	 * @return The picked position, or null if the board is full.
+	 */
+	public Position generateRandomObject()
+	{
+		if(free_cells == null)
+			return sampleRandomObject();
+
+		int cell = free_cells.random(rand);
+
+		if(cell < 0)
+			return null;
+
+		return Position.of(cell % columns, cell / columns);
+	}
+
+	/**
+	 * Picks a random position for a new object on a board whose free cells
+	 * are not indexed. Random cells are tried first, which nearly always finds
+	 * one at once on a large board. Failing that, the cells that follow the
+	 * last one tried are searched in order.
+	 *
+	 * @return The picked position, or null if the board is full.
+	 */
+	private Position sampleRandomObject()
+	{
+		int inner_columns = columns - 2;
+		int inner_cells   = inner_columns * (rows - 2);
+
+		int k = 0;
+
+		for(int i = 0; i < MAX_SAMPLING_ATTEMPTS; i++)
+		{
+			k = rand.nextInt(inner_cells);
+
+			Position p = Position.of(1 + k % inner_columns, 1 + k / inner_columns);
+
+			if(isEmptyPosition(p))
+				return p;
+		}
+
+		for(int i = 1; i < inner_cells; i++)
+		{
+			int next = (k + i) % inner_cells;
+
+			Position p = Position.of(1 + next % inner_columns, 1 + next / inner_columns);
+
+			if(isEmptyPosition(p))
+				return p;
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return The size, in bytes, of a snapshot of this game.
+	 */
+	public int getSnapshotSize()
+	{
+		return 4 + 4 + 4 + 8 + 4
+		     + snake.getSnapshotSize()
+		     + 4 + 4 * fruits.size()
+		     + 4 + 4 * dynamites.size()
+		     + (free_cells != null ? free_cells.getSnapshotSize() : 4);
+	}
+
+	/**
+	 * Writes a snapshot of this game to the given buffer, from which
+	 * readSnapshot() restores an identical game. It holds, in this order:
+	 *
+	 *     int   SNAPSHOT_MAGIC
+	 *     int   width, height
+	 *     long  the random number generator's state
+	 *     int   score
+	 *           the snake (see Snake.writeSnapshot)
+	 *     int   the number of fruits, followed by their cells
+	 *     int   the number of dynamites, followed by their cells
+	 *           the free cells (see FreeCells.writeSnapshot), or an int 0
+	 *           if the board is too large to index them
+	 *
+	 * The free cells are written in the order they are sampled from, so that
+	 * a restored game places its objects where the original does. They take
+	 * four bytes per free cell, so a snapshot grows with the board's area, up
+	 * to 4 MB for MAX_INDEXED_CELLS: see ReplayFormat.getKeyframeInterval().
+	 *
+	 * Cells are packed as y * columns + x. Nothing else is written, so
+	 * snapshots can be stored back to back. The turns the player queued are
+	 * not written either: they are input that the next moves have yet to
+	 * take, which replays record with the moves, so a restored game has none.
+	 *
+	 * @param out The buffer to write to, with getSnapshotSize() bytes remaining.
+	 * @throws java.nio.BufferOverflowException if the buffer is too small.
+	 */
+	public void writeSnapshot(ByteBuffer out)
+	{
+		out.putInt(SNAPSHOT_MAGIC);
+		out.putInt(getWidth());
+		out.putInt(getHeight());
+		out.putLong(rand.getState());
+		out.putInt(score);
+
+		snake.writeSnapshot(out);
+
+		out.putInt(fruits.size());
+
+		for(Position p : fruits)
+			out.putInt(toCell(p));
+
+		out.putInt(dynamites.size());
+
+		for(Position p : dynamites)
+			out.putInt(toCell(p));
+
+		if(free_cells != null)
+			free_cells.writeSnapshot(out);
+		else
+			out.putInt(0);
+	}
+
+	/**
+	 * Restores a game from a snapshot written by writeSnapshot(). The values
+	 * are read straight from the buffer, which may be direct or memory-mapped.
+	 *
+	 * @param in The buffer to read from, positioned at the snapshot. Its
+	 * position is moved past the snapshot.
+	 * @return The restored game.
+	 * @throws IllegalArgumentException if the buffer does not hold a snapshot.
+	 */
+	public static GameState readSnapshot(ByteBuffer in)
+	{
+		return readSnapshot(in, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Restores a game from a snapshot written by writeSnapshot(), keeping its
+	 * board in the given storage.
+	 *
+	 * @param in The buffer to read from, positioned at the snapshot. Its
+	 * position is moved past the snapshot.
+	 * @param storage Where to keep the board, the snake and the free cells.
+	 * @return The restored game.
+	 * @throws IllegalArgumentException if the buffer does not hold a snapshot.
+	 */
+	public static GameState readSnapshot(ByteBuffer in, BoardStorage storage)
+	{
+		return readSnapshot(in, GameConfig.DEFAULT, storage);
+	}
+
+	/**
+	 * Restores a game played with the given rules from a snapshot written by
+	 * writeSnapshot(), keeping its board in the given storage. The snapshot
+	 * holds the board's dimensions, but not the rules.
+	 *
+	 * @param in The buffer to read from, positioned at the snapshot. Its
+	 * position is moved past the snapshot.
+	 * @param rules The rules the game was played with.
+	 * @param storage Where to keep the board, the snake and the free cells.
+	 * @return The restored game.
+	 * @throws IllegalArgumentException if the buffer does not hold a snapshot.
+	 */
+	public static GameState readSnapshot(ByteBuffer in, GameConfig rules, BoardStorage storage)
+	{
+		if(in.getInt() != SNAPSHOT_MAGIC)
+			throw new IllegalArgumentException("Not a game snapshot");
+
+		int width  = in.getInt();
+		int height = in.getInt();
+
+		GameRandom rand = new GameRandom(in.getLong());
+
+		int score = in.getInt();
+
+		Snake snake = Snake.readSnapshot(in, width, height, storage);
+
+		GameState state = new GameState(rules.withBoardSize(width, height), rand, snake, storage);
+
+		state.score = score;
+
+		state.readObjects(in, FRUIT, state.fruits);
+		state.readObjects(in, DYNAMITE, state.dynamites);
+
+		if(state.free_cells != null)
+			state.free_cells.readSnapshot(in);
+		else
+			in.getInt();
+
+		return state;
+	}
+
+	/**
+	 * Reads a count and that many cells from a snapshot, and places an object
+	 * of the given kind on each cell.
+	 */
+	private void readObjects(ByteBuffer in, byte object, Set<Position> positions)
+	{
+		int count = in.getInt();
+
+		for(int i = 0; i < count; i++)
+		{
+			int cell = in.getInt();
+
+			objects.set(cell, object);
+			positions.add(Position.of(cell % columns, cell / columns));
+
+			if(object == FRUIT)
+				fruit_cells.add(cell);
+		}
+	}
+}
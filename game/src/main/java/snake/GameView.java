@@ -0,0 +1,1171 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.JMException;
+
+import com.googlecode.lanterna.input.Key;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.Terminal.Color;
+import com.googlecode.lanterna.terminal.swing.SwingTerminal;
+
+/**
+ *
+ * This class represents the game view, which depends on the GameState. It
+ * holds menu interaction and some game play behavior.
+ *
+ * This class relies on a Lanterna's SwingTerminal and on a Screen object to
+ * write to.
+ *
+ * The board may be larger than the terminal, in which case the terminal shows
+ * a viewport of the board that scrolls to follow the snake's head. Only the
+ * cells inside the viewport are ever drawn.
+ */
+public class GameView
+{
+	/*
+	 * An empty string (or blank space) used to 'clear' other strings.
+	 */
+	final static String EMPTY_STRING = " ";
+
+	/*
+	 * Wall representation.
+	 */
+	final static String BORDER_STRING = "▒";
+
+	/*
+	 * Snake's representation.
+	 */
+	final static String SNAKE_HEAD_STRING = "@";
+	final static String SNAKE_BODY_STRING = "O";
+
+	/*
+	 * Fruit's representation.
+	 */
+	final static String FRUIT_STRING = "$";
+
+	/*
+	 * Obstacle representation.
+	 */
+	final static String DYNAMITE_STRING = "#";
+
+	/*
+	 * Terminal size (does not represent the game play dimensions).
+	 */
+	final static int LARGE_WIDTH  = 80;
+	final static int LARGE_HEIGHT = 23;
+
+	/*
+	 * The maximum number of late moves run back to back before rendering.
+	 * When the game falls further behind, the missed moves are skipped.
+	 */
+	private final static int MAX_CATCH_UP_TICKS = 5;
+
+	/*
+	 * The viewport scrolls when the head comes closer to one of its edges
+	 * than its size divided by this value.
+	 */
+	private final static int VIEWPORT_MARGIN_RATIO = 4;
+
+	/*
+	 * Minimum value for any coordinate (either x or y). This value is 1 because
+	 * there is a border of width 1 around the board.
+	 */
+	final static int X_COORDINATE_OFFSET = 1;
+	final static int Y_COORDINATE_OFFSET = 2;
+
+	/*
+	 * Main menu options' position.
+	 */
+	private final static int OPTION_SPEED_1 = 32;
+	private final static int OPTION_SPEED_2 = 34;
+	private final static int OPTION_SPEED_3 = 36;
+	private final static int OPTION_SPEED_4 = 38;
+	private final static int OPTION_SPEED_5 = 40;
+	private final static int QUIT_GAME      = 17;
+
+	/*
+	 * Game over menu options' position.
+	 */
+	private final static int START_GAME   = 1;
+	private final static int RESTART_GAME = 15;
+	private final static int MAIN_MENU    = 16;
+
+	/*
+	 * Lanterna's terminal.
+	 */
+	private static SwingTerminal terminal;
+
+	/*
+	 * Reads the keyboard on its own thread.
+	 */
+	private static InputReader input;
+
+	/*
+	 * A layer to put on the top of the Terminal object, which is a kind of a
+	 * screen buffer.
+	 */
+	private static Screen screen;
+
+	/*
+	 * The game rules, and the state of the current game which contains the
+	 * game model.
+	 */
+	private SnakeEngine engine;
+	private GameState state;
+
+	/*
+	 * The directory where every game is recorded, or null not to record them,
+	 * and the replay of the game being played.
+	 */
+	private final Path replay_directory;
+	private ReplayWriter replay;
+
+	/*
+	 * Where every game is streamed to, or null not to stream them.
+	 */
+	private final SpectatorServer spectators;
+
+	/*
+	 * The board's dimensions, the speeds, the spawn period and the rules.
+	 */
+	private final GameConfig config;
+
+	/*
+	 * Both hold the game play dimensions.
+	 */
+	private final int gameplay_height;
+	private final int gameplay_width;
+
+	/*
+	 * The size of the viewport, which is the terminal without the score line,
+	 * and the board coordinates of its top left corner.
+	 */
+	private final int viewport_width;
+	private final int viewport_height;
+	private int viewport_x;
+	private int viewport_y;
+
+	/*
+	 * Cells changed since the last frame, which are the only ones redrawn.
+	 */
+	private final ArrayList<Position> dirty_cells;
+
+	/*
+	 * The selected speed by the user, as the time in milliseconds between two
+	 * moves of the snake. The higher, the slower.
+	 */
+	private int selected_speed;
+
+	/*
+	 * Where the time of the game loop goes, and the number of cells drawn
+	 * since the last frame.
+	 */
+	private final TickMetrics metrics;
+	private int cell_writes;
+
+	/*
+	 * The bot that plays in place of the user, when enabled with the 'a' key.
+	 */
+	private final Autopilot autopilot;
+	private boolean autopilot_enabled;
+
+	/**
+	 * Instantiates a new GameView object.
+	 *
+	 * @param width the terminal width.
+	 * @param height the terminal height.
+	 * @param config the board's dimensions, the speeds, the spawn period and the rules.
+	 * @param replay_directory where to record the games, or null.
+	 * @param spectators where to stream the games, or null.
+	 * @param metrics where to record the time of the game loop.
+	 */
+	private GameView(int width, int height, GameConfig config, Path replay_directory,
+	                 SpectatorServer spectators, TickMetrics metrics)
+	{
+		this.replay_directory = replay_directory;
+		this.spectators       = spectators;
+		this.metrics          = metrics;
+
+		// Create a new terminal. See https://code.google.com/p/lanterna/wiki/UsingTerminal
+		// for reference.
+		terminal = new SwingTerminal(width, height);
+
+		this.config = config;
+
+		gameplay_width  = config.getWidth();
+		gameplay_height = config.getHeight();
+
+		viewport_width  = width;
+		viewport_height = height - 1;
+
+		dirty_cells = new ArrayList<Position>();
+
+		autopilot = new Autopilot();
+
+		screen = new Screen(terminal);
+		screen.setCursorPosition(null);		// Hack to hide cursor.
+		screen.startScreen();				// terminal enters in private mode,
+											// clears the screen, and refreshes.
+
+		input = new InputReader(terminal);
+		input.start();
+	}
+
+	/**
+	 * Runs the game until the player quits. Each phase returns the one to go
+	 * to next, so moving from one game to the next never grows the stack.
+	 */
+	private void run()
+	{
+		GamePhase phase = GamePhase.MAIN_MENU;
+
+		while(phase != GamePhase.QUIT)
+		{
+			switch(phase)
+			{
+				case MAIN_MENU:
+					phase = openMainMenu();
+					break;
+
+				case PLAYING:
+					phase = startGame();
+					break;
+
+				case GAME_OVER:
+					phase = openGameOverMenu();
+					break;
+
+				default:
+					throw new IllegalStateException("No such phase");
+			}
+		}
+
+		exitGame();
+	}
+
+	/**
+	 * Creates the main menu and takes action on the selected option. It is
+	 * possible to select the game speed, start the game and to exit.
+	 *
+	 * @return The phase to go to next.
+	 */
+	private GamePhase openMainMenu()
+	{
+		selected_speed = config.getSpeed(1);
+
+		renderMainMenu();
+
+		// Make changes visible.
+		refreshScreen();
+
+		int selected_option = handleMainMenu();
+
+		if(selected_option == START_GAME)
+		{
+			clearScreen();
+
+			newGame();
+
+			return GamePhase.PLAYING;
+		}
+
+		return GamePhase.QUIT;
+	}
+
+	/**
+	 * Returns the selected option on main menu and creates a navigate animation.
+	 *
+	 * @return The selected option.
+	 */
+	private int handleMainMenu()
+	{
+		Key k;
+
+		while(true)
+		{
+			k = waitKeyInput();
+
+			if(k != null)
+			{
+				switch(k.getCharacter())
+				{
+					case '1':
+						selected_speed = config.getSpeed(1);
+						highlighMainMenuSelectedOption(OPTION_SPEED_1);
+						break;
+
+					case '2':
+						selected_speed = config.getSpeed(2);
+						highlighMainMenuSelectedOption(OPTION_SPEED_2);
+						break;
+
+					case '3':
+						selected_speed = config.getSpeed(3);
+						highlighMainMenuSelectedOption(OPTION_SPEED_3);
+						break;
+
+					case '4':
+						selected_speed = config.getSpeed(4);
+						highlighMainMenuSelectedOption(OPTION_SPEED_4);
+						break;
+
+					case '5':
+						selected_speed = config.getSpeed(5);
+						highlighMainMenuSelectedOption(OPTION_SPEED_5);
+						break;
+
+					case 's':
+						return START_GAME;
+
+					case 'q':
+						return QUIT_GAME;
+
+					default:
+						break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a menu navigation effect by highlighting the selected option.
+	 *
+	 * @param selected The option to highlight.
+	 */
+	private void highlighMainMenuSelectedOption(int selected)
+	{
+		int y = 15;
+
+		drawString(OPTION_SPEED_1, y, "1", Color.BLUE);
+		drawString(OPTION_SPEED_2, y, "2", Color.BLUE);
+		drawString(OPTION_SPEED_3, y, "3", Color.BLUE);
+		drawString(OPTION_SPEED_4, y, "4", Color.BLUE);
+		drawString(OPTION_SPEED_5, y, "5", Color.BLUE);
+
+		if(selected == OPTION_SPEED_1)
+		{
+			drawString(OPTION_SPEED_1, y, "1", Color.WHITE);
+		}
+		else if(selected == OPTION_SPEED_2)
+		{
+			drawString(OPTION_SPEED_2, y, "2", Color.WHITE);
+		}
+		else if(selected == OPTION_SPEED_3)
+		{
+			drawString(OPTION_SPEED_3, y, "3", Color.WHITE);
+		}
+		else if(selected == OPTION_SPEED_4)
+		{
+			drawString(OPTION_SPEED_4, y, "4", Color.WHITE);
+		}
+		else if(selected == OPTION_SPEED_5)
+		{
+			drawString(OPTION_SPEED_5, y, "5", Color.WHITE);
+		}
+
+		// Make changes visible.
+		refreshScreen();
+	}
+
+	/**
+	 * Creates the game over menu and takes action on the selected option. When
+	 * the game ends, it's possible to restart it, go back to main menu or quit.
+	 *
+	 * @return The phase to go to next.
+	 */
+	private GamePhase openGameOverMenu()
+	{
+		// Clear all fruits and obstacles from the screen.
+		clearGameObjects();
+
+		renderGameOverMenu();
+
+		// Make changes visible.
+		refreshScreen();
+
+		int selected_option = handleGameOverMenu();
+
+		if(selected_option == RESTART_GAME)
+		{
+			clearScreen();
+
+			newGame();
+
+			return GamePhase.PLAYING;
+		}
+		else if(selected_option == MAIN_MENU)
+		{
+			clearScreen();
+
+			return GamePhase.MAIN_MENU;
+		}
+
+		return GamePhase.QUIT;
+	}
+
+	/**
+	 * Returns the selected option on game over menu and creates a navigate animation.
+	 *
+	 * @return The selected option.
+	 */
+	private int handleGameOverMenu()
+	{
+		int selected  = RESTART_GAME;
+
+		Key k;
+
+		while(true)
+		{
+			k = waitKeyInput();
+
+			if(k != null)
+			{
+				switch(k.getKind())
+				{
+					case ArrowDown:
+						if(selected < QUIT_GAME)
+							selected++;
+
+						break;
+
+					case ArrowUp:
+						if(selected > RESTART_GAME)
+							selected--;
+
+						break;
+
+					case Enter:
+						return selected;
+
+					default:
+						break;
+				}
+
+				highlighGameOverMenuSelectedOption(selected);
+			}
+		}
+	}
+
+	/**
+	 * Creates a menu navigation effect by highlighting the selected option.
+	 *
+	 * @param selected The option to highlight.
+	 */
+	private void highlighGameOverMenuSelectedOption(int selected)
+	{
+		drawString(28, RESTART_GAME, "Restart", Color.BLUE);
+		drawString(28, MAIN_MENU, "Back to main menu", Color.BLUE);
+		drawString(28, QUIT_GAME, "Quit", Color.BLUE);
+
+		if(selected == RESTART_GAME)
+		{
+			drawString(28, RESTART_GAME, "Restart", Color.WHITE);
+		}
+		else if(selected == MAIN_MENU)
+		{
+			drawString(28, MAIN_MENU, "Back to main menu", Color.WHITE);
+		}
+		else if(selected == QUIT_GAME)
+		{
+			drawString(28, QUIT_GAME, "Quit", Color.WHITE);
+		}
+
+		// Make changes visible.
+		refreshScreen();
+	}
+
+	/**
+	 * Sets up the engine and the state for a new game. The engine is reused
+	 * from one game to the next.
+	 */
+	private void newGame()
+	{
+		if(engine == null)
+		{
+			engine = new SnakeEngine(config);
+			engine.setMetrics(metrics);
+		}
+		else
+		{
+			engine.reset();
+		}
+
+		state = engine.getState();
+	}
+
+	/**
+	 * Start a new game, and play it until the snake dies.
+	 *
+	 * @return The phase to go to next.
+	 */
+	private GamePhase startGame()
+	{
+		// The snake moves on a fixed time step, and new objects are generated
+		// at a fixed time rate. Both are scheduled against System.nanoTime(),
+		// so they don't drift with the time spent updating and rendering.
+		long tick_period  = TimeUnit.MILLISECONDS.toNanos(selected_speed);
+		long spawn_period = TimeUnit.MILLISECONDS.toNanos(config.getSpawnPeriod());
+
+		long now        = System.nanoTime();
+		long next_tick  = now;
+		long next_spawn = now;
+
+		dirty_cells.clear();
+		cell_writes = 0;
+
+		viewport_x = 0;
+		viewport_y = 0;
+
+		followHead();
+		drawViewport();
+
+		drawString(4, viewport_height, "SCORE: ", Color.CYAN);
+		drawScore(); // initial score.
+
+		startRecording();
+
+		if(spectators != null)
+			spectators.startGame(state);
+
+		// Game play execution: this updates and renders the game, and it will
+		// run while the snake is alive.
+		while(state.isSnakeAlive())
+		{
+			now = System.nanoTime();
+
+			// Generate a random fruit and dynamite at a specific time rate, as
+			// many times between two moves as the replay can record.
+			if(now - next_spawn >= 0 && engine.canSpawn())
+			{
+				long time = System.nanoTime();
+
+				generateNewFruit();
+				generateNewDynamite();
+
+				metrics.record(TickPhase.SPAWN, time);
+
+				next_spawn += spawn_period;
+
+				if(now - next_spawn >= 0)
+					next_spawn = now + spawn_period;
+			}
+
+			// Run every move that is due, catching up if the previous frame
+			// took too long.
+			int ticks = 0;
+
+			while(state.isSnakeAlive() && now - next_tick >= 0 && ticks < MAX_CATCH_UP_TICKS)
+			{
+				long time = System.nanoTime();
+
+				metrics.startTick(time - next_tick);
+
+				readKeyboard();
+				metrics.record(TickPhase.INPUT, time);
+
+				updateGame();
+				metrics.endTick();
+
+				next_tick += tick_period;
+				ticks++;
+			}
+
+			// Too far behind: skip the missed moves rather than rushing them.
+			if(now - next_tick >= 0)
+				next_tick = now + tick_period;
+
+			// Make changes visible.
+			long time = System.nanoTime();
+
+			drawDirtyCells();
+			time = metrics.record(TickPhase.RENDER, time);
+
+			refreshScreen();
+			metrics.record(TickPhase.REFRESH, time);
+
+			metrics.recordCellWrites(cell_writes);
+			cell_writes = 0;
+
+			if(!state.isSnakeAlive())
+				break;
+
+			// Sleep until the next move or the next object is due.
+			long wake_up = (next_tick - next_spawn < 0 || !engine.canSpawn()) ? next_tick : next_spawn;
+
+			LockSupport.parkNanos(wake_up - System.nanoTime());
+		}
+
+		stopRecording();
+
+		return GamePhase.GAME_OVER;
+	}
+
+	/**
+	 * Starts recording the current game, if a replay directory was given.
+	 * The replay is named after the game's seed.
+	 */
+	private void startRecording()
+	{
+		if(replay_directory == null)
+			return;
+
+		String name = String.format("snake-%016x.replay", engine.getSeed());
+
+		try
+		{
+			replay = new ReplayWriter(replay_directory.resolve(name), config, engine.getSeed());
+			engine.setRecorder(replay);
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops recording the current game and closes its replay.
+	 */
+	private void stopRecording()
+	{
+		if(replay == null)
+			return;
+
+		engine.setRecorder(null);
+
+		try
+		{
+			replay.close();
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+
+		replay = null;
+	}
+
+	/**
+	 * Updates the game. Let the engine move the snake, mark the cells it
+	 * changed to be redrawn, and then check if it has eaten a fruit or has
+	 * collided. The later will cause a game over.
+	 */
+	private void updateGame()
+	{
+		TickEvents events = engine.step(autopilot_enabled ? autopilot.decide(state) : null);
+
+		if(spectators != null)
+			spectators.publishMove(state, events);
+
+		// Only the previous tail, the previous head and the new head change,
+		// so the rest of the body is not redrawn.
+		markDirty(events.getTail());
+		markDirty(events.getPreviousHead());
+		markDirty(events.getHead());
+
+		// Scrolling changes every visible cell.
+		if(followHead())
+			drawViewport();
+
+		if(events.hasDied())
+		{
+			Position head = events.getHead();
+
+			// Mark the collision spot. The game play loop ends, since the
+			// engine has killed the snake.
+			drawDirtyCells();
+			highlightCrashPosition(head.getX(), head.getY());
+		}
+		else if(events.hasScoreChanged())
+		{
+			drawScore();
+
+			if(events.getSpawnedFruit() != null)
+				markDirty(events.getSpawnedFruit());
+		}
+	}
+
+	/**
+	 * Reads all the pending input from the keyboard in order to queue the
+	 * snake's next directions. The 'a' key switches the autopilot on and off,
+	 * and any arrow key takes the control back from it.
+	 */
+	private void readKeyboard()
+	{
+		Key k;
+
+		while((k = readKeyInput()) != null)
+		{
+			switch(k.getKind())
+			{
+				case ArrowUp:
+					autopilot_enabled = false;
+					state.queueDirection(Direction.UP);
+					break;
+
+				case ArrowDown:
+					autopilot_enabled = false;
+					state.queueDirection(Direction.DOWN);
+					break;
+
+				case ArrowLeft:
+					autopilot_enabled = false;
+					state.queueDirection(Direction.LEFT);
+					break;
+
+				case ArrowRight:
+					autopilot_enabled = false;
+					state.queueDirection(Direction.RIGHT);
+					break;
+
+				case NormalKey:
+
+					if(k.getCharacter() == 'a')
+						autopilot_enabled = !autopilot_enabled;
+
+					break;
+
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Scrolls the viewport if the snake's head is too close to one of its
+	 * edges, so that the head is centred again.
+	 *
+	 * @return true if the viewport has moved.
+	 */
+	private boolean followHead()
+	{
+		Position head = state.getSnakeHead();
+
+		int x = scroll(viewport_x, head.getX(), viewport_width, gameplay_width + 1);
+		int y = scroll(viewport_y, head.getY(), viewport_height, gameplay_height + 1);
+
+		if(x == viewport_x && y == viewport_y)
+			return false;
+
+		viewport_x = x;
+		viewport_y = y;
+
+		return true;
+	}
+
+	/**
+	 * Computes where the viewport starts along one axis.
+	 *
+	 * @param start the current start of the viewport.
+	 * @param head the head's coordinate.
+	 * @param size the size of the viewport.
+	 * @param board_size the size of the board, walls included.
+	 * @return the current start if the head is far enough from both edges,
+	 * or else the start that centres the head without going past the board.
+	 */
+	static int scroll(int start, int head, int size, int board_size)
+	{
+		int margin = size / VIEWPORT_MARGIN_RATIO;
+
+		if(head - start >= margin && start + size - 1 - head >= margin)
+			return start;
+
+		int centred = head - size / 2;
+
+		return Math.max(0, Math.min(centred, board_size - size));
+	}
+
+	/**
+	 * Draws every cell of the viewport: walls, snake and objects.
+	 */
+	private void drawViewport()
+	{
+		for(int y = 0; y < viewport_height; y++)
+		{
+			for(int x = 0; x < viewport_width; x++)
+			{
+				int board_x = viewport_x + x;
+				int board_y = viewport_y + y;
+
+				// The board may be smaller than the terminal.
+				if(board_x > gameplay_width || board_y > gameplay_height)
+					clearStringAt(x, y);
+				else
+					drawCell(Position.of(board_x, board_y));
+			}
+		}
+	}
+
+	/**
+	 * Draw a string on the screen at a given position of coordinates (x, y), and
+	 * with a specified foreground color.
+	 *
+	 * @param x			the x coordinate.
+	 * @param y			the y coordinate.
+	 * @param string	the string do draw.
+	 * @param fg_color	the foreground color to paint the string.
+	 */
+	private void drawString(int x, int y, String string, Terminal.Color fg_color)
+	{
+		screen.putString(x, y, string, fg_color, null);
+	}
+
+	/**
+	 * Erases the string at a given position (x, y).
+	 *
+	 * @param x the x coordinate.
+	 * @param y the y coordinate.
+	 */
+	private void clearStringAt(int x, int y)
+	{
+		drawString(x, y, EMPTY_STRING, null);
+	}
+
+	/**
+	 * Marks a cell to be redrawn on the next frame.
+	 *
+	 * @param p the position of the cell.
+	 */
+	private void markDirty(Position p)
+	{
+		dirty_cells.add(p);
+	}
+
+	/**
+	 * Redraws the cells changed since the last frame, from what the game
+	 * state holds on each of them.
+	 */
+	private void drawDirtyCells()
+	{
+		for(int i = 0; i < dirty_cells.size(); i++)
+		{
+			drawCell(dirty_cells.get(i));
+		}
+
+		dirty_cells.clear();
+	}
+
+	/**
+	 * Draws whatever lies on the given cell: the snake, a fruit, a dynamite,
+	 * the wall, or nothing. Cells outside the viewport are not drawn.
+	 *
+	 * @param p the position of the cell.
+	 */
+	private void drawCell(Position p)
+	{
+		int x = p.getX() - viewport_x;
+		int y = p.getY() - viewport_y;
+
+		if(x < 0 || x >= viewport_width || y < 0 || y >= viewport_height)
+			return;
+
+		cell_writes++;
+
+		if(p.equals(state.getSnakeHead()))
+			drawString(x, y, SNAKE_HEAD_STRING, Color.GREEN);
+		else if(state.isSnakeBody(p))
+			drawString(x, y, SNAKE_BODY_STRING, Color.GREEN);
+		else if(state.isFruit(p))
+			drawString(x, y, FRUIT_STRING, Color.RED);
+		else if(state.isDynamite(p))
+			drawString(x, y, DYNAMITE_STRING, Color.YELLOW);
+		else if(engine.isWall(p))
+			drawString(x, y, BORDER_STRING, null);
+		else
+			clearStringAt(x, y);
+	}
+
+	/**
+	 * Draws the current score on the screen.
+	 *
+	 * @param s the score to draw.
+	 */
+	private void drawScore()
+	{
+		int s = state.getScore();
+		drawString(10, viewport_height, Integer.toString(s), null);
+	}
+
+	/**
+	 * Clears the string representation of all fruits and obstacles.
+	 */
+	private void clearGameObjects()
+	{
+		for(Position p : state.getFruits())
+		{
+			clearCell(p);
+		}
+
+		for(Position p : state.getDynamites())
+		{
+			clearCell(p);
+		}
+	}
+
+	/**
+	 * Erases the given cell, if it is inside the viewport.
+	 *
+	 * @param p the position of the cell.
+	 */
+	private void clearCell(Position p)
+	{
+		int x = p.getX() - viewport_x;
+		int y = p.getY() - viewport_y;
+
+		if(x >= 0 && x < viewport_width && y >= 0 && y < viewport_height)
+			clearStringAt(x, y);
+	}
+
+	/**
+	 * Generates and draws a new fruit.
+	 */
+	private void generateNewFruit()
+	{
+		Position p = engine.spawnFruit();
+
+		// Nothing is generated when the board is full.
+		if(p != null)
+		{
+			markDirty(p);
+
+			if(spectators != null)
+				spectators.publishSpawn(state, p, Arena.FRUIT);
+		}
+	}
+
+	/**
+	 * Generates and draws a new obstacle.
+	 */
+	private void generateNewDynamite()
+	{
+		Position p = engine.spawnDynamite();
+
+		// Nothing is generated when the board is full.
+		if(p != null)
+		{
+			markDirty(p);
+
+			if(spectators != null)
+				spectators.publishSpawn(state, p, Arena.DYNAMITE);
+		}
+	}
+
+	/**
+	 * Highlights the position where the collision happened, which the
+	 * viewport is following.
+	 *
+	 * @param x the x coordinate on the board.
+	 * @param y the y coordinate on the board.
+	 */
+	private void highlightCrashPosition(int x, int y)
+	{
+		drawString(x - viewport_x, y - viewport_y, "X", Color.RED);
+	}
+
+	/**
+	 * Draws the main menu.
+	 */
+	private void renderMainMenu()
+	{
+		int x = 10;
+		int y = 2;
+
+		drawString(x, y, "########   #######  ###   ###########   ###    ##    #######", Color.CYAN);
+		drawString(x,++y,"##         ###  ##  ###   ###     ###   ###   ##     ###    ", Color.CYAN);
+		drawString(x,++y,"##         ###  ##  ###   ###     ###   ###  ##      ###    ", Color.CYAN);
+		drawString(x,++y,"##         ###  ##  ###   ###########   #######      #######", Color.CYAN);
+		drawString(x,++y,"########   ###  ##  ###   ###     ###   ###  ##      ###    ", Color.CYAN);
+		drawString(x,++y,"      ##   ###  ##  ###   ###     ###   ###   ##     ###    ", Color.CYAN);
+		drawString(x,++y,"      ##   ###  ######    ###     ###   ###    ##    ###    ", Color.CYAN);
+		drawString(x,++y,"########   ###  ######    ###     ###   ###     ##   #######", Color.CYAN);
+
+		y += 2;	// 2 blank lines
+		x = 25;
+
+		drawString(x, y,   "###########################", Color.BLUE);
+		drawString(x, ++y, "Press 'S' to start and", Color.BLUE);
+		drawString(x, ++y, "'Q' to quit the game.", Color.BLUE);
+
+		y++;	// blank line
+
+		drawString(x, ++y,  "Speed:", Color.BLUE);
+		drawString(OPTION_SPEED_1, y,  "1", Color.WHITE);
+		drawString(OPTION_SPEED_2, y,  "2", Color.BLUE);
+		drawString(OPTION_SPEED_3, y, "3", Color.BLUE);
+		drawString(OPTION_SPEED_4, y, "4", Color.BLUE);
+		drawString(OPTION_SPEED_5, y, "5", Color.BLUE);
+		drawString(x, ++y, "###########################", Color.BLUE);
+	}
+
+	/**
+	 * Draws a game over message.
+	 */
+	private void renderGameOverMenu()
+	{
+		int x = 20;
+		int y = 2;
+
+		drawString(x, y,  "#####    #######  ##### #####  ######", Color.CYAN);
+		drawString(x, ++y,"##       ##   ##  ## ## ## ##  ##    ", Color.CYAN);
+		drawString(x, ++y,"## ####  #######  ## ##### ##  ######", Color.CYAN);
+		drawString(x, ++y,"##   ##  ##   ##  ##  ###  ##  ##    ", Color.CYAN);
+		drawString(x, ++y,"#######  ##   ##  ##       ##  ######", Color.CYAN);
+
+		y++;	// blank line
+
+		drawString(x, ++y,"########  ###  ###  ######  ######### ", Color.CYAN);
+		drawString(x, ++y,"##    ##  ###  ###  ###     ###  ###  ", Color.CYAN);
+		drawString(x, ++y,"##    ##   ######   ######  ########  ", Color.CYAN);
+		drawString(x, ++y,"##    ##    ####    ###     ###   ### ", Color.CYAN);
+		drawString(x, ++y,"########     ##     ######  ###     ##", Color.CYAN);
+
+		y++;	// blank line
+		x = 28;
+
+		drawString(x, ++y, "####################", Color.BLUE);
+		drawString(x, ++y, "Restart", Color.WHITE);
+		drawString(x, ++y, "Back to main menu", Color.BLUE);
+		drawString(x, ++y, "Quit", Color.BLUE);
+		drawString(x, ++y, "####################", Color.BLUE);
+	}
+
+	/**
+	 * @return Next Key off the input queue or null if there is none.
+	 */
+	private Key readKeyInput()
+	{
+		return input.poll();
+	}
+
+	/**
+	 * Waits for a key to be pressed.
+	 *
+	 * @return Next Key off the input queue or null if interrupted.
+	 */
+	private Key waitKeyInput()
+	{
+		try
+		{
+			return input.take();
+		}
+		catch (InterruptedException ie)
+		{
+			ie.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Make the changes visible on the terminal.
+	 */
+	private void refreshScreen()
+	{
+		screen.refresh();
+	}
+
+	/**
+	 * Erases all the characters on the screen, giving a blank area.
+	 */
+	private void clearScreen()
+	{
+		screen.clear();
+	}
+
+	/**
+	 * Exits the previously entered private mode.
+	 */
+	private void exitGame()
+	{
+		input.stop();
+		terminal.exitPrivateMode();
+	}
+
+	/**
+	 * Starts the game. If a directory is given as an argument, every game is
+	 * recorded there and can be played back with ReplayReader.
+	 *
+	 * The board, the speeds, the spawn period and the rules are read by
+	 * GameConfig.load() from the other arguments, the system properties and a
+	 * properties file. The board fits the terminal unless they give the game
+	 * play dimensions, e.g. --width=10000 --height=10000 for a board the
+	 * terminal scrolls over.
+	 *
+	 * The game loop's metrics are published over JMX, and printed every
+	 * snake.metrics.dump seconds if that system property is set.
+	 *
+	 * If the system property snake.spectate.port is set, every game is
+	 * streamed to the SpectatorView instances that connect to that port of the
+	 * loopback address.
+	 *
+	 * @param args the optional replay directory, and GameConfig options.
+	 * @throws IOException if the configuration file can't be read.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		GameConfig config     = GameConfig.load(args);
+		Path replay_directory = null;
+
+		for(String arg : args)
+		{
+			if(!GameConfig.isOption(arg))
+				replay_directory = Paths.get(arg);
+		}
+
+		TickMetrics metrics = new TickMetrics();
+
+		try
+		{
+			metrics.register();
+		}
+		catch (JMException jme)
+		{
+			jme.printStackTrace();
+		}
+
+		long dump_period = Long.getLong("snake.metrics.dump", 0);
+
+		if(dump_period > 0)
+			metrics.startDump(TimeUnit.SECONDS.toMillis(dump_period), System.out);
+
+		SpectatorServer spectators = null;
+		Integer spectate_port      = Integer.getInteger("snake.spectate.port");
+
+		if(spectate_port != null)
+		{
+			try
+			{
+				spectators = new SpectatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				                                                       spectate_port));
+			}
+			catch (IOException ioe)
+			{
+				ioe.printStackTrace();
+			}
+		}
+
+		GameView snake_game = new GameView(LARGE_WIDTH, LARGE_HEIGHT, config, replay_directory,
+		                                   spectators, metrics);
+		snake_game.run();
+
+		if(spectators != null)
+		{
+			try
+			{
+				spectators.close();
+			}
+			catch (IOException ioe)
+			{
+				ioe.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package snake;
+
+/**
+ *
+ * A grid of bytes, one per board cell, all zero at first. It is how the game
+ * keeps what lies on each cell, whichever memory it is stored in.
+ */
+public interface Grid
+{
+	/**
+	 * @param cell the packed cell (y * columns + x)
+	 * @return the value of the given cell
+	 */
+	byte get(int cell);
+
+	/**
+	 * @param cell the packed cell (y * columns + x)
+	 * @param value the new value
+	 */
+	void set(int cell, byte value);
+}
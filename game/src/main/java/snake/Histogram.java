@@ -0,0 +1,167 @@
+package snake;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A histogram of non-negative long values, such as latencies in nanoseconds,
+ * in the spirit of HdrHistogram: values are counted in buckets whose width
+ * grows with their magnitude, so every value is kept within about 3% of its
+ * true value, from 1 up to 2^62, in a fixed amount of memory.
+ *
+ * Recording a value is a few arithmetic operations and an array increment,
+ * and allocates nothing. It is meant to be written by a single thread, the
+ * game loop, and read by others; readers may see a value half recorded, which
+ * is good enough for statistics.
+ */
+public class Histogram
+{
+	/*
+	 * Values are kept with SUB_BUCKET_BITS significant bits, the first of
+	 * which is always 1, so each power of two is split in SUB_BUCKET_COUNT / 2
+	 * buckets.
+	 */
+	private final static int SUB_BUCKET_BITS  = 6;
+	private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/*
+	 * The number of buckets: values below SUB_BUCKET_COUNT have one each, and
+	 * then each power of two up to 2^62 has SUB_BUCKET_COUNT / 2 more.
+	 */
+	final static int BUCKET_COUNT = SUB_BUCKET_COUNT
+	                                      + (63 - SUB_BUCKET_BITS) * (SUB_BUCKET_COUNT / 2);
+
+	/*
+	 * The number of values recorded in each bucket.
+	 */
+	private final long[] counts;
+
+	/*
+	 * The number of values recorded, their sum, and the largest one.
+	 */
+	private volatile long count;
+	private long sum;
+	private long max;
+
+	/**
+	 * Instantiate a new, empty histogram.
+	 */
+	public Histogram()
+	{
+		counts = new long[BUCKET_COUNT];
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value the value to record.
+	 */
+	public void record(long value)
+	{
+		if(value < 0)
+			value = 0;
+
+		counts[bucketOf(value)]++;
+		sum += value;
+
+		if(value > max)
+			max = value;
+
+		count++;
+	}
+
+	/**
+	 * Forgets every value recorded.
+	 */
+	public void reset()
+	{
+		Arrays.fill(counts, 0);
+
+		sum   = 0;
+		max   = 0;
+		count = 0;
+	}
+
+	/**
+	 * @return the number of values recorded.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return the mean of the values recorded, or 0 if there is none.
+	 */
+	public double getMean()
+	{
+		long n = count;
+
+		return (n == 0) ? 0 : (double) sum / n;
+	}
+
+	/**
+	 * @return the largest value recorded, or 0 if there is none.
+	 */
+	public long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the value below or at which the given percentage of the values
+	 * recorded lie, rounded up to its bucket's upper bound, or 0 if there is
+	 * none.
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long n = count;
+
+		if(n == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+
+		for(int i = 0; i < BUCKET_COUNT; i++)
+		{
+			seen += counts[i];
+
+			if(seen >= rank)
+				return Math.min(upperBoundOf(i), max);
+		}
+
+		return max;
+	}
+
+	/**
+	 * @return the bucket in which a value is counted.
+	 */
+	static int bucketOf(long value)
+	{
+		if(value < SUB_BUCKET_COUNT)
+			return (int) value;
+
+		// The magnitude of the value, and its next SUB_BUCKET_BITS - 1 bits.
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift     = magnitude - (SUB_BUCKET_BITS - 1);
+		int sub       = (int) (value >>> shift) - SUB_BUCKET_COUNT / 2;
+
+		return SUB_BUCKET_COUNT + (shift - 1) * (SUB_BUCKET_COUNT / 2) + sub;
+	}
+
+	/**
+	 * @return the largest value counted in the given bucket.
+	 */
+	static long upperBoundOf(int bucket)
+	{
+		if(bucket < SUB_BUCKET_COUNT)
+			return bucket;
+
+		int shift = (bucket - SUB_BUCKET_COUNT) / (SUB_BUCKET_COUNT / 2) + 1;
+		int sub   = (bucket - SUB_BUCKET_COUNT) % (SUB_BUCKET_COUNT / 2) + SUB_BUCKET_COUNT / 2;
+
+		return (((long) sub + 1) << shift) - 1;
+	}
+}
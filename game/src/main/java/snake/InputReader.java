@@ -0,0 +1,117 @@
+package snake;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.swing.JFrame;
+
+import com.googlecode.lanterna.input.Key;
+import com.googlecode.lanterna.terminal.swing.SwingTerminal;
+
+/**
+ *
+ * Queues every key pressed on a terminal, in the order it was pressed, so
+ * that the game and the menus never have to poll the terminal themselves.
+ *
+ * Nothing runs while no key is pressed: this listens to the key events of the
+ * terminal's window, after the terminal's own listener has turned them into
+ * Keys, and moves those Keys to the queue on Swing's event thread.
+ */
+public class InputReader extends KeyAdapter
+{
+	/*
+	 * Where keys are read from.
+	 */
+	private final SwingTerminal terminal;
+
+	/*
+	 * Keys pressed but not consumed yet.
+	 */
+	private final BlockingQueue<Key> keys;
+
+	/**
+	 * Instantiates a new InputReader object.
+	 *
+	 * @param terminal where to read the keys from.
+	 */
+	public InputReader(SwingTerminal terminal)
+	{
+		this.terminal = terminal;
+
+		keys = new LinkedBlockingQueue<Key>();
+	}
+
+	/**
+	 * Starts listening to the keyboard.
+	 *
+	 * @throws IllegalStateException if the terminal has no window yet, i.e.
+	 * it is not in private mode.
+	 */
+	public void start()
+	{
+		JFrame frame = terminal.getJFrame();
+
+		if(frame == null)
+			throw new IllegalStateException("The terminal has no window");
+
+		frame.addKeyListener(this);
+
+		// Keys pressed before the listener was added.
+		readKeys();
+	}
+
+	/**
+	 * Stops listening to the keyboard.
+	 */
+	public void stop()
+	{
+		JFrame frame = terminal.getJFrame();
+
+		if(frame != null)
+			frame.removeKeyListener(this);
+	}
+
+	/**
+	 * @return Next Key off the input queue or null if there is none.
+	 */
+	public Key poll()
+	{
+		return keys.poll();
+	}
+
+	/**
+	 * Waits for a key to be pressed.
+	 *
+	 * @return Next Key off the input queue.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public Key take() throws InterruptedException
+	{
+		return keys.take();
+	}
+
+	@Override public void keyPressed(KeyEvent e)
+	{
+		readKeys();
+	}
+
+	@Override public void keyTyped(KeyEvent e)
+	{
+		readKeys();
+	}
+
+	/**
+	 * Moves the keys the terminal has decoded to the queue.
+	 */
+	private void readKeys()
+	{
+		Key k;
+
+		while((k = terminal.readInput()) != null)
+		{
+			keys.add(k);
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * The messages exchanged between a GameServer and its clients.
+ *
+ * Every message from the server starts with its length in bytes (an int, not
+ * counting itself) and its type (a byte). A STATE message holds a whole arena:
+ *
+ *     byte  STATE
+ *     short VERSION
+ *     int   width, height
+ *     int   tick
+ *     byte  the index of the client's snake, or -1 for a spectator
+ *     byte  the number of snakes, each one followed by:
+ *           byte alive, int score, byte direction ordinal, int length, and
+ *           'length' cells from tail to head
+ *     int   the number of fruits, followed by their cells
+ *     int   the number of dynamites, followed by their cells
+ *
+ * It is sent when a client joins and whenever a new round starts. Then, each
+ * move is sent as a TICK message holding what changed:
+ *
+ *     byte  TICK
+ *     int   tick
+ *     byte  the number of snakes that moved, each one followed by:
+ *           byte snake, int new head cell, int cell left by the tail or -1.
+ *           The tail leaves its cell before the head takes its own, which
+ *           may be the same.
+ *     byte  the number of snakes that died, followed by their indexes. They
+ *           are taken off the board as a whole.
+ *     short the number of objects placed, each one followed by:
+ *           byte kind (Arena.FRUIT or Arena.DYNAMITE), int cell
+ *     short the number of objects taken, followed by their cells
+ *     byte  the number of scores that changed, each one followed by:
+ *           byte snake, int score
+ *
+ * Clients send one byte per turn: the Direction's ordinal plus one.
+ *
+ * A single player game is described the same way, as an arena of one snake,
+ * to the spectators of a SpectatorServer. They send nothing.
+ *
+ * Cells are packed as y * (width + 1) + x. Numbers are big-endian, as
+ * written by java.nio.ByteBuffer.
+ */
+public final class NetFormat
+{
+	/*
+	 * The version of the layout described above.
+	 */
+	public final static short VERSION = 1;
+
+	/*
+	 * The types of the messages sent by the server.
+	 */
+	public final static byte STATE = 1;
+	public final static byte TICK  = 2;
+
+	/*
+	 * Directions by their ordinal, to decode them without allocating.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	private NetFormat()
+	{
+	}
+
+	/**
+	 * @param arena the arena to describe.
+	 * @return the size, in bytes, of a STATE message, length included.
+	 */
+	public static int getStateSize(Arena arena)
+	{
+		int size = 4 + 1 + 2 + 4 + 4 + 4 + 1 + 1;
+
+		for(int i = 0; i < arena.getSnakeCount(); i++)
+			size += 1 + 4 + 1 + 4 + 4 * arena.getSnakeLength(i);
+
+		return size + 4 + 4 * arena.getFruits().size()
+		            + 4 + 4 * arena.getDynamites().size();
+	}
+
+	/**
+	 * Writes a STATE message.
+	 *
+	 * @param out the buffer to write to, with getStateSize() bytes remaining.
+	 * @param arena the arena to describe.
+	 * @param tick the number of moves since the round started.
+	 * @param snake the index of the receiver's snake, or -1.
+	 */
+	public static void writeState(ByteBuffer out, Arena arena, int tick, int snake)
+	{
+		out.putInt(getStateSize(arena) - 4);
+		out.put(STATE);
+		out.putShort(VERSION);
+		out.putInt(arena.getWidth());
+		out.putInt(arena.getHeight());
+		out.putInt(tick);
+		out.put((byte) snake);
+		out.put((byte) arena.getSnakeCount());
+
+		for(int i = 0; i < arena.getSnakeCount(); i++)
+		{
+			List<Position> body = arena.getSnakeBody(i);
+
+			out.put((byte) (arena.isSnakeAlive(i) ? 1 : 0));
+			out.putInt(arena.getScore(i));
+			out.put((byte) arena.getSnakeDirection(i).ordinal());
+			out.putInt(body.size());
+
+			for(int j = 0; j < body.size(); j++)
+				out.putInt(arena.toCell(body.get(j)));
+		}
+
+		out.putInt(arena.getFruits().size());
+
+		for(Position p : arena.getFruits())
+			out.putInt(arena.toCell(p));
+
+		out.putInt(arena.getDynamites().size());
+
+		for(Position p : arena.getDynamites())
+			out.putInt(arena.toCell(p));
+	}
+
+	/**
+	 * @param state the game to describe.
+	 * @return the size, in bytes, of a STATE message, length included.
+	 */
+	public static int getStateSize(GameState state)
+	{
+		return 4 + 1 + 2 + 4 + 4 + 4 + 1 + 1
+		     + 1 + 4 + 1 + 4 + 4 * state.getSnakeLength()
+		     + 4 + 4 * state.getFruits().size()
+		     + 4 + 4 * state.getDynamites().size();
+	}
+
+	/**
+	 * Writes a STATE message for a spectator of a single player game, whose
+	 * snake has index 0.
+	 *
+	 * @param out the buffer to write to, with getStateSize() bytes remaining.
+	 * @param state the game to describe.
+	 * @param tick the number of moves since the game started.
+	 */
+	public static void writeState(ByteBuffer out, GameState state, int tick)
+	{
+		int columns = state.getWidth() + 1;
+
+		out.putInt(getStateSize(state) - 4);
+		out.put(STATE);
+		out.putShort(VERSION);
+		out.putInt(state.getWidth());
+		out.putInt(state.getHeight());
+		out.putInt(tick);
+		out.put((byte) -1);
+		out.put((byte) 1);
+
+		List<Position> body = state.getSnakeBody();
+
+		out.put((byte) (state.isSnakeAlive() ? 1 : 0));
+		out.putInt(state.getScore());
+		out.put((byte) state.getSnakeDirection().ordinal());
+		out.putInt(body.size());
+
+		for(int j = 0; j < body.size(); j++)
+			out.putInt(toCell(body.get(j), columns));
+
+		writeCells(out, state.getFruits(), columns);
+		writeCells(out, state.getDynamites(), columns);
+	}
+
+	/**
+	 * @param events what happened during the move.
+	 * @return the size, in bytes, of a TICK message, length included.
+	 */
+	public static int getTickSize(ArenaEvents events)
+	{
+		int size = 4 + 1 + 4 + 1 + 1 + 2 + 2 + 1;
+
+		for(int i = 0; i < events.getSnakeCount(); i++)
+		{
+			if(events.getHead(i) != ArenaEvents.NO_CELL)
+				size += 1 + 4 + 4;
+
+			if(events.hasDied(i))
+				size += 1;
+
+			if(events.hasScoreChanged(i))
+				size += 1 + 4;
+		}
+
+		return size + (1 + 4) * events.getSpawnCount() + 4 * events.getTakeCount();
+	}
+
+	/**
+	 * Writes a TICK message.
+	 *
+	 * @param out the buffer to write to, with getTickSize() bytes remaining.
+	 * @param events what happened during the move.
+	 * @param tick the number of moves since the round started.
+	 */
+	public static void writeTick(ByteBuffer out, ArenaEvents events, int tick)
+	{
+		int snakes = events.getSnakeCount();
+
+		out.putInt(getTickSize(events) - 4);
+		out.put(TICK);
+		out.putInt(tick);
+
+		// The counts are only known once the snakes are listed, so they are
+		// written in their slot afterwards.
+		int count_at = out.position();
+		int count    = 0;
+
+		out.put((byte) 0);
+
+		for(int i = 0; i < snakes; i++)
+		{
+			if(events.getHead(i) == ArenaEvents.NO_CELL)
+				continue;
+
+			out.put((byte) i);
+			out.putInt(events.getHead(i));
+			out.putInt(events.getTail(i));
+			count++;
+		}
+
+		out.put(count_at, (byte) count);
+
+		count_at = out.position();
+		count    = 0;
+
+		out.put((byte) 0);
+
+		for(int i = 0; i < snakes; i++)
+		{
+			if(!events.hasDied(i))
+				continue;
+
+			out.put((byte) i);
+			count++;
+		}
+
+		out.put(count_at, (byte) count);
+
+		out.putShort((short) events.getSpawnCount());
+
+		for(int i = 0; i < events.getSpawnCount(); i++)
+		{
+			out.put((byte) events.getSpawnedObject(i));
+			out.putInt(events.getSpawnedCell(i));
+		}
+
+		out.putShort((short) events.getTakeCount());
+
+		for(int i = 0; i < events.getTakeCount(); i++)
+			out.putInt(events.getTakenCell(i));
+
+		count_at = out.position();
+		count    = 0;
+
+		out.put((byte) 0);
+
+		for(int i = 0; i < snakes; i++)
+		{
+			if(!events.hasScoreChanged(i))
+				continue;
+
+			out.put((byte) i);
+			out.putInt(events.getScore(i));
+			count++;
+		}
+
+		out.put(count_at, (byte) count);
+	}
+
+	/**
+	 * @param dir the direction to turn to.
+	 * @return the byte a client sends to turn.
+	 */
+	public static byte encodeInput(Direction dir)
+	{
+		return (byte) (dir.ordinal() + 1);
+	}
+
+	/**
+	 * @param input a byte sent by a client.
+	 * @return the direction it asks for, or null if it is not a valid one.
+	 */
+	public static Direction decodeInput(int input)
+	{
+		int ordinal = (input & 0xFF) - 1;
+
+		return (ordinal >= 0 && ordinal < DIRECTIONS.length) ? DIRECTIONS[ordinal] : null;
+	}
+
+	/**
+	 * Writes the number of the given positions, followed by their cells.
+	 */
+	private static void writeCells(ByteBuffer out, Set<Position> positions, int columns)
+	{
+		out.putInt(positions.size());
+
+		for(Position p : positions)
+			out.putInt(toCell(p, columns));
+	}
+
+	/**
+	 * @return the cell of the given position, on a board of the given number
+	 * of columns.
+	 */
+	private static int toCell(Position p, int columns)
+	{
+		return p.getY() * columns + p.getX();
+	}
+}
@@ -0,0 +1,143 @@
+package snake;
+
+/**
+ *
+ * An immutable array of ints. Setting a value returns a new array that
+ * shares everything but the path to the changed value with the old one, so
+ * copies are free and each change costs a few small node copies.
+ *
+ * Values are stored in a tree of 32-way nodes: inner nodes are Object[32],
+ * leaves are int[32]. A 100x100 board fits in three levels.
+ */
+public final class PersistentIntArray
+{
+	/*
+	 * Bits of the index consumed by each level of the tree.
+	 */
+	private final static int BITS  = 5;
+	private final static int WIDTH = 1 << BITS;
+	private final static int MASK  = WIDTH - 1;
+
+	/*
+	 * The number of values.
+	 */
+	private final int size;
+
+	/*
+	 * The shift of the index at the root. The root is a leaf if it is 0.
+	 */
+	private final int shift;
+
+	/*
+	 * The root node.
+	 */
+	private final Object root;
+
+	/**
+	 * Instantiates a new array of the given size, filled with zeros. Every
+	 * node of the empty tree is shared, so this costs one node per level.
+	 *
+	 * @param size the number of values.
+	 */
+	public PersistentIntArray(int size)
+	{
+		if(size < 0)
+			throw new IllegalArgumentException("Negative size: " + size);
+
+		int levels_shift = 0;
+
+		while(levels_shift < 30 && (1L << (levels_shift + BITS)) < size)
+			levels_shift += BITS;
+
+		Object node = new int[WIDTH];
+
+		for(int s = BITS; s <= levels_shift; s += BITS)
+		{
+			Object[] inner = new Object[WIDTH];
+
+			for(int i = 0; i < WIDTH; i++)
+				inner[i] = node;
+
+			node = inner;
+		}
+
+		this.size  = size;
+		this.shift = levels_shift;
+		this.root  = node;
+	}
+
+	private PersistentIntArray(int size, int shift, Object root)
+	{
+		this.size  = size;
+		this.shift = shift;
+		this.root  = root;
+	}
+
+	/**
+	 * @return the number of values.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param i the index of the value.
+	 * @return the value at the given index.
+	 */
+	public int get(int i)
+	{
+		checkIndex(i);
+
+		Object node = root;
+
+		for(int s = shift; s > 0; s -= BITS)
+			node = ((Object[]) node)[(i >>> s) & MASK];
+
+		return ((int[]) node)[i & MASK];
+	}
+
+	/**
+	 * @param i the index of the value.
+	 * @param value the new value.
+	 * @return an array with the given value at the given index, and the same
+	 * values as this one elsewhere. This array is left unchanged.
+	 */
+	public PersistentIntArray set(int i, int value)
+	{
+		checkIndex(i);
+
+		if(get(i) == value)
+			return this;
+
+		return new PersistentIntArray(size, shift, set(root, shift, i, value));
+	}
+
+	/**
+	 * @return a copy of the given node, with the value at the given index
+	 * replaced along the path to it.
+	 */
+	private static Object set(Object node, int shift, int i, int value)
+	{
+		if(shift == 0)
+		{
+			int[] leaf = ((int[]) node).clone();
+			leaf[i & MASK] = value;
+
+			return leaf;
+		}
+
+		Object[] inner = ((Object[]) node).clone();
+		int slot       = (i >>> shift) & MASK;
+
+		inner[slot] = set(inner[slot], shift - BITS, i, value);
+
+		return inner;
+	}
+
+	private void checkIndex(int i)
+	{
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("No such index: " + i);
+	}
+}
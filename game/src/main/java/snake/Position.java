@@ -0,0 +1,188 @@
+package snake;
+
+/**
+ *
+ * A generic class to represent an 2D object's position on the grid.
+ *
+ * Positions are immutable and obtained through {@link #of(int, int)}, which
+ * hands out canonical instances from a preallocated table covering the board,
+ * so the game loop does not allocate a new object for every position.
+ */
+public class Position
+{
+	/*
+	 * The largest number of positions kept in the table. Positions beyond it
+	 * are allocated on demand.
+	 */
+	private final static int MAX_CACHED_POSITIONS = 1 << 20;
+
+	/*
+	 * Canonical positions, indexed by [y][x]. The table is replaced as a
+	 * whole when it grows, so readers never see it half built.
+	 */
+	private static volatile Position[][] cache = new Position[0][0];
+
+	/*
+	 * X-Axis coordinate.
+	 */
+	private final int x;
+
+	/*
+	 * Y-Axis coordinate.
+	 */
+	private final int y;
+
+	/**
+	 * Instantiate a new Position object of coordinates (x, y). Both coordinates
+	 * should be grater than zero and not grater than terminal size.
+	 *
+	 * @param x the X-axis coordinate of this object
+	 * @param y the Y-axis coordinate of this object
+	 */
+	private Position(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Returns the position of coordinates (x, y). Positions inside the
+	 * preallocated table are shared, so this does not allocate.
+	 *
+	 * @param x the X-axis coordinate
+	 * @param y the Y-axis coordinate
+	 * @return the position of coordinates (x, y)
+	 * @see #preallocate(int, int)
+	 */
+	public static Position of(int x, int y)
+	{
+		Position[][] table = cache;
+
+		if(y >= 0 && y < table.length && x >= 0 && x < table[y].length)
+			return table[y][x];
+
+		return new Position(x, y);
+	}
+
+	/**
+	 * Makes sure that every position of a board with the given number of
+	 * columns and rows is kept in the table. The table only ever grows, up to
+	 * MAX_CACHED_POSITIONS entries.
+	 *
+	 * @param columns the number of columns of the board
+	 * @param rows the number of rows of the board
+	 */
+	public static void preallocate(int columns, int rows)
+	{
+		Position[][] table = cache;
+
+		// Most games are played on boards that are already covered, so
+		// don't take the lock for them.
+		if(rows <= table.length && (rows == 0 || columns <= table[0].length))
+			return;
+
+		growCache(columns, rows);
+	}
+
+	/**
+	 * Grows the table to cover a board with the given number of columns and
+	 * rows, keeping the positions it already holds.
+	 *
+	 * @param columns the number of columns of the board
+	 * @param rows the number of rows of the board
+	 */
+	private static synchronized void growCache(int columns, int rows)
+	{
+		Position[][] table = cache;
+
+		int cached_rows    = table.length;
+		int cached_columns = (cached_rows > 0) ? table[0].length : 0;
+
+		columns = Math.max(columns, cached_columns);
+		rows    = Math.max(rows, cached_rows);
+
+		if((columns == cached_columns && rows == cached_rows) ||
+		   (long) columns * rows > MAX_CACHED_POSITIONS)
+		{
+			return;
+		}
+
+		Position[][] grown = new Position[rows][columns];
+
+		for(int y = 0; y < rows; y++)
+		{
+			for(int x = 0; x < columns; x++)
+			{
+				// Keep the instances already handed out canonical.
+				if(y < cached_rows && x < cached_columns)
+					grown[y][x] = table[y][x];
+				else
+					grown[y][x] = new Position(x, y);
+			}
+		}
+
+		cache = grown;
+	}
+
+	/**
+	 * @return this X-axis coordinate
+	 */
+	public int getX()
+	{
+		return x;
+	}
+
+	/**
+	 * @return this Y-axis coordinate
+	 */
+	public int getY()
+	{
+		return y;
+	}
+
+	/**
+	 * Takes a value of type Object as parameter and yields a boolean result.
+	 * Canonical positions are compared by identity. Otherwise, the
+	 * implementation of this method uses instanceof and a cast. It first
+	 * tests whether the other object is also of type Position. If it is, it
+	 * compares the coordinates of the two positions and returns the result.
+	 * Otherwise the result is false.
+	 *
+	 * @param other the other object.
+	 * @return true if the coordinates are the same; otherwise returns false.
+	 */
+	@Override public boolean equals(Object other)
+	{
+	    if(this == other)
+	        return true;
+
+	    boolean result = false;
+
+	    if(other instanceof Position)
+	    {
+	        Position that = (Position) other;
+	        result = (getX() == that.getX() && getY() == that.getY());
+	    }
+
+	    return result;
+	}
+
+	/**
+	 * Packs both coordinates into a single int, so positions on any board up
+	 * to 65536 cells wide and high get distinct hash codes.
+	 *
+	 * @return the hash code of this position.
+	 */
+	@Override public int hashCode()
+	{
+		return (x << 16) | (y & 0xFFFF);
+	}
+
+	/**
+	 * @return this position as "(x, y)".
+	 */
+	@Override public String toString()
+	{
+		return "(" + x + ", " + y + ")";
+	}
+}
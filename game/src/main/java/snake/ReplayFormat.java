@@ -0,0 +1,157 @@
+package snake;
+
+/**
+ *
+ * The layout of a replay file. A replay starts with a header:
+ *
+ *     int   MAGIC
+ *     short VERSION
+ *     int   width
+ *     int   height
+ *     long  seed
+ *     int   the keyframe interval, i.e. the number of moves between two
+ *           keyframes, or 0 if there are none
+ *     int   the snake's initial length
+ *     int   the row the snake starts on when the board is tall enough
+ *     int   the points a dynamite costs
+ *
+ * followed by one short per move, until the end of the file. The lower three
+ * bits of that short hold the snake's direction during the move (0 if unknown,
+ * or the Direction's ordinal plus one), the next six bits the number of fruits
+ * and the six after them the number of dynamites generated on the view's timer
+ * right before it. They are generated again in pairs, a fruit then a dynamite,
+ * followed by those left over.
+ *
+ * Every 'keyframe interval' moves, the moves are followed by a keyframe: an
+ * int size, and a snapshot of the game after those moves of that many bytes,
+ * as written by GameState.writeSnapshot(). As moves all take two bytes, the
+ * keyframes' offsets are all it takes to find any move, and any tick is
+ * reached by replaying at most 'keyframe interval' moves from the keyframe
+ * before it. The file is only ever appended to.
+ *
+ * Numbers are big-endian, as written by java.nio.ByteBuffer.
+ */
+public final class ReplayFormat
+{
+	/*
+	 * "SNKR", the first bytes of every replay.
+	 */
+	public final static int MAGIC = 0x534E4B52;
+
+	/*
+	 * The version of the layout described above.
+	 */
+	public final static short VERSION = 1;
+
+	/*
+	 * The size of the header, in bytes.
+	 */
+	public final static int HEADER_SIZE = 4 + 2 + 4 + 4 + 8 + 4 + 4 + 4 + 4;
+
+	/*
+	 * The size of a move's record, in bytes.
+	 */
+	public final static int RECORD_SIZE = 2;
+
+	/*
+	 * The largest number of fruits, and of dynamites, generated before a
+	 * move that its record holds.
+	 */
+	public final static int MAX_SPAWNS = 63;
+
+	/*
+	 * The least number of moves between two keyframes when none is given: a
+	 * keyframe of a regular board takes a few kilobytes, about as many as the
+	 * moves before it, and replaying that many moves takes about a
+	 * millisecond.
+	 */
+	public final static int DEFAULT_KEYFRAME_INTERVAL = 1024;
+
+	/*
+	 * The bits of a move's record.
+	 */
+	private final static int DIRECTION_MASK  = 0x07;
+	private final static int FRUITS_SHIFT    = 3;
+	private final static int DYNAMITES_SHIFT = 9;
+
+	/*
+	 * Directions by their ordinal, to decode them without allocating.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	private ReplayFormat()
+	{
+	}
+
+	/**
+	 * Returns the number of moves between two keyframes when none is given,
+	 * for the given board. A keyframe holds the board's free cells, four
+	 * bytes each, so the interval grows with the board's area to keep the
+	 * keyframes to about twice the size of the moves before them: a seek then
+	 * replays up to a move per cell, about a second on a 1000 x 1000 board.
+	 * Boards too large for their free cells to be indexed have small
+	 * keyframes, and the smallest interval.
+	 *
+	 * @param config the board's dimensions.
+	 * @return the keyframe interval.
+	 */
+	public static int getKeyframeInterval(GameConfig config)
+	{
+		long cells = (long) (config.getWidth() + 1) * (config.getHeight() + 1);
+
+		if(cells > GameState.MAX_INDEXED_CELLS)
+			return DEFAULT_KEYFRAME_INTERVAL;
+
+		return (int) Math.max(DEFAULT_KEYFRAME_INTERVAL, cells);
+	}
+
+	/**
+	 * @param dir the snake's direction during the move, or null.
+	 * @param fruits the number of fruits generated before the move.
+	 * @param dynamites the number of dynamites generated before the move.
+	 * @return the record of the move.
+	 * @throws IllegalArgumentException if more than MAX_SPAWNS fruits or
+	 * dynamites were generated.
+	 */
+	public static short encode(Direction dir, int fruits, int dynamites)
+	{
+		if(fruits < 0 || fruits > MAX_SPAWNS || dynamites < 0 || dynamites > MAX_SPAWNS)
+			throw new IllegalArgumentException("Too many objects for one move");
+
+		int record = (dir == null) ? 0 : dir.ordinal() + 1;
+
+		record |= fruits    << FRUITS_SHIFT;
+		record |= dynamites << DYNAMITES_SHIFT;
+
+		return (short) record;
+	}
+
+	/**
+	 * @param record the record of a move.
+	 * @return the snake's direction during the move, or null if unknown.
+	 */
+	public static Direction direction(int record)
+	{
+		int dir = record & DIRECTION_MASK;
+
+		return (dir == 0) ? null : DIRECTIONS[dir - 1];
+	}
+
+	/**
+	 * @param record the record of a move.
+	 * @return the number of fruits generated before the move.
+	 */
+	public static int spawnedFruits(int record)
+	{
+		return (record >>> FRUITS_SHIFT) & MAX_SPAWNS;
+	}
+
+	/**
+	 * @param record the record of a move.
+	 * @return the number of dynamites generated before the move.
+	 */
+	public static int spawnedDynamites(int record)
+	{
+		return (record >>> DYNAMITES_SHIFT) & MAX_SPAWNS;
+	}
+}
@@ -0,0 +1,339 @@
+package snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ *
+ * Reads a replay file, as described in ReplayFormat, either one move at a
+ * time or by jumping straight to any tick.
+ *
+ * The file is memory-mapped rather than read: opening it only walks from
+ * keyframe to keyframe to note their offsets, and the pages holding the moves
+ * and the keyframe a seek needs are the only ones loaded. The moves recorded
+ * after the file was opened are not seen.
+ */
+public class ReplayReader implements Closeable
+{
+	/*
+	 * The replay file, and its content.
+	 */
+	private final FileChannel channel;
+	private final MappedByteBuffer data;
+
+	/*
+	 * The header's fields: the board and the rules, the seed and the keyframe
+	 * interval.
+	 */
+	private final GameConfig config;
+	private final long seed;
+	private final int keyframe_interval;
+
+	/*
+	 * The number of moves in a block, which is the keyframe interval, or the
+	 * whole replay if there are no keyframes.
+	 */
+	private final int block_size;
+
+	/*
+	 * The offset of the first move of each block, and of each keyframe's
+	 * snapshot. Keyframe k follows block k.
+	 */
+	private int[] blocks;
+	private int[] keyframes;
+	private int block_count;
+	private int keyframe_count;
+
+	/*
+	 * The number of moves in the replay, and the next one read by nextTick().
+	 */
+	private int tick_count;
+	private int next_tick;
+
+	/**
+	 * Opens a replay file, reads its header and finds its keyframes.
+	 *
+	 * @param path the replay file.
+	 * @throws IOException if the file can't be read or is not a replay.
+	 */
+	public ReplayReader(Path path) throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try
+		{
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException(path + " is too large to be mapped");
+
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(data.limit() < ReplayFormat.HEADER_SIZE || data.getInt() != ReplayFormat.MAGIC)
+				throw new IOException(path + " is not a replay");
+
+			short version = data.getShort();
+
+			if(version != ReplayFormat.VERSION)
+				throw new IOException("Unsupported replay version " + version);
+
+			int width  = data.getInt();
+			int height = data.getInt();
+
+			seed              = data.getLong();
+			keyframe_interval = data.getInt();
+
+			if(keyframe_interval < 0)
+				throw new IOException(path + " is not a replay");
+
+			try
+			{
+				config = GameConfig.DEFAULT.withBoardSize(width, height)
+				                           .withRules(data.getInt(), data.getInt(), data.getInt());
+			}
+			catch (IllegalArgumentException iae)
+			{
+				throw new IOException(path + " is not a replay", iae);
+			}
+
+			block_size = (keyframe_interval > 0) ? keyframe_interval : Integer.MAX_VALUE;
+		}
+		catch (IOException ioe)
+		{
+			channel.close();
+			throw ioe;
+		}
+
+		blocks    = new int[16];
+		keyframes = new int[16];
+
+		findKeyframes(data.position());
+	}
+
+	/**
+	 * @return the game play width.
+	 */
+	public int getWidth()
+	{
+		return config.getWidth();
+	}
+
+	/**
+	 * @return the game play height.
+	 */
+	public int getHeight()
+	{
+		return config.getHeight();
+	}
+
+	/**
+	 * @return the board and the rules the game was played with. The speeds and
+	 * the spawn period are not recorded, and are the defaults.
+	 */
+	public GameConfig getConfig()
+	{
+		return config;
+	}
+
+	/**
+	 * @return the seed of the game's random number generator.
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * @return the number of moves between two keyframes, or 0 if there are
+	 * none.
+	 */
+	public int getKeyframeInterval()
+	{
+		return keyframe_interval;
+	}
+
+	/**
+	 * @return the number of moves in the replay.
+	 */
+	public int getTickCount()
+	{
+		return tick_count;
+	}
+
+	/**
+	 * @param tick the index of a move, from 0 to getTickCount() - 1.
+	 * @return the record of the move, to be decoded with ReplayFormat.
+	 * @throws IndexOutOfBoundsException if there is no such move.
+	 */
+	public int getTick(int tick)
+	{
+		if(tick < 0 || tick >= tick_count)
+			throw new IndexOutOfBoundsException("No such tick: " + tick);
+
+		return data.getShort(blocks[tick / block_size] + tick % block_size * ReplayFormat.RECORD_SIZE) & 0xFFFF;
+	}
+
+	/**
+	 * @return the record of the next move, to be decoded with ReplayFormat,
+	 * or -1 at the end of the replay.
+	 */
+	public int nextTick()
+	{
+		if(next_tick >= tick_count)
+			return -1;
+
+		return getTick(next_tick++);
+	}
+
+	/**
+	 * Brings an engine to the given tick: its game is the replay's game after
+	 * that many moves. The engine restores the keyframe before the tick, if
+	 * any, and replays the moves that follow it, so it takes at most
+	 * getKeyframeInterval() moves whatever the tick.
+	 *
+	 * @param engine an engine of the replay's board and rules, not recording.
+	 * @param tick the number of moves, from 0 to getTickCount().
+	 * @throws IndexOutOfBoundsException if the replay is shorter than that.
+	 */
+	public void seek(SnakeEngine engine, int tick)
+	{
+		if(tick < 0 || tick > tick_count)
+			throw new IndexOutOfBoundsException("No such tick: " + tick);
+
+		int keyframe = Math.min(tick / block_size, keyframe_count) - 1;
+		int start    = 0;
+
+		if(keyframe < 0 || engine.getSeed() != seed)
+			engine.reset(seed);
+
+		if(keyframe >= 0)
+		{
+			ByteBuffer in = data.duplicate();
+			in.position(keyframes[keyframe]);
+
+			engine.restore(in);
+
+			start = (keyframe + 1) * block_size;
+		}
+
+		for(int i = start; i < tick; i++)
+			play(engine, getTick(i));
+
+		next_tick = tick;
+	}
+
+	/**
+	 * Plays a replay back on a new engine, from its last keyframe.
+	 *
+	 * @param path the replay file.
+	 * @return the state of the game at the end of the replay.
+	 * @throws IOException if the file can't be read or is not a replay.
+	 */
+	public static GameState replay(Path path) throws IOException
+	{
+		try(ReplayReader reader = new ReplayReader(path))
+		{
+			SnakeEngine engine = new SnakeEngine(reader.getConfig());
+
+			reader.seek(engine, reader.getTickCount());
+
+			return engine.getState();
+		}
+	}
+
+	/**
+	 * Plays a move on an engine, generating the objects that were generated
+	 * before it, in pairs of a fruit and a dynamite first.
+	 *
+	 * @param engine the engine.
+	 * @param record the record of the move.
+	 */
+	public static void play(SnakeEngine engine, int record)
+	{
+		int fruits    = ReplayFormat.spawnedFruits(record);
+		int dynamites = ReplayFormat.spawnedDynamites(record);
+
+		for(int i = 0; i < fruits || i < dynamites; i++)
+		{
+			if(i < fruits)
+				engine.spawnFruit();
+
+			if(i < dynamites)
+				engine.spawnDynamite();
+		}
+
+		engine.step(ReplayFormat.direction(record));
+	}
+
+	@Override public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Walks the file from keyframe to keyframe, noting where each block and
+	 * each keyframe starts, and counts the moves. A keyframe cut short, as
+	 * when the file is still being written, ends the replay.
+	 */
+	private void findKeyframes(int position)
+	{
+		int limit = data.limit();
+
+		while(true)
+		{
+			addBlock(position);
+
+			// A move cut short, as when the file is still being written, is
+			// not counted.
+			int moves = (limit - position) / ReplayFormat.RECORD_SIZE;
+
+			if(moves <= block_size)
+			{
+				tick_count += moves;
+				break;
+			}
+
+			tick_count += block_size;
+
+			int snapshot = position + block_size * ReplayFormat.RECORD_SIZE + 4;
+
+			if(snapshot > limit)
+				break;
+
+			int size = data.getInt(snapshot - 4);
+
+			if(size < 0 || limit - snapshot < size)
+				break;
+
+			addKeyframe(snapshot);
+
+			position = snapshot + size;
+		}
+	}
+
+	/**
+	 * Notes the offset of a block's first move.
+	 */
+	private void addBlock(int offset)
+	{
+		if(block_count == blocks.length)
+			blocks = Arrays.copyOf(blocks, block_count * 2);
+
+		blocks[block_count++] = offset;
+	}
+
+	/**
+	 * Notes the offset of a keyframe's snapshot.
+	 */
+	private void addKeyframe(int offset)
+	{
+		if(keyframe_count == keyframes.length)
+			keyframes = Arrays.copyOf(keyframes, keyframe_count * 2);
+
+		keyframes[keyframe_count++] = offset;
+	}
+}
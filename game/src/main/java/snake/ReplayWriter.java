@@ -0,0 +1,226 @@
+package snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Records a game to a replay file, as described in ReplayFormat. Records are
+ * buffered and written to the file in blocks, so recording a move costs a
+ * single short store most of the time. Whoever records the moves also records
+ * a keyframe whenever isKeyframeDue() says so, as SnakeEngine does.
+ */
+public class ReplayWriter implements Closeable
+{
+	/*
+	 * The size of the write buffer, in bytes.
+	 */
+	private final static int BUFFER_SIZE = 8192;
+
+	/*
+	 * The replay file.
+	 */
+	private final FileChannel channel;
+
+	/*
+	 * Records not written to the file yet. It grows to hold a whole keyframe
+	 * if needed.
+	 */
+	private ByteBuffer buffer;
+
+	/*
+	 * The number of moves between two keyframes, or 0 for none.
+	 */
+	private final int keyframe_interval;
+
+	/*
+	 * The number of moves recorded.
+	 */
+	private int ticks;
+
+	/**
+	 * Creates a replay file, replacing any existing one, and writes its header.
+	 * A keyframe is due every ReplayFormat.getKeyframeInterval() moves.
+	 *
+	 * @param path the replay file.
+	 * @param width the game play width.
+	 * @param height the game play height.
+	 * @param seed the seed of the game's random number generator.
+	 * @throws IOException if the file can't be created.
+	 */
+	public ReplayWriter(Path path, int width, int height, long seed) throws IOException
+	{
+		this(path, GameConfig.DEFAULT.withBoardSize(width, height), seed);
+	}
+
+	/**
+	 * Creates a replay file, replacing any existing one, and writes its header
+	 * for a game played on the board and with the rules of the given
+	 * configuration. A keyframe is due every ReplayFormat.getKeyframeInterval()
+	 * moves.
+	 *
+	 * @param path the replay file.
+	 * @param config the board's dimensions and the rules of the game.
+	 * @param seed the seed of the game's random number generator.
+	 * @throws IOException if the file can't be created.
+	 */
+	public ReplayWriter(Path path, GameConfig config, long seed) throws IOException
+	{
+		this(path, config, seed, ReplayFormat.getKeyframeInterval(config));
+	}
+
+	/**
+	 * Creates a replay file, replacing any existing one, and writes its header.
+	 *
+	 * @param path the replay file.
+	 * @param width the game play width.
+	 * @param height the game play height.
+	 * @param seed the seed of the game's random number generator.
+	 * @param keyframe_interval the number of moves between two keyframes, or 0
+	 * for none.
+	 * @throws IOException if the file can't be created.
+	 */
+	public ReplayWriter(Path path, int width, int height, long seed,
+	                    int keyframe_interval) throws IOException
+	{
+		this(path, GameConfig.DEFAULT.withBoardSize(width, height), seed, keyframe_interval);
+	}
+
+	/**
+	 * Creates a replay file, replacing any existing one, and writes its header
+	 * for a game played on the board and with the rules of the given
+	 * configuration.
+	 *
+	 * @param path the replay file.
+	 * @param config the board's dimensions and the rules of the game.
+	 * @param seed the seed of the game's random number generator.
+	 * @param keyframe_interval the number of moves between two keyframes, or 0
+	 * for none.
+	 * @throws IOException if the file can't be created.
+	 */
+	public ReplayWriter(Path path, GameConfig config, long seed, int keyframe_interval) throws IOException
+	{
+		if(keyframe_interval < 0)
+			throw new IllegalArgumentException("The keyframe interval can't be negative");
+
+		this.keyframe_interval = keyframe_interval;
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE,
+		                                 StandardOpenOption.WRITE,
+		                                 StandardOpenOption.TRUNCATE_EXISTING);
+
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		buffer.putInt(ReplayFormat.MAGIC);
+		buffer.putShort(ReplayFormat.VERSION);
+		buffer.putInt(config.getWidth());
+		buffer.putInt(config.getHeight());
+		buffer.putLong(seed);
+		buffer.putInt(keyframe_interval);
+		buffer.putInt(config.getInitialSize());
+		buffer.putInt(config.getConfiguredStartRow());
+		buffer.putInt(config.getScorePenalty());
+	}
+
+	/**
+	 * Records a move.
+	 *
+	 * @param dir the snake's direction during the move.
+	 * @param fruits the number of fruits generated before the move.
+	 * @param dynamites the number of dynamites generated before the move.
+	 * @throws IllegalArgumentException if more than ReplayFormat.MAX_SPAWNS
+	 * fruits or dynamites were generated.
+	 * @throws UncheckedIOException if the buffer is full and can't be written.
+	 */
+	public void recordTick(Direction dir, int fruits, int dynamites)
+	{
+		short record = ReplayFormat.encode(dir, fruits, dynamites);
+
+		if(buffer.remaining() < ReplayFormat.RECORD_SIZE)
+			flush();
+
+		buffer.putShort(record);
+		ticks++;
+	}
+
+	/**
+	 * @return true if the last move recorded must be followed by a keyframe.
+	 */
+	public boolean isKeyframeDue()
+	{
+		return keyframe_interval > 0 && ticks % keyframe_interval == 0;
+	}
+
+	/**
+	 * Records a keyframe, which must be the state of the game right after the
+	 * last move recorded, when isKeyframeDue() is true.
+	 *
+	 * @param state the state of the game.
+	 * @throws UncheckedIOException if the buffer is full and can't be written.
+	 */
+	public void recordKeyframe(GameState state)
+	{
+		int size = state.getSnapshotSize();
+
+		if(buffer.remaining() < 4 + size)
+		{
+			flush();
+
+			if(buffer.capacity() < 4 + size)
+				buffer = ByteBuffer.allocate(4 + size);
+		}
+
+		buffer.putInt(size);
+		state.writeSnapshot(buffer);
+	}
+
+	/**
+	 * Writes the buffered records to the file.
+	 *
+	 * @throws UncheckedIOException if they can't be written.
+	 */
+	public void flush()
+	{
+		buffer.flip();
+
+		try
+		{
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		catch (IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+		finally
+		{
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Writes the buffered records and closes the file.
+	 *
+	 * @throws IOException if the file can't be written.
+	 */
+	@Override public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		catch (UncheckedIOException uioe)
+		{
+			throw uioe.getCause();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,541 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ *
+ * A generic class to represent a Snake object. The Snake has a "body" and the
+ * direction in which it's moving.
+ *
+ * The body is stored as a circular buffer of packed cell indexes (y * columns
+ * + x), alongside a sparse grid of the cells it occupies, so that moving,
+ * growing and checking for self collisions take constant time, and the memory
+ * used follows the snake rather than the size of the board. Both are taken
+ * from a BoardStorage, and may live off the heap.
+ */
+public class Snake
+{
+	/*
+	 * Define snake's initial length, unless a GameConfig gives another one.
+	 */
+	final static int SNAKE_INITIAL_SIZE = 4;
+
+	/*
+	 * Initial capacity of the body's circular buffer. It doubles whenever
+	 * the snake outgrows it.
+	 */
+	private final static int INITIAL_CAPACITY = 16;
+
+	/*
+	 * The value of the cells covered by the body in the occupancy grid.
+	 */
+	private final static byte OCCUPIED = 1;
+
+	/*
+	 * Number of columns and rows of the board, walls included.
+	 */
+	private final int columns;
+	private final int rows;
+
+	/*
+	 * Snake's body as a circular buffer of packed cells. The tail is at index
+	 * 'tail' and the head is 'size - 1' positions ahead of it.
+	 */
+	private IntBuffer body;
+	private int tail;
+	private int size;
+
+	/*
+	 * Cells currently occupied by the snake's body.
+	 */
+	private final Grid occupied;
+
+	/*
+	 * Where the body and the occupied cells are kept.
+	 */
+	private final BoardStorage storage;
+
+	/*
+	 * A read-only view of the body, shared by every caller.
+	 */
+	private final List<Position> body_view = new AbstractList<Position>()
+	{
+		@Override public Position get(int i)
+		{
+			if(i < 0 || i >= size)
+				throw new IndexOutOfBoundsException("No such segment: " + i);
+
+			return toPosition(segment(i));
+		}
+
+		@Override public int size()
+		{
+			return size;
+		}
+
+		@Override public boolean contains(Object o)
+		{
+			return (o instanceof Position) && isBody((Position) o);
+		}
+	};
+
+	/*
+	 * Whether or not the last move took the head over the snake's own body.
+	 */
+	private boolean bitten;
+
+	/*
+	 * The direction in which the snake is facing.
+	 */
+	private Direction direction;
+
+	/*
+	 * Whether or not the snake is alive.
+	 */
+	private boolean alive;
+
+	/**
+	 * Instantiate a new snake object facing the given direction.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param width the game play width, i.e. the X coordinate of the right wall
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall
+	 */
+	public Snake(Direction starting_direction, int width, int height)
+	{
+		this(starting_direction, width, height, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiate a new snake object facing the given direction, kept in the
+	 * given storage.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param width the game play width, i.e. the X coordinate of the right wall
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall
+	 * @param storage where to keep the body and the occupied cells
+	 */
+	public Snake(Direction starting_direction, int width, int height, BoardStorage storage)
+	{
+		this(starting_direction, GameConfig.DEFAULT.withBoardSize(width, height), storage);
+	}
+
+	/**
+	 * Instantiate a new snake object facing the given direction, of the length
+	 * and on the row given by a configuration, kept in the given storage.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param config the board and the snake's initial length and row
+	 * @param storage where to keep the body and the occupied cells
+	 */
+	public Snake(Direction starting_direction, GameConfig config, BoardStorage storage)
+	{
+		// Note that x = 0 represents the wall.
+		this(starting_direction, config.getWidth(), config.getHeight(),
+		     Position.of(config.getInitialSize() + 2, config.getStartRow()), config.getInitialSize(),
+		     storage);
+	}
+
+	/**
+	 * Instantiate a new snake object facing the given direction, with its head
+	 * on the given position and its body stretching behind it.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param width the game play width, i.e. the X coordinate of the right wall
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall
+	 * @param head the position of the snake's head
+	 */
+	public Snake(Direction starting_direction, int width, int height, Position head)
+	{
+		this(starting_direction, width, height, head, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiate a new snake object facing the given direction, with its head
+	 * on the given position and its body stretching behind it, kept in the
+	 * given storage.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param width the game play width, i.e. the X coordinate of the right wall
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall
+	 * @param head the position of the snake's head
+	 * @param storage where to keep the body and the occupied cells
+	 */
+	public Snake(Direction starting_direction, int width, int height, Position head,
+	             BoardStorage storage)
+	{
+		this(starting_direction, width, height, head, SNAKE_INITIAL_SIZE, storage);
+	}
+
+	/**
+	 * Instantiate a new snake object of the given length facing the given
+	 * direction, with its head on the given position and its body stretching
+	 * behind it, kept in the given storage.
+	 *
+	 * @param starting_direction the direction the snake is facing
+	 * @param width the game play width, i.e. the X coordinate of the right wall
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall
+	 * @param head the position of the snake's head
+	 * @param initial_size the number of segments of the snake
+	 * @param storage where to keep the body and the occupied cells
+	 */
+	public Snake(Direction starting_direction, int width, int height, Position head,
+	             int initial_size, BoardStorage storage)
+	{
+		this(width, height, getCapacity(initial_size), storage);
+
+		int dx = 0;
+		int dy = 0;
+
+		switch(starting_direction)
+		{
+			case UP:
+				dy = -1;
+				break;
+
+			case DOWN:
+				dy = 1;
+				break;
+
+			case LEFT:
+				dx = -1;
+				break;
+
+			case RIGHT:
+				dx = 1;
+				break;
+
+			default:
+				throw new IllegalArgumentException("There is no such direction");
+		}
+
+		// Set snake's body, from tail to head.
+		for(int i = initial_size - 1; i >= 0; i--)
+		{
+			int cell = toCell(head.getX() - i * dx, head.getY() - i * dy);
+
+			body.put(size++, cell);
+			occupied.set(cell, OCCUPIED);
+		}
+
+		direction = starting_direction;
+	}
+
+	/**
+	 * Instantiate a new snake object with no body, facing RIGHT.
+	 *
+	 * @param width the game play width
+	 * @param height the game play height
+	 * @param capacity the initial capacity of the body's buffer
+	 * @param storage where to keep the body and the occupied cells
+	 */
+	private Snake(int width, int height, int capacity, BoardStorage storage)
+	{
+		columns = width  + 1;
+		rows    = height + 1;
+
+		this.storage = storage;
+
+		body     = storage.newInts(capacity);
+		tail     = 0;
+		size     = 0;
+		occupied = storage.newGrid(columns, rows);
+
+		direction = Direction.RIGHT;
+		alive     = true;
+		bitten    = false;
+	}
+
+	/**
+	 * @return a read-only view of the snake's body, from tail to head
+	 */
+	public List<Position> getBody()
+	{
+		return body_view;
+	}
+
+	/**
+	 * @return the number of segments of the snake's body
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return Snake's head.
+	 */
+	public Position getHead()
+	{
+		return toPosition(segment(size - 1));
+	}
+
+	/**
+	 * @return Snake's tail.
+	 */
+	public Position getTail()
+	{
+		return toPosition(segment(0));
+	}
+
+	/**
+	 * @param direction the new direction.
+	 */
+	public void setDirection(Direction direction)
+	{
+		this.direction = direction;
+	}
+
+	/**
+	 * @return the direction in which the snake is moving.
+	 */
+	public Direction getDirection()
+	{
+		return direction;
+	}
+
+	/**
+	 * @return true if the snake is alive; false otherwise.
+	 */
+	public boolean isAlive()
+	{
+		return alive;
+	}
+
+	/**
+	 * Kill the snake.
+	 */
+	public void kill()
+	{
+		alive = false;
+	}
+
+	/**
+	 * Move the snake in one of the four possible directions: UP, DOWN,
+	 * LEFT, or RIGHT.
+	 * The snake "moves" by bringing the first block (tail) up to the front,
+	 * which is quiet elegant.
+	 */
+	public void move()
+	{
+		// Get current head position
+		int head = segment(size - 1);
+		int x    = head % columns;
+		int y    = head / columns;
+
+		// Remove tail from body. The cell is only freed if the next block is
+		// not on the same spot, which happens right after the snake grows.
+		int old_tail = body.get(tail);
+
+		tail = (tail + 1) % body.capacity();
+		size--;
+
+		if(size == 0 || body.get(tail) != old_tail)
+			occupied.set(old_tail, (byte) 0);
+
+		// Determine head's new position based on snake's direction
+		switch(direction)
+		{
+			case UP:
+
+				y--;
+				break;
+
+			case DOWN:
+
+				y++;
+				break;
+
+			case LEFT:
+
+				x--;
+				break;
+
+			case RIGHT:
+
+				x++;
+				break;
+
+			default:
+				throw new IllegalArgumentException("There is no such direction");
+		}
+
+		// Insert the new head into the snake's body
+		head = toCell(x, y);
+
+		bitten = occupied.get(head) != 0;
+		occupied.set(head, OCCUPIED);
+
+		body.put((tail + size) % body.capacity(), head);
+		size++;
+	}
+
+	/**
+	 * Returns true if this snake contains the specified position.
+	 *
+	 * @param p The position to check.
+	 * @return true if the snake contains the specified position.
+	 */
+	public boolean isBody(Position p)
+	{
+		if(p.getX() < 0 || p.getX() >= columns || p.getY() < 0 || p.getY() >= rows)
+			return false;
+
+		return occupied.get(toCell(p.getX(), p.getY())) != 0;
+	}
+
+	/**
+	 * @return true if the last move took the head over the snake's own body.
+	 */
+	public boolean hasBittenItself()
+	{
+		return bitten;
+	}
+
+	/**
+	 * Increases by one the size of the snake. The new block is placed on the
+	 * same spot as the tail, and will be left behind by the next move.
+	 */
+	public void increaseSize()
+	{
+		if(size == body.capacity())
+			growBuffer();
+
+		int old_tail = body.get(tail);
+
+		tail = (tail - 1 + body.capacity()) % body.capacity();
+		body.put(tail, old_tail);
+		size++;
+	}
+
+	/**
+	 * @return the size, in bytes, of a snapshot of this snake.
+	 */
+	public int getSnapshotSize()
+	{
+		return 1 + 1 + 1 + 4 + 4 * size;
+	}
+
+	/**
+	 * Writes the snake's direction ordinal, whether it is alive and whether
+	 * it has just bitten itself (one byte each), its size, and its cells from
+	 * tail to head.
+	 *
+	 * @param out the buffer to write to
+	 */
+	public void writeSnapshot(ByteBuffer out)
+	{
+		out.put((byte) direction.ordinal());
+		out.put((byte) (alive ? 1 : 0));
+		out.put((byte) (bitten ? 1 : 0));
+		out.putInt(size);
+
+		for(int i = 0; i < size; i++)
+			out.putInt(segment(i));
+	}
+
+	/**
+	 * Restores a snake from a snapshot written by writeSnapshot().
+	 *
+	 * @param in the buffer to read from
+	 * @param width the game play width
+	 * @param height the game play height
+	 * @return the restored snake
+	 */
+	public static Snake readSnapshot(ByteBuffer in, int width, int height)
+	{
+		return readSnapshot(in, width, height, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Restores a snake from a snapshot written by writeSnapshot(), into the
+	 * given storage.
+	 *
+	 * @param in the buffer to read from
+	 * @param width the game play width
+	 * @param height the game play height
+	 * @param storage where to keep the body and the occupied cells
+	 * @return the restored snake
+	 */
+	public static Snake readSnapshot(ByteBuffer in, int width, int height, BoardStorage storage)
+	{
+		Direction direction = Direction.values()[in.get()];
+		boolean alive       = in.get() != 0;
+		boolean bitten      = in.get() != 0;
+		int size            = in.getInt();
+
+		Snake snake = new Snake(width, height, getCapacity(size), storage);
+
+		for(int i = 0; i < size; i++)
+		{
+			int cell = in.getInt();
+
+			snake.body.put(i, cell);
+			snake.occupied.set(cell, OCCUPIED);
+		}
+
+		snake.size      = size;
+		snake.direction = direction;
+		snake.alive     = alive;
+		snake.bitten    = bitten;
+
+		return snake;
+	}
+
+	/**
+	 * @return the initial capacity of the body's buffer for a snake of the
+	 * given size: INITIAL_CAPACITY, doubled as many times as needed.
+	 */
+	private static int getCapacity(int size)
+	{
+		int capacity = INITIAL_CAPACITY;
+
+		while(capacity < size)
+			capacity *= 2;
+
+		return capacity;
+	}
+
+	/**
+	 * Doubles the capacity of the body's circular buffer, unrolling it so that
+	 * the tail is at index 0.
+	 */
+	private void growBuffer()
+	{
+		IntBuffer grown = storage.newInts(body.capacity() * 2);
+
+		for(int i = 0; i < size; i++)
+			grown.put(i, segment(i));
+
+		body = grown;
+		tail = 0;
+	}
+
+	/**
+	 * @param i the segment index, where 0 is the tail and size-1 the head.
+	 * @return the packed cell of the i-th segment.
+	 */
+	private int segment(int i)
+	{
+		return body.get((tail + i) % body.capacity());
+	}
+
+	/**
+	 * @return the packed cell of coordinates (x, y).
+	 */
+	private int toCell(int x, int y)
+	{
+		return y * columns + x;
+	}
+
+	/**
+	 * @return the position of the given packed cell.
+	 */
+	private Position toPosition(int cell)
+	{
+		return Position.of(cell % columns, cell / columns);
+	}
+}
@@ -0,0 +1,385 @@
+package snake;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ *
+ * The game rules, independent of any user interface. The engine moves the
+ * snake, detects collisions, keeps the score and generates new objects, and
+ * reports what happened on every move so that a view can render it.
+ *
+ * No terminal is needed, so games can be simulated as fast as the CPU allows.
+ */
+public class SnakeEngine
+{
+	/*
+	 * The game play dimensions, i.e. the coordinates of the right and
+	 * bottom walls.
+	 */
+	private final int width;
+	private final int height;
+
+	/*
+	 * The board's dimensions and the rules of every game.
+	 */
+	private final GameConfig config;
+
+	/*
+	 * The random number generator the seed of each new game is drawn from.
+	 */
+	private final SplittableRandom rand;
+
+	/*
+	 * Where every game keeps its board.
+	 */
+	private final BoardStorage storage;
+
+	/*
+	 * The state of the current game, and the seed of its random number
+	 * generator.
+	 */
+	private GameState state;
+	private long seed;
+
+	/*
+	 * Where the current game is being recorded, if anywhere.
+	 */
+	private ReplayWriter recorder;
+
+	/*
+	 * The number of fruits and dynamites generated since the last move.
+	 */
+	private int spawned_fruits;
+	private int spawned_dynamites;
+
+	/*
+	 * The events of the last move, reused on every move.
+	 */
+	private final TickEvents events;
+
+	/*
+	 * Where the time taken by each phase of a move is recorded, if anywhere.
+	 */
+	private TickMetrics metrics;
+
+	/**
+	 * Instantiates a new SnakeEngine object and starts a new game.
+	 *
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall.
+	 */
+	public SnakeEngine(int width, int height)
+	{
+		this(width, height, new SplittableRandom());
+	}
+
+	/**
+	 * Instantiates a new SnakeEngine object and starts a new game. Every game
+	 * gets its own generator, seeded from the given one.
+	 *
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param rand the random number generator to draw the games' seeds from.
+	 */
+	public SnakeEngine(int width, int height, SplittableRandom rand)
+	{
+		this(width, height, rand, BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiates a new SnakeEngine object and starts a new game, keeping the
+	 * board of every game in the given storage.
+	 *
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param rand the random number generator to draw the games' seeds from.
+	 * @param storage where to keep the boards.
+	 */
+	public SnakeEngine(int width, int height, SplittableRandom rand, BoardStorage storage)
+	{
+		this(GameConfig.DEFAULT.withBoardSize(width, height), rand, storage);
+	}
+
+	/**
+	 * Instantiates a new SnakeEngine object and starts a new game, on the
+	 * board and with the rules of the given configuration.
+	 *
+	 * @param config the board's dimensions and the rules of every game.
+	 */
+	public SnakeEngine(GameConfig config)
+	{
+		this(config, new SplittableRandom(), BoardStorage.HEAP);
+	}
+
+	/**
+	 * Instantiates a new SnakeEngine object and starts a new game, on the
+	 * board and with the rules of the given configuration, keeping the board
+	 * of every game in the given storage.
+	 *
+	 * @param config the board's dimensions and the rules of every game.
+	 * @param rand the random number generator to draw the games' seeds from.
+	 * @param storage where to keep the boards.
+	 */
+	public SnakeEngine(GameConfig config, SplittableRandom rand, BoardStorage storage)
+	{
+		this.config  = config;
+		this.rand    = rand;
+		this.storage = storage;
+
+		width  = config.getWidth();
+		height = config.getHeight();
+
+		events = new TickEvents();
+
+		reset();
+	}
+
+	/**
+	 * Starts a new game.
+	 */
+	public void reset()
+	{
+		reset(rand.nextLong());
+	}
+
+	/**
+	 * Starts a new game whose random number generator has the given seed.
+	 * Two games with the same seed and the same moves play exactly the same.
+	 *
+	 * @param seed the seed of the new game.
+	 */
+	public void reset(long seed)
+	{
+		this.seed = seed;
+
+		state = new GameState(config, seed, storage);
+		events.reset();
+
+		spawned_fruits    = 0;
+		spawned_dynamites = 0;
+	}
+
+	/**
+	 * Replaces the current game with one restored from a snapshot written by
+	 * GameState.writeSnapshot(). The restored game keeps the current seed, and
+	 * has no turns queued.
+	 *
+	 * @param in the buffer holding the snapshot.
+	 * @throws IllegalArgumentException if the snapshot is not a game of this
+	 * engine's dimensions.
+	 */
+	public void restore(ByteBuffer in)
+	{
+		GameState restored = GameState.readSnapshot(in, config, storage);
+
+		if(restored.getWidth() != width || restored.getHeight() != height)
+			throw new IllegalArgumentException("The snapshot is of another board");
+
+		state = restored;
+		events.reset();
+
+		spawned_fruits    = 0;
+		spawned_dynamites = 0;
+	}
+
+	/**
+	 * @return the board's dimensions and the rules of every game.
+	 */
+	public GameConfig getConfig()
+	{
+		return config;
+	}
+
+	/**
+	 * @return the seed of the current game's random number generator.
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Records every following move to the given replay, until another one
+	 * is set. Closing the replay is up to the caller.
+	 *
+	 * @param recorder the replay to write to, or null to stop recording.
+	 */
+	public void setRecorder(ReplayWriter recorder)
+	{
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Times the phases of every move from now on.
+	 *
+	 * @param metrics where to record the times, or null to stop timing.
+	 */
+	public void setMetrics(TickMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the state of the current game.
+	 */
+	public GameState getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return the game play width.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the game play height.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * Moves the snake once, and then checks if it has collided, eaten a fruit
+	 * or stepped over a dynamite. A collision kills the snake.
+	 *
+	 * @param dir the direction to turn to before moving, or null to take the
+	 * next queued turn, if any.
+	 * @return what happened during the move. Nothing happens if the snake is
+	 * already dead.
+	 */
+	public TickEvents step(Direction dir)
+	{
+		events.reset();
+
+		if(!state.isSnakeAlive())
+			return events;
+
+		if(dir != null)
+			state.queueDirection(dir);
+
+		Position tail          = state.getSnakeTail();
+		Position previous_head = state.getSnakeHead();
+
+		long time = (metrics != null) ? System.nanoTime() : 0;
+
+		state.moveSnake();
+
+		Position head = state.getSnakeHead();
+
+		events.moved(tail, previous_head, head);
+
+		if(metrics != null)
+			time = metrics.record(TickPhase.MOVE, time);
+
+		boolean collided = isWall(head) || state.snakeBitItself();
+
+		if(metrics != null)
+			time = metrics.record(TickPhase.COLLISION, time);
+
+		if(collided)
+		{
+			state.killSnake();
+			events.died();
+		}
+		else if(state.snakeAteFruit())
+		{
+			events.ateFruit(placeFruit());
+		}
+		else if(state.snakeSteppedDynamite())
+		{
+			events.steppedDynamite();
+		}
+
+		if(metrics != null)
+			metrics.record(TickPhase.SCORING, time);
+
+		if(recorder != null)
+		{
+			recorder.recordTick(state.getSnakeDirection(), spawned_fruits, spawned_dynamites);
+
+			if(recorder.isKeyframeDue())
+				recorder.recordKeyframe(state);
+		}
+
+		spawned_fruits    = 0;
+		spawned_dynamites = 0;
+
+		return events;
+	}
+
+	/**
+	 * Generates a new fruit on a random free position. This is meant to be
+	 * called on a timer, between moves. A replay generates the objects of a
+	 * move again in pairs, a fruit then an obstacle, followed by those left
+	 * over, so that is the order to generate them in.
+	 *
+	 * @return the position of the new fruit, or null if the board is full.
+	 */
+	public Position spawnFruit()
+	{
+		spawned_fruits++;
+
+		return placeFruit();
+	}
+
+	/**
+	 * @return true if another fruit and obstacle can be generated before the
+	 * next move. A replay records at most ReplayFormat.MAX_SPAWNS of each per
+	 * move, so the next ones must wait for the next move.
+	 */
+	public boolean canSpawn()
+	{
+		return spawned_fruits < ReplayFormat.MAX_SPAWNS && spawned_dynamites < ReplayFormat.MAX_SPAWNS;
+	}
+
+	/**
+	 * Generates a new obstacle on a random free position. This is meant to be
+	 * called on a timer, between moves.
+	 *
+	 * @return the position of the new obstacle, or null if the board is full.
+	 */
+	public Position spawnDynamite()
+	{
+		spawned_dynamites++;
+
+		Position p = state.generateRandomObject();
+
+		if(p != null)
+			state.addDynamite(p);
+
+		return p;
+	}
+
+	/**
+	 * Places a new fruit on a random free position.
+	 *
+	 * @return the position of the new fruit, or null if the board is full.
+	 */
+	private Position placeFruit()
+	{
+		Position p = state.generateRandomObject();
+
+		if(p != null)
+			state.addFruit(p);
+
+		return p;
+	}
+
+	/**
+	 * Checks if the given position matches a board's wall.
+	 *
+	 * @param p the position to check.
+	 * @return true if the position matches a board's wall; false otherwise.
+	 */
+	public boolean isWall(Position p)
+	{
+		return p.getX() <= 0 || p.getX() >= width ||
+		       p.getY() <= 0 || p.getY() >= height;
+	}
+}
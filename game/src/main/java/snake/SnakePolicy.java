@@ -0,0 +1,15 @@
+package snake;
+
+/**
+ *
+ * A player that decides, before every move, where the snake should go. It is
+ * how bots and AI players are plugged into headless games.
+ */
+public interface SnakePolicy
+{
+	/**
+	 * @param state the state of the game before the move.
+	 * @return the direction to turn to, or null to keep going.
+	 */
+	Direction decide(GameState state);
+}
@@ -0,0 +1,170 @@
+package snake;
+
+/**
+ *
+ * A grid of bytes, all zero at first, whose memory grows with the cells that
+ * are not zero rather than with the size of the board.
+ *
+ * The board is split into square chunks of CHUNK_SIZE x CHUNK_SIZE cells. A
+ * chunk is only allocated when one of its cells is set, and is released once
+ * all of them are back to zero, so huge boards cost little more than the
+ * cells the snake and the objects actually cover.
+ */
+public class SparseGrid implements Grid
+{
+	/*
+	 * Chunks are CHUNK_SIZE cells wide and high.
+	 */
+	private final static int CHUNK_SHIFT = 6;
+	private final static int CHUNK_SIZE  = 1 << CHUNK_SHIFT;
+	private final static int CHUNK_MASK  = CHUNK_SIZE - 1;
+
+	/*
+	 * Number of columns of the grid, and of chunks on each row of chunks.
+	 */
+	private final int columns;
+	private final int chunk_columns;
+
+	/*
+	 * The chunks, row by row, or null where every cell is zero.
+	 */
+	private final byte[][] chunks;
+
+	/*
+	 * The number of cells that are not zero in each chunk.
+	 */
+	private final int[] counts;
+
+	/*
+	 * The last chunk released, kept to be reused by the next one allocated,
+	 * so a snake going back and forth over a chunk's edge does not allocate
+	 * on every move. It only holds zeros.
+	 */
+	private byte[] spare;
+
+	/*
+	 * The number of chunks allocated.
+	 */
+	private int chunk_count;
+
+	/**
+	 * Instantiate a new grid, with every cell set to zero.
+	 *
+	 * @param columns the number of columns of the grid
+	 * @param rows the number of rows of the grid
+	 * @throws IllegalArgumentException if the cells can't be packed in an int.
+	 */
+	public SparseGrid(int columns, int rows)
+	{
+		if((long) columns * rows > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The board is too large: " + columns + "x" + rows);
+
+		this.columns = columns;
+
+		chunk_columns  = (columns + CHUNK_MASK) >> CHUNK_SHIFT;
+		int chunk_rows = (rows + CHUNK_MASK) >> CHUNK_SHIFT;
+
+		chunks = new byte[chunk_columns * chunk_rows][];
+		counts = new int[chunks.length];
+	}
+
+	@Override
+	public byte get(int cell)
+	{
+		int x = cell % columns;
+		int y = cell / columns;
+
+		byte[] chunk = chunks[chunkOf(x, y)];
+
+		if(chunk == null)
+			return 0;
+
+		return chunk[offsetOf(x, y)];
+	}
+
+	/**
+	 * Sets the value of a cell, allocating or releasing its chunk as needed.
+	 *
+	 * @param cell the packed cell (y * columns + x)
+	 * @param value the new value
+	 */
+	@Override
+	public void set(int cell, byte value)
+	{
+		int x = cell % columns;
+		int y = cell / columns;
+
+		int index    = chunkOf(x, y);
+		byte[] chunk = chunks[index];
+
+		if(chunk == null)
+		{
+			if(value == 0)
+				return;
+
+			chunk = allocateChunk();
+			chunks[index] = chunk;
+		}
+
+		int offset = offsetOf(x, y);
+		byte old   = chunk[offset];
+
+		if(old == value)
+			return;
+
+		chunk[offset] = value;
+
+		if(old == 0)
+		{
+			counts[index]++;
+		}
+		else if(value == 0 && --counts[index] == 0)
+		{
+			chunks[index] = null;
+			spare         = chunk;
+			chunk_count--;
+		}
+	}
+
+	/**
+	 * @return the number of chunks allocated, each of CHUNK_SIZE x CHUNK_SIZE
+	 * bytes.
+	 */
+	public int getChunkCount()
+	{
+		return chunk_count;
+	}
+
+	/**
+	 * @return a chunk with every cell set to zero.
+	 */
+	private byte[] allocateChunk()
+	{
+		byte[] chunk = spare;
+
+		if(chunk != null)
+			spare = null;
+		else
+			chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+
+		chunk_count++;
+
+		return chunk;
+	}
+
+	/**
+	 * @return the index of the chunk holding the cell of coordinates (x, y).
+	 */
+	private int chunkOf(int x, int y)
+	{
+		return (y >> CHUNK_SHIFT) * chunk_columns + (x >> CHUNK_SHIFT);
+	}
+
+	/**
+	 * @return the offset, inside its chunk, of the cell of coordinates (x, y).
+	 */
+	private static int offsetOf(int x, int y)
+	{
+		return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+	}
+}
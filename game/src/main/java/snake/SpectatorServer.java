@@ -0,0 +1,751 @@
+package snake;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Streams a single player game to any number of spectators, such as
+ * SpectatorView, as the messages of NetFormat: a STATE when a game starts or a
+ * spectator needs one, and a TICK for every move and every object generated.
+ *
+ * The game loop never touches a socket. It encodes each message into a ring
+ * buffer, which a thread of the server's own drains to the spectators, so
+ * the game runs at the same pace however many watch it, or how slowly. A
+ * spectator that falls more than MAX_BACKLOG bytes behind skips the moves it
+ * missed, and catches up with a STATE. If the server itself falls behind and
+ * the ring fills up, every spectator catches up that way. A STATE too large for
+ * the ring, as on a huge board, is handed to the server's thread on its own,
+ * the ring only holding its place. Nothing is encoded while nobody watches.
+ *
+ * The publishing methods must all be called from the game loop's thread.
+ */
+public class SpectatorServer implements Closeable
+{
+	/*
+	 * The port used when none is given.
+	 */
+	public final static int DEFAULT_PORT = 7778;
+
+	/*
+	 * The size of the ring buffer, in bytes. A power of two.
+	 */
+	private final static int RING_SIZE = 1 << 20;
+	private final static int RING_MASK = RING_SIZE - 1;
+
+	/*
+	 * The most bytes a spectator may have waiting to be sent to it.
+	 */
+	private final static int MAX_BACKLOG = 1 << 18;
+
+	/*
+	 * The initial size of the buffers, in bytes.
+	 */
+	private final static int BUFFER_SIZE = 4096;
+
+	/*
+	 * Who a message in the ring is for: the spectators that are up to date,
+	 * those waiting for a STATE, or all of them.
+	 */
+	private final static byte TO_SYNCED   = 0;
+	private final static byte TO_UNSYNCED = 1;
+	private final static byte TO_ALL      = 2;
+
+	/*
+	 * Added to the above when the message is not in the ring, but in
+	 * large_state.
+	 */
+	private final static byte OUTSIDE_RING = 4;
+
+	/*
+	 * The network, run by its own thread.
+	 */
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final Thread thread;
+
+	/*
+	 * Every spectator, only used by the server's thread.
+	 */
+	private final ArrayList<Client> clients;
+
+	/*
+	 * The number of spectators, for the game loop to know whether anybody
+	 * watches.
+	 */
+	private volatile int client_count;
+
+	/*
+	 * Set by the server's thread when a spectator needs a STATE, and cleared
+	 * by the game loop when it sends one.
+	 */
+	private volatile boolean state_requested;
+
+	/*
+	 * The ring buffer. Every entry is who it is for (a byte) followed by a
+	 * message. The game loop writes up to 'written', and the server's thread
+	 * reads up to 'read'; both only grow.
+	 */
+	private final byte[] ring;
+	private final AtomicLong written;
+	private final AtomicLong read;
+
+	/*
+	 * A STATE too large for the ring. Set by the game loop before it writes
+	 * its place in the ring, and cleared by the server's thread once sent.
+	 */
+	private volatile ByteBuffer large_state;
+
+	/*
+	 * The game loop's side: the events of the message being encoded, the
+	 * message itself, the number of moves of the current game, and whether
+	 * a message was dropped because the ring was full.
+	 */
+	private final ArenaEvents events;
+	private ByteBuffer message;
+	private int tick;
+	private boolean overrun;
+
+	/*
+	 * The server's side: the message being sent to the spectators.
+	 */
+	private ByteBuffer incoming;
+
+	/*
+	 * Whether or not the server should keep running.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Opens a server and starts accepting spectators on a daemon thread.
+	 *
+	 * @param address the address to listen on; port 0 picks a free one.
+	 * @throws IOException if the address can't be bound.
+	 */
+	public SpectatorServer(InetSocketAddress address) throws IOException
+	{
+		clients  = new ArrayList<Client>();
+		ring     = new byte[RING_SIZE];
+		written  = new AtomicLong();
+		read     = new AtomicLong();
+		events   = new ArenaEvents(1);
+		message  = ByteBuffer.allocate(BUFFER_SIZE);
+		incoming = ByteBuffer.allocate(BUFFER_SIZE);
+
+		selector = Selector.open();
+
+		ServerSocketChannel channel = null;
+
+		try
+		{
+			channel = ServerSocketChannel.open();
+
+			channel.bind(address);
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_ACCEPT);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			closeQuietly(channel);
+			closeQuietly(selector);
+			throw e;
+		}
+
+		server = channel;
+
+		running = true;
+
+		thread = new Thread(new Runnable()
+		{
+			@Override public void run()
+			{
+				serve();
+			}
+		}, "SpectatorServer");
+
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	public int getPort()
+	{
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * @return the number of spectators connected.
+	 */
+	public int getClientCount()
+	{
+		return client_count;
+	}
+
+	/**
+	 * Publishes a new game, to every spectator.
+	 *
+	 * @param state the game, before its first move.
+	 */
+	public void startGame(GameState state)
+	{
+		tick    = 0;
+		overrun = false;
+
+		events.reset();
+
+		if(client_count > 0)
+			publishState(state, TO_ALL);
+	}
+
+	/**
+	 * Publishes an object generated between two moves.
+	 *
+	 * @param state the game.
+	 * @param p the position of the object.
+	 * @param object Arena.FRUIT or Arena.DYNAMITE.
+	 */
+	public void publishSpawn(GameState state, Position p, byte object)
+	{
+		if(client_count == 0)
+			return;
+
+		events.reset();
+		events.spawned(object, toCell(state, p));
+
+		publishTick(state);
+	}
+
+	/**
+	 * Publishes a move, followed by a STATE if a spectator asked for one.
+	 *
+	 * @param state the game, after the move.
+	 * @param move what happened during the move.
+	 */
+	public void publishMove(GameState state, TickEvents move)
+	{
+		tick++;
+
+		if(client_count == 0 || !move.hasMoved())
+			return;
+
+		events.reset();
+
+		if(move.hasDied())
+		{
+			events.died(0);
+		}
+		else
+		{
+			int head = toCell(state, move.getHead());
+
+			// The tail leaves its cell unless the snake has just grown, in
+			// which case its last two blocks were on the same cell.
+			Position tail = move.getTail();
+			int left      = state.getSnakeTail().equals(tail) ? ArenaEvents.NO_CELL : toCell(state, tail);
+
+			events.moved(0, head, left);
+
+			if(move.hasScoreChanged())
+			{
+				events.taken(head);
+				events.scored(0, state.getScore());
+			}
+
+			if(move.getSpawnedFruit() != null)
+				events.spawned(Arena.FRUIT, toCell(state, move.getSpawnedFruit()));
+		}
+
+		publishTick(state);
+
+		if(state_requested)
+		{
+			state_requested = false;
+			publishState(state, TO_UNSYNCED);
+		}
+	}
+
+	/**
+	 * Disconnects every spectator and stops the server.
+	 *
+	 * @throws IOException if the server can't be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		running = false;
+		selector.wakeup();
+
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		for(int i = clients.size() - 1; i >= 0; i--)
+			disconnect(clients.get(i));
+
+		server.close();
+		selector.close();
+	}
+
+	/**
+	 * Encodes the events as a TICK message for the spectators that are up to
+	 * date. After the ring has filled up, everyone gets a STATE instead.
+	 */
+	private void publishTick(GameState state)
+	{
+		if(overrun)
+		{
+			publishState(state, TO_ALL);
+			return;
+		}
+
+		int size = NetFormat.getTickSize(events);
+
+		if(message.capacity() < size)
+			message = ByteBuffer.allocate(Math.max(size, message.capacity() * 2));
+
+		message.clear();
+		NetFormat.writeTick(message, events, tick);
+		message.flip();
+
+		publish(TO_SYNCED);
+	}
+
+	/**
+	 * Encodes the whole game as a STATE message, in the ring if it fits, or
+	 * on its own otherwise. Nothing is encoded if there is no room for it,
+	 * and the spectators will need a STATE.
+	 */
+	private void publishState(GameState state, byte audience)
+	{
+		int size = NetFormat.getStateSize(state);
+
+		if(1 + size <= RING_SIZE)
+		{
+			if(!hasRoom(1 + size))
+				return;
+
+			if(message.capacity() < size)
+				message = ByteBuffer.allocate(Math.max(size, message.capacity() * 2));
+
+			message.clear();
+			NetFormat.writeState(message, state, tick);
+			message.flip();
+
+			publish(audience);
+		}
+		else
+		{
+			if(large_state != null || !hasRoom(1))
+				return;
+
+			ByteBuffer state_message = ByteBuffer.allocate(size);
+
+			NetFormat.writeState(state_message, state, tick);
+			state_message.flip();
+
+			large_state = state_message;
+
+			long start = written.get();
+
+			ring[(int) start & RING_MASK] = (byte) (audience | OUTSIDE_RING);
+
+			written.lazySet(start + 1);
+			selector.wakeup();
+		}
+
+		if(audience == TO_ALL)
+			overrun = false;
+	}
+
+	/**
+	 * Copies the encoded message into the ring, unless it doesn't fit, in
+	 * which case it is dropped and the spectators will need a STATE.
+	 */
+	private void publish(byte audience)
+	{
+		int length = 1 + message.remaining();
+		long start = written.get();
+
+		if(!hasRoom(length))
+			return;
+
+		ring[(int) start & RING_MASK] = audience;
+		copyToRing(start + 1, message.array(), message.remaining());
+
+		written.lazySet(start + length);
+		selector.wakeup();
+	}
+
+	/**
+	 * @return true if the ring has room for the given number of bytes. If it
+	 * hasn't, the spectators will need a STATE.
+	 */
+	private boolean hasRoom(int length)
+	{
+		if(length <= RING_SIZE - (written.get() - read.get()))
+			return true;
+
+		overrun = true;
+		return false;
+	}
+
+	/**
+	 * Copies bytes into the ring at the given position, wrapping around its
+	 * end.
+	 */
+	private void copyToRing(long position, byte[] bytes, int length)
+	{
+		int offset = (int) position & RING_MASK;
+		int first  = Math.min(length, RING_SIZE - offset);
+
+		System.arraycopy(bytes, 0, ring, offset, first);
+		System.arraycopy(bytes, first, ring, 0, length - first);
+	}
+
+	/**
+	 * Copies bytes out of the ring from the given position, wrapping around
+	 * its end.
+	 */
+	private void copyFromRing(long position, byte[] bytes, int length)
+	{
+		int offset = (int) position & RING_MASK;
+		int first  = Math.min(length, RING_SIZE - offset);
+
+		System.arraycopy(ring, offset, bytes, 0, first);
+		System.arraycopy(ring, 0, bytes, first, length - first);
+	}
+
+	/**
+	 * @return the cell of a position of the game's board.
+	 */
+	private static int toCell(GameState state, Position p)
+	{
+		return p.getY() * (state.getWidth() + 1) + p.getX();
+	}
+
+	/**
+	 * Runs the server's thread: accepts spectators, sends them the messages
+	 * published by the game loop, and notices when they leave.
+	 */
+	private void serve()
+	{
+		try
+		{
+			while(running)
+			{
+				selector.select();
+
+				handleSelectedKeys();
+				drainRing();
+			}
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+	}
+
+	/**
+	 * Accepts new spectators, reads what they send, and writes what is
+	 * waiting to be sent to them.
+	 */
+	private void handleSelectedKeys()
+	{
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+		while(keys.hasNext())
+		{
+			SelectionKey key = keys.next();
+			keys.remove();
+
+			if(!key.isValid())
+				continue;
+
+			if(key.isAcceptable())
+			{
+				accept();
+				continue;
+			}
+
+			Client client = (Client) key.attachment();
+
+			if(key.isReadable())
+				read(client);
+
+			if(key.isValid() && key.isWritable())
+				flush(client);
+		}
+	}
+
+	/**
+	 * Accepts a spectator, which waits for a STATE.
+	 */
+	private void accept()
+	{
+		SocketChannel channel = null;
+
+		try
+		{
+			channel = server.accept();
+
+			if(channel == null)
+				return;
+
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+			Client client = new Client(channel);
+			client.key    = channel.register(selector, SelectionKey.OP_READ, client);
+
+			clients.add(client);
+			client_count = clients.size();
+
+			state_requested = true;
+		}
+		catch (IOException ioe)
+		{
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Reads and ignores what a spectator sends, to notice when it leaves.
+	 */
+	private void read(Client client)
+	{
+		try
+		{
+			client.in.clear();
+
+			if(client.channel.read(client.in) < 0)
+				disconnect(client);
+		}
+		catch (IOException ioe)
+		{
+			disconnect(client);
+		}
+	}
+
+	/**
+	 * Sends every message in the ring to the spectators it is for.
+	 */
+	private void drainRing()
+	{
+		long position = read.get();
+		long end      = written.get();
+
+		while(position < end)
+		{
+			byte audience = ring[(int) position & RING_MASK];
+
+			if((audience & OUTSIDE_RING) != 0)
+			{
+				position += 1;
+				read.lazySet(position);
+
+				dispatch(large_state, (byte) (audience & ~OUTSIDE_RING));
+				large_state = null;
+				continue;
+			}
+
+			// The message's length, which does not count itself.
+			int length = 4;
+
+			for(int i = 1; i <= 4; i++)
+				length += (ring[(int) (position + i) & RING_MASK] & 0xFF) << (8 * (4 - i));
+
+			if(incoming.capacity() < length)
+				incoming = ByteBuffer.allocate(Math.max(length, incoming.capacity() * 2));
+
+			copyFromRing(position + 1, incoming.array(), length);
+
+			incoming.clear();
+			incoming.limit(length);
+
+			position += 1 + length;
+			read.lazySet(position);
+
+			dispatch(incoming, audience);
+		}
+	}
+
+	/**
+	 * Sends a message to the spectators it is for.
+	 */
+	private void dispatch(ByteBuffer message, byte audience)
+	{
+		for(int i = clients.size() - 1; i >= 0; i--)
+		{
+			Client client = clients.get(i);
+
+			if(audience == TO_ALL || (audience == TO_SYNCED) == client.synced)
+				send(client, message, audience != TO_SYNCED);
+		}
+	}
+
+	/**
+	 * Queues a message for a spectator and writes as much as the socket takes
+	 * right away. A spectator too far behind drops its backlog,
+	 * but for the message it is in the middle of, and waits for a STATE; a
+	 * STATE always gets through.
+	 */
+	private void send(Client client, ByteBuffer message, boolean is_state)
+	{
+		int length     = message.remaining();
+		ByteBuffer out = client.out;
+
+		if(out.position() + length > MAX_BACKLOG)
+		{
+			out.position(client.partial);
+
+			if(!is_state)
+			{
+				client.synced   = false;
+				state_requested = true;
+				return;
+			}
+		}
+
+		if(out.remaining() < length)
+		{
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(out.position() + length,
+			                                                out.capacity() * 2));
+			out.flip();
+			grown.put(out);
+
+			out = grown;
+			client.out = grown;
+		}
+
+		out.put(message.array(), 0, length);
+
+		if(is_state)
+			client.synced = true;
+
+		flush(client);
+	}
+
+	/**
+	 * Writes what is waiting to be sent to a spectator, keeping track of how
+	 * much of the message it is in the middle of is left, and asks the
+	 * selector to tell when the socket can take more if some is left.
+	 */
+	private void flush(Client client)
+	{
+		ByteBuffer out = client.out;
+
+		try
+		{
+			out.flip();
+
+			int start = out.position();
+			client.channel.write(out);
+			int end   = out.position();
+
+			// Walk the messages fully written, to find where the last one
+			// written in part ends.
+			int boundary = start + client.partial;
+
+			while(boundary < end)
+				boundary += 4 + out.getInt(boundary);
+
+			client.partial = boundary - end;
+
+			out.compact();
+		}
+		catch (IOException ioe)
+		{
+			disconnect(client);
+			return;
+		}
+
+		if(out.position() > 0)
+			client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		else
+			client.key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Closes a spectator's connection.
+	 */
+	private void disconnect(Client client)
+	{
+		if(!clients.remove(client))
+			return;
+
+		client_count = clients.size();
+
+		client.key.cancel();
+		closeQuietly(client.channel);
+	}
+
+	/**
+	 * Closes a channel, ignoring errors as it is being dropped anyway.
+	 */
+	private static void closeQuietly(Closeable channel)
+	{
+		if(channel == null)
+			return;
+
+		try
+		{
+			channel.close();
+		}
+		catch (IOException ioe)
+		{
+			// Nothing left to do with this channel.
+		}
+	}
+
+	/**
+	 * A connected spectator.
+	 */
+	private final static class Client
+	{
+		/*
+		 * The spectator's socket, and its registration with the selector.
+		 */
+		final SocketChannel channel;
+		SelectionKey key;
+
+		/*
+		 * Whether the spectator is up to date, rather than waiting for a
+		 * STATE.
+		 */
+		boolean synced;
+
+		/*
+		 * Bytes read from the spectator, and bytes waiting to be sent to it,
+		 * of which the first 'partial' are the end of a message already sent
+		 * in part.
+		 */
+		final ByteBuffer in;
+		ByteBuffer out;
+		int partial;
+
+		Client(SocketChannel channel)
+		{
+			this.channel = channel;
+
+			in  = ByteBuffer.allocate(64);
+			out = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	}
+}
@@ -0,0 +1,596 @@
+package snake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import com.googlecode.lanterna.input.Key;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.terminal.Terminal.Color;
+import com.googlecode.lanterna.terminal.swing.SwingTerminal;
+
+/**
+ *
+ * Watches the games of a GameView streamed by a SpectatorServer, or the arena
+ * of a GameServer, in a terminal of its own.
+ *
+ * The board is rebuilt from every STATE message and kept up to date by every
+ * TICK message, as described in NetFormat, and only the cells a TICK changes
+ * are drawn again. The viewport scrolls the way GameView's does, following
+ * the head of the first snake alive. Pressing 'q' or Escape quits.
+ */
+public class SpectatorView
+{
+	/*
+	 * The time in milliseconds between two checks of the keyboard, while
+	 * nothing comes from the game.
+	 */
+	private final static long POLL_INTERVAL = 50;
+
+	/*
+	 * The initial size of the buffer messages are read into, in bytes.
+	 */
+	private final static int BUFFER_SIZE = 4096;
+
+	/*
+	 * The content of a cell. Walls are not stored: they are told by their
+	 * coordinates.
+	 */
+	private final static byte EMPTY    = 0;
+	private final static byte BODY     = 1;
+	private final static byte HEAD     = 2;
+	private final static byte FRUIT    = 3;
+	private final static byte DYNAMITE = 4;
+
+	/*
+	 * The connection to the game, and the messages read but not handled yet.
+	 */
+	private final SocketChannel channel;
+	private final Selector selector;
+	private ByteBuffer in;
+
+	/*
+	 * The terminal, and the keys pressed on it.
+	 */
+	private final SwingTerminal terminal;
+	private final Screen screen;
+	private final InputReader input;
+
+	/*
+	 * The size of the viewport, which is the terminal without the status
+	 * line, and the board coordinates of its top left corner.
+	 */
+	private final int viewport_width;
+	private final int viewport_height;
+	private int viewport_x;
+	private int viewport_y;
+
+	/*
+	 * The game play dimensions, or 0 until the first STATE, and the number of
+	 * columns of the board, walls included.
+	 */
+	private int width;
+	private int height;
+	private int columns;
+
+	/*
+	 * The content of every cell.
+	 */
+	private Grid cells;
+
+	/*
+	 * The cells of each snake, from tail to head, its score and whether it is
+	 * alive.
+	 */
+	private final ArrayList<ArrayDeque<Integer>> bodies;
+	private int[] scores;
+	private boolean[] alive;
+
+	/*
+	 * The last move received.
+	 */
+	private int tick;
+
+	/*
+	 * Cells changed since the last frame, which are the only ones redrawn,
+	 * unless the whole viewport is.
+	 */
+	private final ArrayList<Integer> dirty_cells;
+	private boolean redraw;
+
+	/**
+	 * Connects to a game and opens the terminal to watch it in.
+	 *
+	 * @param address the address of the game's server.
+	 * @param width the terminal width.
+	 * @param height the terminal height.
+	 * @throws IOException if the game can't be reached.
+	 */
+	private SpectatorView(InetSocketAddress address, int width, int height) throws IOException
+	{
+		channel  = SocketChannel.open(address);
+		selector = Selector.open();
+
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ);
+
+		in = ByteBuffer.allocate(BUFFER_SIZE);
+
+		viewport_width  = width;
+		viewport_height = height - 1;
+
+		bodies      = new ArrayList<ArrayDeque<Integer>>();
+		dirty_cells = new ArrayList<Integer>();
+
+		terminal = new SwingTerminal(width, height);
+
+		screen = new Screen(terminal);
+		screen.setCursorPosition(null);		// Hack to hide cursor.
+		screen.startScreen();
+
+		input = new InputReader(terminal);
+		input.start();
+	}
+
+	/**
+	 * Watches the game until it ends or the user quits.
+	 */
+	private void run()
+	{
+		drawMessage("Waiting for the game...");
+		screen.refresh();
+
+		try
+		{
+			while(!hasQuit())
+			{
+				selector.select(POLL_INTERVAL);
+				selector.selectedKeys().clear();
+
+				if(!receive())
+				{
+					drawMessage("The game is over. Press any key.");
+					screen.refresh();
+
+					waitForKey();
+					break;
+				}
+
+				draw();
+			}
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+
+		input.stop();
+		terminal.exitPrivateMode();
+
+		try
+		{
+			selector.close();
+			channel.close();
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads what the game has sent and handles every whole message.
+	 *
+	 * @return false if the game has closed the connection.
+	 * @throws IOException if the connection fails, or a message is not a
+	 * valid one.
+	 */
+	private boolean receive() throws IOException
+	{
+		int read = channel.read(in);
+
+		in.flip();
+
+		while(in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position()))
+		{
+			int end = in.position() + 4 + in.getInt();
+
+			handleMessage();
+			in.position(end);
+		}
+
+		// Make room for a message larger than the buffer.
+		if(in.remaining() >= 4 && 4 + in.getInt(in.position()) > in.capacity())
+		{
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(4 + in.getInt(in.position()),
+			                                                in.capacity() * 2));
+			grown.put(in);
+			in = grown;
+		}
+		else
+		{
+			in.compact();
+		}
+
+		return read >= 0;
+	}
+
+	/**
+	 * Handles the message at the buffer's position, its length skipped.
+	 */
+	private void handleMessage() throws IOException
+	{
+		byte type = in.get();
+
+		if(type == NetFormat.STATE)
+			readState();
+		else if(type == NetFormat.TICK)
+			readTick();
+		else
+			throw new IOException("Unknown message type " + type);
+	}
+
+	/**
+	 * Rebuilds the board from a STATE message.
+	 */
+	private void readState() throws IOException
+	{
+		short version = in.getShort();
+
+		if(version != NetFormat.VERSION)
+			throw new IOException("Unsupported version " + version);
+
+		width   = in.getInt();
+		height  = in.getInt();
+		tick    = in.getInt();
+		columns = width + 1;
+
+		in.get(); // The snake played, which a spectator has none of.
+
+		cells = new SparseGrid(columns, height + 1);
+
+		int snake_count = in.get();
+
+		bodies.clear();
+		scores = new int[snake_count];
+		alive  = new boolean[snake_count];
+
+		for(int i = 0; i < snake_count; i++)
+		{
+			ArrayDeque<Integer> body = new ArrayDeque<Integer>();
+
+			alive[i]  = in.get() != 0;
+			scores[i] = in.getInt();
+
+			in.get(); // The direction, which is not drawn.
+
+			int length = in.getInt();
+
+			for(int j = 0; j < length; j++)
+			{
+				int cell = in.getInt();
+
+				body.addLast(cell);
+				cells.set(cell, (j == length - 1) ? HEAD : BODY);
+			}
+
+			bodies.add(body);
+		}
+
+		readObjects(FRUIT);
+		readObjects(DYNAMITE);
+
+		dirty_cells.clear();
+		redraw = true;
+	}
+
+	/**
+	 * Places the objects of a STATE message.
+	 */
+	private void readObjects(byte object)
+	{
+		int count = in.getInt();
+
+		for(int i = 0; i < count; i++)
+			cells.set(in.getInt(), object);
+	}
+
+	/**
+	 * Applies a TICK message to the board, in the order its parts are
+	 * described in NetFormat. Ticks received before the first STATE are
+	 * skipped.
+	 */
+	private void readTick()
+	{
+		int new_tick = in.getInt();
+
+		if(cells == null)
+			return;
+
+		tick = new_tick;
+
+		int moved = in.get();
+
+		for(int i = 0; i < moved; i++)
+		{
+			ArrayDeque<Integer> body = bodies.get(in.get());
+
+			int head = in.getInt();
+			int tail = in.getInt();
+
+			if(tail != ArenaEvents.NO_CELL)
+			{
+				body.pollFirst();
+				setCell(tail, EMPTY);
+			}
+
+			if(!body.isEmpty())
+				setCell(body.peekLast(), BODY);
+
+			body.addLast(head);
+			setCell(head, HEAD);
+		}
+
+		int died = in.get();
+
+		for(int i = 0; i < died; i++)
+		{
+			int snake = in.get();
+
+			for(int cell : bodies.get(snake))
+				setCell(cell, EMPTY);
+
+			bodies.get(snake).clear();
+			alive[snake] = false;
+		}
+
+		int spawned = in.getShort();
+
+		for(int i = 0; i < spawned; i++)
+		{
+			byte kind = in.get();
+
+			setCell(in.getInt(), (kind == Arena.FRUIT) ? FRUIT : DYNAMITE);
+		}
+
+		int taken = in.getShort();
+
+		for(int i = 0; i < taken; i++)
+		{
+			int cell = in.getInt();
+
+			// The head that took the object may already stand on its cell.
+			byte object = cells.get(cell);
+
+			if(object == FRUIT || object == DYNAMITE)
+				setCell(cell, EMPTY);
+		}
+
+		int scored = in.get();
+
+		for(int i = 0; i < scored; i++)
+		{
+			int snake = in.get();
+
+			scores[snake] = in.getInt();
+		}
+	}
+
+	/**
+	 * Changes a cell, and marks it to be redrawn.
+	 */
+	private void setCell(int cell, byte value)
+	{
+		cells.set(cell, value);
+		dirty_cells.add(cell);
+	}
+
+	/**
+	 * Draws what changed since the last frame, and the status line.
+	 */
+	private void draw()
+	{
+		if(cells == null || (dirty_cells.isEmpty() && !redraw))
+			return;
+
+		if(followHead() || redraw)
+		{
+			for(int y = 0; y < viewport_height; y++)
+			{
+				for(int x = 0; x < viewport_width; x++)
+					drawCell(viewport_x + x, viewport_y + y);
+			}
+		}
+		else
+		{
+			for(int i = 0; i < dirty_cells.size(); i++)
+			{
+				int cell = dirty_cells.get(i);
+
+				drawCell(cell % columns, cell / columns);
+			}
+		}
+
+		dirty_cells.clear();
+		redraw = false;
+
+		drawStatus();
+		screen.refresh();
+	}
+
+	/**
+	 * Scrolls the viewport if the head of the first snake alive is too close
+	 * to one of its edges.
+	 *
+	 * @return true if the viewport has moved.
+	 */
+	private boolean followHead()
+	{
+		for(int i = 0; i < bodies.size(); i++)
+		{
+			if(!alive[i] || bodies.get(i).isEmpty())
+				continue;
+
+			int head = bodies.get(i).peekLast();
+
+			int x = GameView.scroll(viewport_x, head % columns, viewport_width, width + 1);
+			int y = GameView.scroll(viewport_y, head / columns, viewport_height, height + 1);
+
+			if(x == viewport_x && y == viewport_y)
+				return false;
+
+			viewport_x = x;
+			viewport_y = y;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Draws a cell of the board, if it is inside the viewport.
+	 *
+	 * @param board_x the x coordinate on the board.
+	 * @param board_y the y coordinate on the board.
+	 */
+	private void drawCell(int board_x, int board_y)
+	{
+		int x = board_x - viewport_x;
+		int y = board_y - viewport_y;
+
+		if(x < 0 || x >= viewport_width || y < 0 || y >= viewport_height)
+			return;
+
+		// The board may be smaller than the terminal.
+		if(board_x > width || board_y > height)
+		{
+			screen.putString(x, y, GameView.EMPTY_STRING, null, null);
+			return;
+		}
+
+		if(board_x == 0 || board_x == width || board_y == 0 || board_y == height)
+		{
+			screen.putString(x, y, GameView.BORDER_STRING, null, null);
+			return;
+		}
+
+		switch(cells.get(board_y * columns + board_x))
+		{
+			case HEAD:
+				screen.putString(x, y, GameView.SNAKE_HEAD_STRING, Color.GREEN, null);
+				break;
+
+			case BODY:
+				screen.putString(x, y, GameView.SNAKE_BODY_STRING, Color.GREEN, null);
+				break;
+
+			case FRUIT:
+				screen.putString(x, y, GameView.FRUIT_STRING, Color.RED, null);
+				break;
+
+			case DYNAMITE:
+				screen.putString(x, y, GameView.DYNAMITE_STRING, Color.YELLOW, null);
+				break;
+
+			default:
+				screen.putString(x, y, GameView.EMPTY_STRING, null, null);
+				break;
+		}
+	}
+
+	/**
+	 * Draws the move and every snake's score below the viewport.
+	 */
+	private void drawStatus()
+	{
+		StringBuilder status = new StringBuilder();
+
+		status.append("MOVE: ").append(tick);
+
+		if(scores.length == 1)
+		{
+			status.append("  SCORE: ").append(scores[0]);
+		}
+		else
+		{
+			for(int i = 0; i < scores.length; i++)
+				status.append("  P").append(i + 1).append(": ").append(scores[i]);
+		}
+
+		drawMessage(status.toString());
+	}
+
+	/**
+	 * Replaces the status line with the given text.
+	 */
+	private void drawMessage(String message)
+	{
+		StringBuilder line = new StringBuilder(message);
+
+		while(line.length() < viewport_width)
+			line.append(' ');
+
+		screen.putString(0, viewport_height, line.substring(0, viewport_width), Color.CYAN, null);
+	}
+
+	/**
+	 * @return true if 'q' or Escape was pressed.
+	 */
+	private boolean hasQuit()
+	{
+		Key k;
+
+		while((k = input.poll()) != null)
+		{
+			if(k.getKind() == Key.Kind.Escape
+			   || (k.getKind() == Key.Kind.NormalKey && k.getCharacter() == 'q'))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Waits until a key is pressed.
+	 */
+	private void waitForKey()
+	{
+		try
+		{
+			input.take();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Watches a game running on this machine, e.g. a GameView started with
+	 * -Dsnake.spectate.port=7778.
+	 *
+	 * @param args the optional port, SpectatorServer.DEFAULT_PORT by default.
+	 */
+	public static void main(String[] args)
+	{
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : SpectatorServer.DEFAULT_PORT;
+
+		try
+		{
+			SpectatorView view = new SpectatorView(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+			                                       GameView.LARGE_WIDTH, GameView.LARGE_HEIGHT);
+			view.run();
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package snake;
+
+/**
+ *
+ * What happened during a single move of the snake. The engine reuses the same
+ * object on every move, so its contents are only valid until the next one.
+ */
+public class TickEvents
+{
+	/*
+	 * The snake's tail and head before the move, and its head after it.
+	 */
+	private Position tail;
+	private Position previous_head;
+	private Position head;
+
+	/*
+	 * Whether or not the snake ate a fruit, stepped over a dynamite or died.
+	 */
+	private boolean ate_fruit;
+	private boolean stepped_dynamite;
+	private boolean died;
+
+	/*
+	 * The fruit generated to replace the eaten one, if any.
+	 */
+	private Position spawned_fruit;
+
+	/**
+	 * Clears every event, ready for a new move.
+	 */
+	void reset()
+	{
+		tail             = null;
+		previous_head    = null;
+		head             = null;
+		ate_fruit        = false;
+		stepped_dynamite = false;
+		died             = false;
+		spawned_fruit    = null;
+	}
+
+	/**
+	 * Records the snake's movement.
+	 *
+	 * @param tail the tail before the move.
+	 * @param previous_head the head before the move.
+	 * @param head the head after the move.
+	 */
+	void moved(Position tail, Position previous_head, Position head)
+	{
+		this.tail          = tail;
+		this.previous_head = previous_head;
+		this.head          = head;
+	}
+
+	/**
+	 * Records that the snake ate a fruit.
+	 *
+	 * @param spawned_fruit the new fruit, or null if the board is full.
+	 */
+	void ateFruit(Position spawned_fruit)
+	{
+		this.ate_fruit     = true;
+		this.spawned_fruit = spawned_fruit;
+	}
+
+	/**
+	 * Records that the snake stepped over a dynamite.
+	 */
+	void steppedDynamite()
+	{
+		stepped_dynamite = true;
+	}
+
+	/**
+	 * Records that the snake died.
+	 */
+	void died()
+	{
+		died = true;
+	}
+
+	/**
+	 * @return the snake's tail before the move.
+	 */
+	public Position getTail()
+	{
+		return tail;
+	}
+
+	/**
+	 * @return the snake's head before the move.
+	 */
+	public Position getPreviousHead()
+	{
+		return previous_head;
+	}
+
+	/**
+	 * @return the snake's head after the move.
+	 */
+	public Position getHead()
+	{
+		return head;
+	}
+
+	/**
+	 * @return true if the snake has moved.
+	 */
+	public boolean hasMoved()
+	{
+		return head != null;
+	}
+
+	/**
+	 * @return true if the snake ate a fruit.
+	 */
+	public boolean hasEatenFruit()
+	{
+		return ate_fruit;
+	}
+
+	/**
+	 * @return true if the snake stepped over a dynamite.
+	 */
+	public boolean hasSteppedDynamite()
+	{
+		return stepped_dynamite;
+	}
+
+	/**
+	 * @return true if the snake collided and died.
+	 */
+	public boolean hasDied()
+	{
+		return died;
+	}
+
+	/**
+	 * @return true if the score has changed.
+	 */
+	public boolean hasScoreChanged()
+	{
+		return ate_fruit || stepped_dynamite;
+	}
+
+	/**
+	 * @return the fruit generated to replace the eaten one, or null.
+	 */
+	public Position getSpawnedFruit()
+	{
+		return spawned_fruit;
+	}
+}
@@ -0,0 +1,346 @@
+package snake;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *
+ * Where the time of the game loop goes. Every move is timed phase by phase,
+ * along with how late it started compared to its schedule and how many bytes
+ * it allocated, and every frame counts the cells it drew. Each of these goes
+ * to a Histogram, so percentiles stay available however long the game runs.
+ *
+ * The game loop records, and anyone may read: the metrics are published as an
+ * MBean by register(), and printed at a fixed rate by startDump().
+ */
+public class TickMetrics implements TickMetricsMBean
+{
+	/*
+	 * The name the metrics are registered under.
+	 */
+	public final static String OBJECT_NAME = "snake:type=TickMetrics";
+
+	/*
+	 * Phases by their ordinal, to index the histograms without allocating.
+	 */
+	private final static TickPhase[] PHASES = TickPhase.values();
+
+	/*
+	 * The time taken by each phase.
+	 */
+	private final Histogram[] phases;
+
+	/*
+	 * How late each move started.
+	 */
+	private final Histogram jitter;
+
+	/*
+	 * The bytes allocated by each move, and the cells drawn by each frame.
+	 */
+	private final Histogram allocations;
+	private final Histogram cell_writes;
+
+	/*
+	 * Tells how many bytes a thread has allocated, or null if the JVM can't.
+	 */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/*
+	 * The bytes the game thread had allocated when the current move started.
+	 */
+	private long allocated_at_start;
+
+	/*
+	 * The timer printing the metrics, if any.
+	 */
+	private Timer dump_timer;
+
+	/**
+	 * Instantiate a new set of metrics, with nothing recorded.
+	 */
+	public TickMetrics()
+	{
+		phases = new Histogram[PHASES.length];
+
+		for(int i = 0; i < phases.length; i++)
+			phases[i] = new Histogram();
+
+		jitter      = new Histogram();
+		allocations = new Histogram();
+		cell_writes = new Histogram();
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if(bean instanceof com.sun.management.ThreadMXBean
+		   && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+		{
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		else
+		{
+			threads = null;
+		}
+	}
+
+	/**
+	 * Records the time taken by a phase.
+	 *
+	 * @param phase the phase.
+	 * @param start the value of System.nanoTime() when the phase started.
+	 * @return the value of System.nanoTime() now, which is when the next
+	 * phase starts.
+	 */
+	public long record(TickPhase phase, long start)
+	{
+		long now = System.nanoTime();
+
+		phases[phase.ordinal()].record(now - start);
+
+		return now;
+	}
+
+	/**
+	 * Marks the start of a move, on the thread that runs it.
+	 *
+	 * @param lateness how many nanoseconds after its scheduled time the move
+	 * starts.
+	 */
+	public void startTick(long lateness)
+	{
+		jitter.record(lateness);
+
+		if(threads != null)
+			allocated_at_start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Marks the end of a move, on the thread that ran it.
+	 */
+	public void endTick()
+	{
+		if(threads != null)
+		{
+			long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+			allocations.record(allocated - allocated_at_start);
+		}
+	}
+
+	/**
+	 * Records the number of cells drawn by a frame.
+	 *
+	 * @param writes the number of cells.
+	 */
+	public void recordCellWrites(int writes)
+	{
+		cell_writes.record(writes);
+	}
+
+	/**
+	 * Publishes the metrics to the platform's MBean server.
+	 *
+	 * @throws JMException if they can't be registered, e.g. if some already
+	 * are under OBJECT_NAME.
+	 */
+	public void register() throws JMException
+	{
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Prints the summary at a fixed rate, on a daemon thread, until
+	 * stopDump() is called.
+	 *
+	 * @param period_millis the time in milliseconds between two prints.
+	 * @param out where to print.
+	 */
+	public synchronized void startDump(long period_millis, final PrintStream out)
+	{
+		stopDump();
+
+		dump_timer = new Timer("TickMetrics dump", true);
+		dump_timer.scheduleAtFixedRate(new TimerTask()
+		{
+			@Override public void run()
+			{
+				out.println(getSummary());
+			}
+		}, period_millis, period_millis);
+	}
+
+	/**
+	 * Stops printing the summary.
+	 */
+	public synchronized void stopDump()
+	{
+		if(dump_timer != null)
+		{
+			dump_timer.cancel();
+			dump_timer = null;
+		}
+	}
+
+	@Override
+	public long getTickCount()
+	{
+		return jitter.getCount();
+	}
+
+	@Override
+	public String[] getPhaseNames()
+	{
+		String[] names = new String[PHASES.length];
+
+		for(int i = 0; i < names.length; i++)
+			names[i] = PHASES[i].name();
+
+		return names;
+	}
+
+	@Override
+	public double[] getPhaseMeanNanos()
+	{
+		double[] means = new double[phases.length];
+
+		for(int i = 0; i < means.length; i++)
+			means[i] = phases[i].getMean();
+
+		return means;
+	}
+
+	@Override
+	public long[] getPhaseP50Nanos()
+	{
+		return getPhasePercentiles(50);
+	}
+
+	@Override
+	public long[] getPhaseP99Nanos()
+	{
+		return getPhasePercentiles(99);
+	}
+
+	@Override
+	public long[] getPhaseMaxNanos()
+	{
+		long[] maxes = new long[phases.length];
+
+		for(int i = 0; i < maxes.length; i++)
+			maxes[i] = phases[i].getMax();
+
+		return maxes;
+	}
+
+	@Override
+	public long getJitterP50Nanos()
+	{
+		return jitter.getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getJitterP99Nanos()
+	{
+		return jitter.getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getJitterMaxNanos()
+	{
+		return jitter.getMax();
+	}
+
+	@Override
+	public double getMeanAllocatedBytesPerTick()
+	{
+		return (threads != null) ? allocations.getMean() : -1;
+	}
+
+	@Override
+	public long getMaxAllocatedBytesPerTick()
+	{
+		return (threads != null) ? allocations.getMax() : -1;
+	}
+
+	@Override
+	public double getMeanCellWritesPerFrame()
+	{
+		return cell_writes.getMean();
+	}
+
+	@Override
+	public long getMaxCellWritesPerFrame()
+	{
+		return cell_writes.getMax();
+	}
+
+	@Override
+	public String getSummary()
+	{
+		StringBuilder summary = new StringBuilder();
+
+		summary.append(String.format("%d moves, jitter p50 %.1f us, p99 %.1f us, max %.1f us%n",
+		                             getTickCount(), micros(getJitterP50Nanos()),
+		                             micros(getJitterP99Nanos()), micros(getJitterMaxNanos())));
+
+		for(int i = 0; i < phases.length; i++)
+		{
+			Histogram h = phases[i];
+
+			summary.append(String.format("  %-9s mean %8.1f us, p50 %8.1f us, p99 %8.1f us, max %8.1f us%n",
+			                             PHASES[i].name(), h.getMean() / 1000,
+			                             micros(h.getValueAtPercentile(50)),
+			                             micros(h.getValueAtPercentile(99)), micros(h.getMax())));
+		}
+
+		summary.append(String.format("  allocated per move: mean %.1f B, max %d B%n",
+		                             getMeanAllocatedBytesPerTick(), getMaxAllocatedBytesPerTick()));
+		summary.append(String.format("  cells drawn per frame: mean %.1f, max %d",
+		                             getMeanCellWritesPerFrame(), getMaxCellWritesPerFrame()));
+
+		return summary.toString();
+	}
+
+	/**
+	 * Forgets everything recorded so far. Values recorded meanwhile by the
+	 * game loop may be lost.
+	 */
+	@Override
+	public void reset()
+	{
+		for(Histogram h : phases)
+			h.reset();
+
+		jitter.reset();
+		allocations.reset();
+		cell_writes.reset();
+	}
+
+	/**
+	 * @return the given percentile of the time taken by each phase.
+	 */
+	private long[] getPhasePercentiles(double percentile)
+	{
+		long[] values = new long[phases.length];
+
+		for(int i = 0; i < values.length; i++)
+			values[i] = phases[i].getValueAtPercentile(percentile);
+
+		return values;
+	}
+
+	/**
+	 * @return the given nanoseconds, in microseconds.
+	 */
+	private static double micros(long nanos)
+	{
+		return nanos / 1000.0;
+	}
+}
@@ -0,0 +1,87 @@
+package snake;
+
+/**
+ *
+ * The management interface of TickMetrics, as shown by JMX consoles such as
+ * jconsole or VisualVM under snake:type=TickMetrics. Times are in
+ * nanoseconds, and phase arrays are indexed like getPhaseNames().
+ */
+public interface TickMetricsMBean
+{
+	/**
+	 * @return the number of moves timed.
+	 */
+	long getTickCount();
+
+	/**
+	 * @return the names of the phases, in the order of the phase arrays.
+	 */
+	String[] getPhaseNames();
+
+	/**
+	 * @return the mean time taken by each phase.
+	 */
+	double[] getPhaseMeanNanos();
+
+	/**
+	 * @return the median time taken by each phase.
+	 */
+	long[] getPhaseP50Nanos();
+
+	/**
+	 * @return the 99th percentile of the time taken by each phase.
+	 */
+	long[] getPhaseP99Nanos();
+
+	/**
+	 * @return the longest time taken by each phase.
+	 */
+	long[] getPhaseMaxNanos();
+
+	/**
+	 * @return the median delay between the time a move was due and the time
+	 * it started.
+	 */
+	long getJitterP50Nanos();
+
+	/**
+	 * @return the 99th percentile of that delay.
+	 */
+	long getJitterP99Nanos();
+
+	/**
+	 * @return the longest of these delays.
+	 */
+	long getJitterMaxNanos();
+
+	/**
+	 * @return the mean number of bytes allocated by a move, or -1 if the JVM
+	 * can't tell.
+	 */
+	double getMeanAllocatedBytesPerTick();
+
+	/**
+	 * @return the most bytes allocated by a move, or -1 if the JVM can't tell.
+	 */
+	long getMaxAllocatedBytesPerTick();
+
+	/**
+	 * @return the mean number of cells drawn by a frame.
+	 */
+	double getMeanCellWritesPerFrame();
+
+	/**
+	 * @return the most cells drawn by a frame.
+	 */
+	long getMaxCellWritesPerFrame();
+
+	/**
+	 * @return all of the above, as text.
+	 */
+	String getSummary();
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	void reset();
+}
@@ -0,0 +1,43 @@
+package snake;
+
+/**
+ *
+ * The phases of a move and of a frame, as timed by TickMetrics.
+ */
+public enum TickPhase
+{
+	/*
+	 * Reading the player's keys.
+	 */
+	INPUT,
+
+	/*
+	 * Moving the snake.
+	 */
+	MOVE,
+
+	/*
+	 * Checking whether the snake hit a wall or itself.
+	 */
+	COLLISION,
+
+	/*
+	 * Eating fruits, stepping on dynamites, and updating the score.
+	 */
+	SCORING,
+
+	/*
+	 * Generating new objects on the timer.
+	 */
+	SPAWN,
+
+	/*
+	 * Drawing the changed cells on the screen buffer.
+	 */
+	RENDER,
+
+	/*
+	 * Copying the screen buffer to the terminal.
+	 */
+	REFRESH
+}
@@ -0,0 +1,576 @@
+package snake;
+
+import java.nio.FloatBuffer;
+
+/**
+ *
+ * Many games played side by side, for training agents by reinforcement
+ * learning. Every call to step() moves the snake of every board once, given
+ * one action per board, and reports the reward it earned and whether its game
+ * is over; observe() then writes every board as a grid of floats.
+ *
+ * The rules are those of GameState and BatchRunner: turning back is ignored,
+ * walls and the snake's own body kill, a fruit is worth twice the snake's size
+ * plus the number of dynamites and is replaced right away, and a dynamite
+ * costs the configuration's penalty. A fruit and a dynamite are placed every
+ * spawn_interval moves, starting with the first one.
+ *
+ * The boards are not objects: each property of all of them lives in a single
+ * primitive array, indexed by board, and each board's body is a ring buffer
+ * in one shared array. Neither step() nor observe() allocates anything.
+ *
+ * A board whose game is over starts a new game within the same step(), so the
+ * observation that follows is the first of the new game. Like GameRandom, an
+ * environment is not thread-safe; use one per thread to step boards in
+ * parallel.
+ */
+public class VectorEnvironment
+{
+	/*
+	 * The actions of step(): keep going, or turn to a Direction, numbered by
+	 * its ordinal plus one as in NetFormat.
+	 */
+	public final static int NO_TURN = 0;
+
+	/*
+	 * The channels of an observation: cells that kill (walls and the body,
+	 * head included), the head, fruits and dynamites.
+	 */
+	public final static int BLOCKED_CHANNEL  = 0;
+	public final static int HEAD_CHANNEL     = 1;
+	public final static int FRUIT_CHANNEL    = 2;
+	public final static int DYNAMITE_CHANNEL = 3;
+	public final static int CHANNEL_COUNT    = 4;
+
+	/*
+	 * The content of a cell.
+	 */
+	private final static byte EMPTY    = 0;
+	private final static byte WALL     = 1;
+	private final static byte BODY     = 2;
+	private final static byte FRUIT    = 3;
+	private final static byte DYNAMITE = 4;
+
+	/*
+	 * The direction every snake starts with, by its ordinal. The ordinals of
+	 * opposite directions only differ by their lowest bit.
+	 */
+	private final static int START_DIRECTION = Direction.RIGHT.ordinal();
+
+	/*
+	 * The number of random cells tried before looking for a free cell in
+	 * order.
+	 */
+	private final static int MAX_SAMPLING_ATTEMPTS = 64;
+
+	/*
+	 * The number of boards, and the dimensions shared by all of them.
+	 */
+	private final int count;
+	private final int width;
+	private final int height;
+	private final int columns;
+	private final int rows;
+	private final int board_cells;
+
+	/*
+	 * The snake's initial length, the row it starts on, and the points a
+	 * dynamite costs.
+	 */
+	private final int initial_size;
+	private final int start_row;
+	private final int score_penalty;
+
+	/*
+	 * The number of moves between two new objects, and after which a game is
+	 * cut short, or 0 for none.
+	 */
+	private final int spawn_interval;
+	private final int max_steps;
+
+	/*
+	 * The content of every cell of every board, board after board, and of a
+	 * board with nothing but its walls.
+	 */
+	private final byte[] cells;
+	private final byte[] empty_board;
+
+	/*
+	 * The bodies, from tail to head: each board has a ring buffer of
+	 * body_capacity cells, starting at its index times body_capacity, and
+	 * holding lengths[board] cells from tails[board] on.
+	 */
+	private final int body_capacity;
+	private final int[] bodies;
+	private final int[] tails;
+	private final int[] lengths;
+
+	/*
+	 * The head's cell and the direction's ordinal of every snake.
+	 */
+	private final int[] heads;
+	private final byte[] directions;
+
+	/*
+	 * The score, the number of dynamites and the number of moves of every
+	 * board's game.
+	 */
+	private final int[] scores;
+	private final int[] dynamite_counts;
+	private final int[] steps;
+
+	/*
+	 * The state of every board's random number generator, which is drawn
+	 * from like a GameRandom.
+	 */
+	private final long[] seeds;
+
+	/*
+	 * The move from one cell to the next in each direction, by ordinal.
+	 */
+	private final int[] offsets;
+
+	/*
+	 * One board's observation, staged for writing it to a FloatBuffer.
+	 */
+	private final float[] staging;
+
+	/**
+	 * Instantiates a new VectorEnvironment object. reset() must be called
+	 * before the first step.
+	 *
+	 * @param count the number of boards.
+	 * @param width the game play width, i.e. the X coordinate of the right wall.
+	 * @param height the game play height, i.e. the Y coordinate of the bottom wall.
+	 * @param spawn_interval the number of moves between two new objects.
+	 * @param max_steps the number of moves after which a game is over, or 0 to
+	 * let it run until the snake dies.
+	 */
+	public VectorEnvironment(int count, int width, int height, int spawn_interval, int max_steps)
+	{
+		this(count, GameConfig.DEFAULT.withBoardSize(width, height), spawn_interval, max_steps);
+	}
+
+	/**
+	 * Instantiates a new VectorEnvironment object whose boards have the size
+	 * and the rules of the given configuration. reset() must be called before
+	 * the first step.
+	 *
+	 * @param count the number of boards.
+	 * @param config the board's dimensions, the snake's initial length and row,
+	 * and the points a dynamite costs.
+	 * @param spawn_interval the number of moves between two new objects.
+	 * @param max_steps the number of moves after which a game is over, or 0 to
+	 * let it run until the snake dies.
+	 */
+	public VectorEnvironment(int count, GameConfig config, int spawn_interval, int max_steps)
+	{
+		if(count <= 0)
+			throw new IllegalArgumentException("There must be at least one board");
+
+		if(config.getHeight() < 3)
+			throw new IllegalArgumentException("The board is too small for the snake");
+
+		if(spawn_interval <= 0 || max_steps < 0)
+			throw new IllegalArgumentException("Invalid spawn interval or step limit");
+
+		this.count          = count;
+		this.spawn_interval = spawn_interval;
+		this.max_steps      = max_steps;
+
+		width         = config.getWidth();
+		height        = config.getHeight();
+		initial_size  = config.getInitialSize();
+		start_row     = config.getStartRow();
+		score_penalty = config.getScorePenalty();
+
+		columns     = width  + 1;
+		rows        = height + 1;
+		board_cells = columns * rows;
+
+		// The snake is one cell longer than the board holds right after it
+		// eats the last fruit, for a move.
+		body_capacity = (width - 1) * (height - 1) + 1;
+
+		cells           = new byte[count * board_cells];
+		empty_board     = new byte[board_cells];
+		bodies          = new int[count * body_capacity];
+		tails           = new int[count];
+		lengths         = new int[count];
+		heads           = new int[count];
+		directions      = new byte[count];
+		scores          = new int[count];
+		dynamite_counts = new int[count];
+		steps           = new int[count];
+		seeds           = new long[count];
+		staging         = new float[getObservationSize()];
+
+		for(int y = 0; y < rows; y++)
+		{
+			for(int x = 0; x < columns; x++)
+			{
+				if(x == 0 || x == width || y == 0 || y == height)
+					empty_board[y * columns + x] = WALL;
+			}
+		}
+
+		offsets = new int[4];
+
+		offsets[Direction.UP.ordinal()]    = -columns;
+		offsets[Direction.DOWN.ordinal()]  = columns;
+		offsets[Direction.LEFT.ordinal()]  = -1;
+		offsets[Direction.RIGHT.ordinal()] = 1;
+	}
+
+	/**
+	 * @return the number of boards.
+	 */
+	public int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return the game play width, i.e. the X coordinate of the right wall.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the game play height, i.e. the Y coordinate of the bottom wall.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return the number of floats observe() writes for each board:
+	 * CHANNEL_COUNT planes of (height + 1) rows of (width + 1) cells, walls
+	 * included.
+	 */
+	public int getObservationSize()
+	{
+		return CHANNEL_COUNT * board_cells;
+	}
+
+	/**
+	 * Starts a new game on every board. The same seed always leads to the same
+	 * games, given the same actions.
+	 *
+	 * @param seed the seed the boards' seeds are drawn from.
+	 */
+	public void reset(long seed)
+	{
+		GameRandom rand = new GameRandom(seed);
+
+		for(int board = 0; board < count; board++)
+		{
+			seeds[board] = rand.nextLong();
+			resetBoard(board);
+		}
+	}
+
+	/**
+	 * Moves the snake of every board once. A board whose game ends starts a
+	 * new one right away.
+	 *
+	 * @param actions the action of every board: NO_TURN, or the ordinal of the
+	 * Direction to turn to plus one.
+	 * @param rewards where the points each board's snake scored are written.
+	 * @param dones where whether each board's game ended is written, be it
+	 * because the snake died or because it made max_steps moves.
+	 * @throws IllegalArgumentException if an action is not a valid one, in
+	 * which case no board moves.
+	 */
+	public void step(int[] actions, float[] rewards, boolean[] dones)
+	{
+		for(int board = 0; board < count; board++)
+		{
+			if(actions[board] < NO_TURN || actions[board] > offsets.length)
+				throw new IllegalArgumentException("No such action: " + actions[board]);
+		}
+
+		for(int board = 0; board < count; board++)
+		{
+			rewards[board] = 0;
+			dones[board]   = false;
+
+			if(steps[board] % spawn_interval == 0)
+			{
+				spawn(board, FRUIT);
+				spawn(board, DYNAMITE);
+			}
+
+			int action = actions[board];
+
+			if(action != NO_TURN && (action - 1) != (directions[board] ^ 1))
+				directions[board] = (byte) (action - 1);
+
+			int cells_at  = board * board_cells;
+			int bodies_at = board * body_capacity;
+
+			// Remove the tail. The cell is only freed if the next block is not
+			// on the same spot, which happens right after the snake grows.
+			int tail     = tails[board];
+			int old_tail = bodies[bodies_at + tail];
+
+			tail = (tail + 1 == body_capacity) ? 0 : tail + 1;
+
+			tails[board] = tail;
+			lengths[board]--;
+
+			if(bodies[bodies_at + tail] != old_tail)
+				cells[cells_at + old_tail] = EMPTY;
+
+			int head    = heads[board] + offsets[directions[board]];
+			byte object = cells[cells_at + head];
+
+			steps[board]++;
+
+			if(object == WALL || object == BODY)
+			{
+				dones[board] = true;
+			}
+			else
+			{
+				cells[cells_at + head] = BODY;
+				bodies[bodies_at + (tail + lengths[board]) % body_capacity] = head;
+				heads[board] = head;
+				lengths[board]++;
+
+				if(object == FRUIT)
+				{
+					int points = lengths[board] * 2 + dynamite_counts[board];
+
+					scores[board] += points;
+					rewards[board] = points;
+
+					// The new block is placed on the same spot as the tail, and
+					// will be left behind by the next move.
+					int grown = (tail == 0) ? body_capacity - 1 : tail - 1;
+
+					bodies[bodies_at + grown] = bodies[bodies_at + tail];
+					tails[board] = grown;
+					lengths[board]++;
+
+					spawn(board, FRUIT);
+				}
+				else if(object == DYNAMITE)
+				{
+					dynamite_counts[board]--;
+					scores[board] -= score_penalty;
+					rewards[board] = -score_penalty;
+				}
+
+				if(max_steps > 0 && steps[board] >= max_steps)
+					dones[board] = true;
+			}
+
+			if(dones[board])
+				resetBoard(board);
+		}
+	}
+
+	/**
+	 * Writes every board's observation, board after board. Each one is
+	 * getObservationSize() floats, 1 where a cell is in a channel and 0
+	 * elsewhere, channel after channel, row after row.
+	 *
+	 * @param out where to write, with room for getCount() times
+	 * getObservationSize() floats from offset on.
+	 * @param offset the index of the first float to write.
+	 */
+	public void observe(float[] out, int offset)
+	{
+		for(int board = 0; board < count; board++)
+			observeBoard(board, out, offset + board * getObservationSize());
+	}
+
+	/**
+	 * Writes every board's observation, as observe(float[], int) does, from
+	 * the buffer's position on. The position is left unchanged, so the same
+	 * buffer, typically a direct one shared with native code, can be written
+	 * on every step.
+	 *
+	 * @param out where to write, with room for getCount() times
+	 * getObservationSize() floats.
+	 */
+	public void observe(FloatBuffer out)
+	{
+		int position = out.position();
+
+		for(int board = 0; board < count; board++)
+		{
+			observeBoard(board, staging, 0);
+			out.put(staging);
+		}
+
+		out.position(position);
+	}
+
+	/**
+	 * @param board the index of a board.
+	 * @return the score of the board's current game.
+	 */
+	public int getScore(int board)
+	{
+		return scores[board];
+	}
+
+	/**
+	 * @param board the index of a board.
+	 * @return the number of segments of the board's snake.
+	 */
+	public int getSnakeLength(int board)
+	{
+		return lengths[board];
+	}
+
+	/**
+	 * @param board the index of a board.
+	 * @return the cell, packed as y * (width + 1) + x, of the board's snake's
+	 * head.
+	 */
+	public int getHead(int board)
+	{
+		return heads[board];
+	}
+
+	/**
+	 * @param board the index of a board.
+	 * @return the ordinal of the Direction the board's snake is moving in.
+	 */
+	public int getDirection(int board)
+	{
+		return directions[board];
+	}
+
+	/**
+	 * @param board the index of a board.
+	 * @return the number of moves of the board's current game.
+	 */
+	public int getSteps(int board)
+	{
+		return steps[board];
+	}
+
+	/**
+	 * Starts a new game on a board, with a snake facing right on the left of
+	 * the board and nothing else. Its generator goes on where it was.
+	 */
+	private void resetBoard(int board)
+	{
+		int cells_at  = board * board_cells;
+		int bodies_at = board * body_capacity;
+
+		System.arraycopy(empty_board, 0, cells, cells_at, board_cells);
+
+		int head = start_row * columns + initial_size + 2;
+
+		// Set snake's body, from tail to head.
+		for(int i = 0; i < initial_size; i++)
+		{
+			int cell = head - (initial_size - 1 - i);
+
+			bodies[bodies_at + i] = cell;
+			cells[cells_at + cell] = BODY;
+		}
+
+		tails[board]           = 0;
+		lengths[board]         = initial_size;
+		heads[board]           = head;
+		directions[board]      = (byte) START_DIRECTION;
+		scores[board]          = 0;
+		dynamite_counts[board] = 0;
+		steps[board]           = 0;
+	}
+
+	/**
+	 * Places an object on a random cell of a board that holds nothing. Random
+	 * cells are tried first, and failing that, the cells that follow the last
+	 * one tried are searched in order. Nothing is placed if the board is full.
+	 */
+	private void spawn(int board, byte object)
+	{
+		int cells_at      = board * board_cells;
+		int inner_columns = columns - 2;
+		int inner_cells   = inner_columns * (rows - 2);
+
+		int k = 0;
+
+		for(int i = 0; i < inner_cells + MAX_SAMPLING_ATTEMPTS; i++)
+		{
+			if(i < MAX_SAMPLING_ATTEMPTS)
+				k = nextInt(board, inner_cells);
+			else
+				k = (k + 1) % inner_cells;
+
+			int cell = (1 + k / inner_columns) * columns + 1 + k % inner_columns;
+
+			if(cells[cells_at + cell] == EMPTY)
+			{
+				cells[cells_at + cell] = object;
+
+				if(object == DYNAMITE)
+					dynamite_counts[board]++;
+
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes a board's observation.
+	 */
+	private void observeBoard(int board, float[] out, int offset)
+	{
+		int cells_at = board * board_cells;
+
+		int blocked  = offset + BLOCKED_CHANNEL  * board_cells;
+		int heads_at = offset + HEAD_CHANNEL     * board_cells;
+		int fruits   = offset + FRUIT_CHANNEL    * board_cells;
+		int dynamite = offset + DYNAMITE_CHANNEL * board_cells;
+
+		for(int cell = 0; cell < board_cells; cell++)
+		{
+			byte object = cells[cells_at + cell];
+
+			out[blocked  + cell] = (object == WALL || object == BODY) ? 1 : 0;
+			out[heads_at + cell] = 0;
+			out[fruits   + cell] = (object == FRUIT) ? 1 : 0;
+			out[dynamite + cell] = (object == DYNAMITE) ? 1 : 0;
+		}
+
+		out[heads_at + heads[board]] = 1;
+	}
+
+	/**
+	 * Draws from a board's generator, the way GameRandom.nextInt(int) does.
+	 *
+	 * @return Integer between 0 (inclusive) and bound (exclusive).
+	 */
+	private int nextInt(int board, int bound)
+	{
+		int r = GameRandom.mix32(seeds[board] += GameRandom.GOLDEN_GAMMA);
+		int m = bound - 1;
+
+		if((bound & m) == 0)
+		{
+			// A power of two: just keep the lower bits.
+			r &= m;
+		}
+		else
+		{
+			// Reject the values at the top of the range that would make the
+			// lower results more likely.
+			for(int u = r >>> 1; u + m - (r = u % bound) < 0;
+			    u = GameRandom.mix32(seeds[board] += GameRandom.GOLDEN_GAMMA) >>> 1)
+				;
+		}
+
+		return r;
+	}
+}
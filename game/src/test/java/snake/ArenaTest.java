@@ -0,0 +1,171 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks how an arena resolves the snakes' moves: following a tail, its own
+ * or another snake's, is safe, a head on another snake's body crashes alone,
+ * and heads that meet or swap cells all crash.
+ *
+ * With two snakes on a 20 by 5 board, snake 0 starts with its head on (4, 1)
+ * facing RIGHT, and snake 1 with its head on (16, 3) facing LEFT.
+ */
+public class ArenaTest
+{
+	@Test
+	public void chasingItsTailIsNotACrash()
+	{
+		// A snake of four turning in a square steps where its tail just left.
+		Arena arena = new Arena(30, 20, 1, 1);
+		Position head = arena.getSnakeHead(0);
+
+		step(arena, Direction.DOWN);
+		step(arena, Direction.LEFT);
+		step(arena, Direction.UP);
+
+		assertTrue(arena.isSnakeAlive(0));
+		assertEquals(Position.of(head.getX() - 1, head.getY()), arena.getSnakeHead(0));
+		assertEquals(0, arena.getOwner(arena.getSnakeHead(0)));
+
+		// And it goes on turning in that square.
+		for(int i = 0; i < 20; i++)
+		{
+			step(arena, Direction.RIGHT);
+			step(arena, Direction.DOWN);
+			step(arena, Direction.LEFT);
+			step(arena, Direction.UP);
+
+			assertTrue(arena.isSnakeAlive(0));
+		}
+
+		for(Position p : arena.getSnakeBody(0))
+			assertEquals(0, arena.getOwner(p));
+	}
+
+	@Test
+	public void headsOnTheSameCellBothCrash()
+	{
+		Arena arena = new Arena(20, 5, 2, 2);
+
+		for(int i = 0; i < 6; i++)
+			step(arena, null, null);
+
+		assertEquals(Position.of(10, 1), arena.getSnakeHead(0));
+		assertEquals(Position.of(10, 3), arena.getSnakeHead(1));
+
+		ArenaEvents events = step(arena, Direction.DOWN, Direction.UP);
+
+		assertFalse(arena.isSnakeAlive(0));
+		assertFalse(arena.isSnakeAlive(1));
+		assertTrue(events.hasDied(0));
+		assertTrue(events.hasDied(1));
+		assertEquals(-1, arena.getOwner(Position.of(10, 2)));
+		assertEquals(0, arena.getAliveCount());
+	}
+
+	@Test
+	public void headsSwappingCellsBothCrash()
+	{
+		// On a board of 4 rows, snake 1 starts on row 2.
+		Arena arena = new Arena(20, 4, 2, 3);
+
+		step(arena, Direction.DOWN, null);
+
+		for(int i = 0; i < 5; i++)
+			step(arena, Direction.RIGHT, null);
+
+		assertEquals(Position.of(9, 2), arena.getSnakeHead(0));
+		assertEquals(Position.of(10, 2), arena.getSnakeHead(1));
+		assertTrue(arena.isSnakeAlive(0));
+		assertTrue(arena.isSnakeAlive(1));
+
+		// Each head moves onto the cell the other one leaves, where the
+		// other snake's body follows.
+		step(arena, null, null);
+
+		assertFalse(arena.isSnakeAlive(0));
+		assertFalse(arena.isSnakeAlive(1));
+
+		for(int x = 0; x <= 20; x++)
+			assertEquals(-1, arena.getOwner(Position.of(x, 2)));
+	}
+
+	@Test
+	public void headOnAnotherBodyCrashesAlone()
+	{
+		Arena arena = new Arena(20, 5, 2, 4);
+
+		for(int i = 0; i < 6; i++)
+			step(arena, null, null);
+
+		// Snake 1 heads up across the row snake 0 is moving along.
+		step(arena, null, Direction.UP);
+
+		assertEquals(Position.of(10, 2), arena.getSnakeHead(1));
+
+		ArenaEvents events = step(arena, null, null);
+
+		assertTrue(arena.isSnakeAlive(0));
+		assertFalse(arena.isSnakeAlive(1));
+		assertFalse(events.hasDied(0));
+		assertTrue(events.hasDied(1));
+		assertEquals(0, arena.getOwner(Position.of(10, 1)));
+		assertEquals(-1, arena.getOwner(Position.of(10, 2)));
+	}
+
+	@Test
+	public void headMayFollowAnotherTail()
+	{
+		Arena arena = new Arena(20, 5, 2, 5);
+
+		for(int i = 0; i < 7; i++)
+			step(arena, null, null);
+
+		step(arena, null, Direction.UP);
+
+		assertEquals(Position.of(12, 1), arena.getSnakeHead(0));
+		assertEquals(Position.of(9, 1), arena.getSnakeBody(0).get(0));
+		assertEquals(Position.of(9, 2), arena.getSnakeHead(1));
+
+		// Snake 1 moves onto the cell snake 0's tail leaves.
+		step(arena, null, null);
+
+		assertTrue(arena.isSnakeAlive(0));
+		assertTrue(arena.isSnakeAlive(1));
+		assertEquals(1, arena.getOwner(Position.of(9, 1)));
+		assertEquals(0, arena.getOwner(Position.of(10, 1)));
+	}
+
+	@Test
+	public void snakesStartAsLongAsConfigured()
+	{
+		GameConfig config = GameConfig.DEFAULT.withBoardSize(20, 5).withRules(6, 15, 9);
+		Arena arena       = new Arena(config, 2, 6);
+
+		assertEquals(6, arena.getSnakeLength(0));
+		assertEquals(6, arena.getSnakeLength(1));
+		assertEquals(Position.of(6, 1), arena.getSnakeHead(0));
+		assertEquals(Position.of(1, 1), arena.getSnakeBody(0).get(0));
+		assertEquals(Position.of(14, 3), arena.getSnakeHead(1));
+		assertEquals(Position.of(19, 3), arena.getSnakeBody(1).get(0));
+
+		for(int x = 1; x < 20; x++)
+		{
+			assertEquals((x <= 6) ? 0 : -1, arena.getOwner(Position.of(x, 1)));
+			assertEquals((x >= 14) ? 1 : -1, arena.getOwner(Position.of(x, 3)));
+		}
+	}
+
+	/**
+	 * Moves the snakes once, turning them to the given directions.
+	 */
+	private static ArenaEvents step(Arena arena, Direction... directions)
+	{
+		return arena.step(directions);
+	}
+}
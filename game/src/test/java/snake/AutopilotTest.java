@@ -0,0 +1,159 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks that the autopilot eats fruits, and that deciding and playing a move
+ * with it allocates nothing, as measured by TickMetrics. The board is wider
+ * than the autopilot's search window, so that it looks for the nearest fruit.
+ *
+ * The autopilot allocates its buffers when it first sees a board, and the
+ * heap's sparse grids allocate a chunk when the snake first enters it, so the
+ * games are played on direct storage after a few unmeasured ones. The moves
+ * that eat a fruit are left out: the new fruit goes into the game's hashed
+ * sets, which allocate their entries. While the compiler swaps code in, the
+ * JVM may allocate a few bytes on a move, so a measure is taken again, a few
+ * times, until one runs clean.
+ */
+public class AutopilotTest
+{
+	/*
+	 * The number of moves between two new objects, as on the view's timer.
+	 */
+	private final static int SPAWN_INTERVAL = 20;
+
+	/*
+	 * A board wider than the autopilot's search window.
+	 */
+	private final static GameConfig CONFIG = GameConfig.DEFAULT.withBoardSize(300, 21);
+
+	/*
+	 * The number of games of a measure, and of measures taken at most.
+	 */
+	private final static int GAMES        = 20;
+	private final static int MAX_ATTEMPTS = 5;
+
+	@Test
+	public void eatsFruits()
+	{
+		SnakeEngine engine  = new SnakeEngine(CONFIG);
+		Autopilot autopilot = new Autopilot();
+
+		engine.reset(20);
+
+		GameState state = engine.getState();
+		int eaten       = 0;
+
+		for(int move = 0; move < 500 && state.isSnakeAlive(); move++)
+		{
+			if(move % SPAWN_INTERVAL == 0)
+				engine.spawnFruit();
+
+			if(engine.step(autopilot.decide(state)).hasEatenFruit())
+				eaten++;
+		}
+
+		assertTrue("Ate " + eaten + " fruits", eaten >= 10);
+	}
+
+	@Test
+	public void movesAllocateNothing()
+	{
+		assumeTrue(new TickMetrics().getMaxAllocatedBytesPerTick() >= 0);
+
+		SnakeEngine engine  = new SnakeEngine(CONFIG, new SplittableRandom(), BoardStorage.DIRECT);
+		Autopilot autopilot = new Autopilot();
+
+		play(engine, autopilot, 0, new TickMetrics());
+
+		long allocated = -1;
+
+		for(int attempt = 0; attempt < MAX_ATTEMPTS && allocated != 0; attempt++)
+		{
+			TickMetrics metrics = new TickMetrics();
+
+			play(engine, autopilot, attempt + 1, metrics);
+			allocated = metrics.getMaxAllocatedBytesPerTick();
+		}
+
+		assertEquals(0, allocated);
+	}
+
+	@Test
+	public void arenaDecisionsAllocateNothing()
+	{
+		assumeTrue(new TickMetrics().getMaxAllocatedBytesPerTick() >= 0);
+
+		long allocated = -1;
+
+		for(int attempt = 0; attempt < MAX_ATTEMPTS && allocated != 0; attempt++)
+		{
+			Arena arena            = new Arena(CONFIG.getWidth(), CONFIG.getHeight(), 4, 22);
+			Autopilot[] autopilots = new Autopilot[arena.getSnakeCount()];
+			Direction[] directions = new Direction[arena.getSnakeCount()];
+			TickMetrics metrics    = new TickMetrics();
+
+			for(int i = 0; i < autopilots.length; i++)
+			{
+				autopilots[i] = new Autopilot();
+				autopilots[i].decide(arena, i);
+			}
+
+			for(int i = 0; i < 8; i++)
+				arena.spawnFruit();
+
+			for(int move = 0; move < 2000 && arena.getAliveCount() > 0; move++)
+			{
+				metrics.startTick(0);
+
+				for(int i = 0; i < autopilots.length; i++)
+					directions[i] = arena.isSnakeAlive(i) ? autopilots[i].decide(arena, i) : null;
+
+				metrics.endTick();
+
+				arena.step(directions);
+			}
+
+			allocated = metrics.getMaxAllocatedBytesPerTick();
+		}
+
+		assertEquals(0, allocated);
+	}
+
+	/**
+	 * Plays GAMES games with the autopilot, measuring the moves that don't
+	 * eat a fruit.
+	 */
+	private static void play(SnakeEngine engine, Autopilot autopilot, int round, TickMetrics metrics)
+	{
+		for(int game = 0; game < GAMES; game++)
+		{
+			engine.reset(round * GAMES + game);
+
+			GameState state = engine.getState();
+
+			for(int move = 0; move < 2000 && state.isSnakeAlive(); move++)
+			{
+				if(move % SPAWN_INTERVAL == 0)
+				{
+					engine.spawnFruit();
+					engine.spawnDynamite();
+				}
+
+				metrics.startTick(0);
+
+				boolean ate = engine.step(autopilot.decide(state)).hasEatenFruit();
+
+				if(!ate)
+					metrics.endTick();
+			}
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Plays the same moves on a GameState and on a BranchState taken from it,
+ * and checks that both agree on the snake, the objects and the score, move
+ * after move.
+ */
+public class BranchStateTest
+{
+	/*
+	 * A small board, so that the snake eats, steps over dynamites and dies
+	 * within a few moves.
+	 */
+	private final static GameConfig CONFIG = GameConfig.DEFAULT.withBoardSize(16, 10);
+
+	/*
+	 * Every direction.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	@Test
+	public void branchesFollowTheGame()
+	{
+		Random random = new Random(15);
+		int fruits    = 0;
+		int dynamites = 0;
+		int deaths    = 0;
+
+		for(int game = 0; game < 200; game++)
+		{
+			GameState state = new GameState(CONFIG, game, BoardStorage.HEAP);
+
+			for(int i = 0; i < 20; i++)
+			{
+				Position p = state.generateRandomObject();
+
+				if(random.nextBoolean())
+					state.addFruit(p);
+				else
+					state.addDynamite(p);
+			}
+
+			BranchState branch = BranchState.of(state);
+
+			assertSameGame(state, branch);
+
+			while(state.isSnakeAlive())
+			{
+				// Mostly keep clear of walls and the body, so that games last.
+				Direction dir = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+
+				for(int i = 0; i < DIRECTIONS.length && random.nextInt(8) != 0; i++)
+				{
+					if(branch.move(dir).isAlive())
+						break;
+
+					dir = DIRECTIONS[(dir.ordinal() + 1) % DIRECTIONS.length];
+				}
+
+				int score = state.getScore();
+
+				step(state, dir);
+				branch = branch.move(dir);
+
+				if(state.getScore() > score)
+					fruits++;
+				else if(state.getScore() < score)
+					dynamites++;
+
+				assertSameGame(state, branch);
+			}
+
+			deaths++;
+		}
+
+		// The moves went through every rule.
+		assertTrue(fruits > 100);
+		assertTrue(dynamites > 100);
+		assertEquals(200, deaths);
+	}
+
+	@Test
+	public void movingLeavesTheParentUnchanged()
+	{
+		GameState state = new GameState(CONFIG, 2, BoardStorage.HEAP);
+
+		// The snake starts with its head on (6, 5), facing RIGHT.
+		state.addFruit(Position.of(7, 5));
+		state.addDynamite(Position.of(6, 4));
+
+		BranchState root  = BranchState.of(state);
+		BranchState right = root.move(Direction.RIGHT);
+		BranchState up    = root.move(Direction.UP);
+
+		assertSameGame(state, root);
+
+		assertEquals(root.getLength() + 1, right.getLength());
+		assertFalse(right.isFruit(Position.of(7, 5)));
+		assertTrue(right.isDynamite(Position.of(6, 4)));
+
+		assertEquals(root.getScore() - CONFIG.getScorePenalty(), up.getScore());
+		assertTrue(up.isFruit(Position.of(7, 5)));
+		assertFalse(up.isDynamite(Position.of(6, 4)));
+
+		// Turning back is ignored, as in the game.
+		assertEquals(Position.of(7, 5), root.move(Direction.LEFT).getHead());
+	}
+
+	/**
+	 * Moves the game the way SnakeEngine does, without generating new objects.
+	 */
+	private static void step(GameState state, Direction dir)
+	{
+		state.setDirection(dir);
+		state.moveSnake();
+
+		Position head = state.getSnakeHead();
+
+		if(head.getX() <= 0 || head.getX() >= CONFIG.getWidth() || head.getY() <= 0
+		|| head.getY() >= CONFIG.getHeight() || state.snakeBitItself())
+		{
+			state.killSnake();
+		}
+		else if(!state.snakeAteFruit())
+		{
+			state.snakeSteppedDynamite();
+		}
+	}
+
+	/**
+	 * Checks that a branch holds the same game as a state, cell by cell.
+	 */
+	private static void assertSameGame(GameState state, BranchState branch)
+	{
+		assertEquals(state.isSnakeAlive(), branch.isAlive());
+		assertEquals(state.getScore(), branch.getScore());
+		assertEquals(state.getSnakeHead(), branch.getHead());
+		assertEquals(state.getSnakeDirection(), branch.getDirection());
+
+		if(!state.isSnakeAlive())
+			return;
+
+		assertEquals(state.getSnakeLength(), branch.getLength());
+
+		for(int y = 0; y <= CONFIG.getHeight(); y++)
+		{
+			for(int x = 0; x <= CONFIG.getWidth(); x++)
+			{
+				Position p = Position.of(x, y);
+
+				assertEquals(p.toString(), state.isSnakeBody(p), branch.isSnakeBody(p));
+				assertEquals(p.toString(), state.isFruit(p), branch.isFruit(p));
+				assertEquals(p.toString(), state.isDynamite(p), branch.isDynamite(p));
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks the list of cells against a set, on cells spread over a huge board
+ * and packed in a few rows, so that the table's clusters are removed from in
+ * every order.
+ */
+public class CellListTest
+{
+	@Test
+	public void cellsMatchASet()
+	{
+		Random random = new Random(4);
+
+		for(int run = 0; run < 100; run++)
+		{
+			int range = (run % 2 == 0) ? Integer.MAX_VALUE : 1 + random.nextInt(300);
+
+			CellList cells         = new CellList();
+			TreeSet<Integer> model = new TreeSet<Integer>();
+
+			for(int op = 0; op < 3000; op++)
+			{
+				int cell = random.nextInt(range);
+
+				// Growing for the first half, then mostly shrinking.
+				boolean adding = (op < 1500) ? random.nextInt(3) != 0 : random.nextInt(3) == 0;
+
+				if(adding)
+				{
+					if(model.add(cell))
+						cells.add(cell);
+				}
+				else
+				{
+					cells.remove(cell);
+					model.remove(cell);
+				}
+
+				assertEquals(model.size(), cells.size());
+				assertEquals(model.contains(cell), cells.contains(cell));
+			}
+
+			TreeSet<Integer> listed = new TreeSet<Integer>();
+
+			for(int i = 0; i < cells.size(); i++)
+				listed.add(cells.get(i));
+
+			assertEquals(model, listed);
+
+			for(int cell : model)
+				cells.remove(cell);
+
+			assertEquals(0, cells.size());
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks the index of free cells against a set, and that new objects only
+ * ever land on free cells.
+ */
+public class FreeCellsTest
+{
+	@Test
+	public void cellsMatchASet()
+	{
+		Random random = new Random(3);
+
+		for(int run = 0; run < 100; run++)
+		{
+			int capacity         = 1 + random.nextInt(5000);
+			BoardStorage storage = (run % 2 == 0) ? BoardStorage.HEAP : BoardStorage.DIRECT;
+
+			FreeCells cells        = new FreeCells(capacity, storage);
+			TreeSet<Integer> model = new TreeSet<Integer>();
+			GameRandom rand        = new GameRandom(random.nextLong());
+
+			for(int op = 0; op < 5000; op++)
+			{
+				int cell = random.nextInt(capacity);
+
+				if(random.nextBoolean())
+				{
+					cells.add(cell);
+					model.add(cell);
+				}
+				else
+				{
+					cells.remove(cell);
+					model.remove(cell);
+				}
+
+				assertEquals(model.size(), cells.size());
+				assertEquals(model.contains(cell), cells.contains(cell));
+
+				int picked = cells.random(rand);
+
+				assertTrue(model.isEmpty() ? picked == -1 : model.contains(picked));
+			}
+		}
+	}
+
+	@Test
+	public void snapshotKeepsTheSlots()
+	{
+		Random random   = new Random(6);
+		FreeCells cells = new FreeCells(500);
+
+		for(int op = 0; op < 2000; op++)
+		{
+			if(random.nextInt(3) == 0)
+				cells.remove(random.nextInt(500));
+			else
+				cells.add(random.nextInt(500));
+		}
+
+		ByteBuffer snapshot = ByteBuffer.allocate(cells.getSnapshotSize());
+		cells.writeSnapshot(snapshot);
+		snapshot.flip();
+
+		FreeCells restored = new FreeCells(500);
+		restored.readSnapshot(snapshot);
+
+		assertEquals(cells.size(), restored.size());
+
+		GameRandom rand          = new GameRandom(7);
+		GameRandom restored_rand = new GameRandom(7);
+
+		for(int i = 0; i < 100; i++)
+			assertEquals(cells.random(rand), restored.random(restored_rand));
+	}
+
+	@Test
+	public void picksAreUniform()
+	{
+		FreeCells cells = new FreeCells(4096);
+		GameRandom rand = new GameRandom(8);
+
+		// Ten free cells, some of them moved to other slots by removals.
+		for(int i = 0; i < 20; i++)
+			cells.add(i * 200 + 3);
+
+		for(int i = 0; i < 20; i += 2)
+			cells.remove(i * 200 + 3);
+
+		int[] picks = new int[10];
+
+		for(int i = 0; i < 100000; i++)
+			picks[(cells.random(rand) - 203) / 400]++;
+
+		for(int count : picks)
+			assertTrue("Picked " + count + " times", count > 9500 && count < 10500);
+	}
+
+	@Test
+	public void objectsFillEveryFreeCellAndNothingElse()
+	{
+		for(BoardStorage storage : BoardStorage.values())
+		{
+			GameState state = new GameState(GameConfig.DEFAULT.withBoardSize(12, 6), 9, storage);
+
+			int free = 11 * 5 - state.getSnakeLength();
+
+			for(int i = 0; i < free; i++)
+			{
+				Position p = state.generateRandomObject();
+
+				assertNotNull(p);
+				assertTrue(p.getX() > 0 && p.getX() < 12 && p.getY() > 0 && p.getY() < 6);
+				assertTrue(!state.isSnakeBody(p) && !state.isDynamite(p));
+
+				state.addDynamite(p);
+			}
+
+			assertNull(state.generateRandomObject());
+		}
+	}
+}
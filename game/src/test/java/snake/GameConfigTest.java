@@ -0,0 +1,264 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * Reads configurations from the command line, the system properties and
+ * properties files, and checks which one each setting is taken from, that
+ * unknown and invalid settings are rejected, and how the rules follow a
+ * change of board.
+ */
+public class GameConfigTest
+{
+	/*
+	 * Every setting, and the properties file option.
+	 */
+	private final static String[] NAMES = { GameConfig.WIDTH, GameConfig.HEIGHT, GameConfig.SPEEDS,
+	                                        GameConfig.SPAWN_PERIOD, GameConfig.INITIAL_SIZE,
+	                                        GameConfig.START_ROW, GameConfig.SCORE_PENALTY,
+	                                        GameConfig.CONFIG };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void clearSystemProperties()
+	{
+		for(String name : NAMES)
+			System.clearProperty(GameConfig.SYSTEM_PREFIX + name);
+	}
+
+	@Test
+	public void nothingSetGivesTheDefaults() throws IOException
+	{
+		GameConfig config = GameConfig.load(new String[] { "replay.bin" });
+
+		assertEquals(GameConfig.DEFAULT.getWidth(), config.getWidth());
+		assertEquals(GameConfig.DEFAULT.getHeight(), config.getHeight());
+		assertEquals(GameConfig.DEFAULT.getSpawnPeriod(), config.getSpawnPeriod());
+		assertEquals(Snake.SNAKE_INITIAL_SIZE, config.getInitialSize());
+		assertEquals(GameState.SCORE_PENALTY, config.getScorePenalty());
+
+		for(int level = 1; level <= GameConfig.SPEED_COUNT; level++)
+			assertEquals(GameConfig.DEFAULT.getSpeed(level), config.getSpeed(level));
+	}
+
+	@Test
+	public void commandLineBeatsSystemPropertiesWhichBeatTheFile() throws IOException
+	{
+		Path file = write("width=50", "height=20", "score.penalty=3", "initial.size=4");
+
+		System.setProperty("snake.config", file.toString());
+		System.setProperty("snake.width", "60");
+		System.setProperty("snake.height", "22");
+
+		GameConfig config = GameConfig.load(new String[] { "--width=70", "replay.bin" });
+
+		assertEquals(70, config.getWidth());
+		assertEquals(22, config.getHeight());
+		assertEquals(3, config.getScorePenalty());
+		assertEquals(4, config.getInitialSize());
+		assertEquals(GameConfig.DEFAULT.getSpawnPeriod(), config.getSpawnPeriod());
+	}
+
+	@Test
+	public void commandLineNamesTheFile() throws IOException
+	{
+		Path ignored = write("width=50");
+		Path file    = write("width=55", "speeds = 100, 80, 60, 40, 20");
+
+		System.setProperty("snake.config", ignored.toString());
+
+		GameConfig config = GameConfig.load(new String[] { "--config=" + file });
+
+		assertEquals(55, config.getWidth());
+		assertEquals(100, config.getSpeed(1));
+		assertEquals(20, config.getSpeed(GameConfig.SPEED_COUNT));
+	}
+
+	@Test
+	public void unknownSettingsAreRejected() throws IOException
+	{
+		expectRejected(properties("colour", "green"));
+		expectRejected(properties("Width", "50"));
+		expectRejected("--colour=green");
+		expectRejected("--config=" + write("width=50", "speed=10"));
+	}
+
+	@Test
+	public void invalidValuesAreRejected() throws IOException
+	{
+		expectRejected(properties(GameConfig.WIDTH, "wide"));
+		expectRejected(properties(GameConfig.HEIGHT, ""));
+		expectRejected(properties(GameConfig.INITIAL_SIZE, "0"));
+		expectRejected(properties(GameConfig.SPAWN_PERIOD, "0"));
+		expectRejected(properties(GameConfig.START_ROW, "0"));
+		expectRejected(properties(GameConfig.SPEEDS, "90,75,0,45,35"));
+		expectRejected(properties(GameConfig.SPEEDS, "90,75,fast,45,35"));
+
+		// The snake must fit between the walls with room to move.
+		expectRejected(properties(GameConfig.WIDTH, "5"));
+		expectRejected(properties(GameConfig.HEIGHT, "1"));
+		expectRejected(properties(GameConfig.WIDTH, "12", GameConfig.INITIAL_SIZE, "10"));
+
+		expectRejected("--width");
+	}
+
+	@Test
+	public void speedsAreExactlyTheMenusCount() throws IOException
+	{
+		expectRejected(properties(GameConfig.SPEEDS, "90,75"));
+		expectRejected(properties(GameConfig.SPEEDS, "90,75,60,45,35,20"));
+
+		GameConfig config = GameConfig.fromProperties(properties(GameConfig.SPEEDS, "10,20,30,40,50"));
+
+		for(int level = 1; level <= GameConfig.SPEED_COUNT; level++)
+			assertEquals(level * 10, config.getSpeed(level));
+	}
+
+	@Test
+	public void boardAndRulesChangeApart()
+	{
+		GameConfig config = GameConfig.fromProperties(properties(GameConfig.SPEEDS, "10,20,30,40,50",
+		                                                         GameConfig.SPAWN_PERIOD, "500"));
+
+		assertSame(config, config.withBoardSize(config.getWidth(), config.getHeight()));
+
+		GameConfig board = config.withBoardSize(40, 16);
+
+		assertEquals(40, board.getWidth());
+		assertEquals(16, board.getHeight());
+		assertEquals(10, board.getSpeed(1));
+		assertEquals(500, board.getSpawnPeriod());
+		assertEquals(config.getInitialSize(), board.getInitialSize());
+		assertEquals(config.getScorePenalty(), board.getScorePenalty());
+
+		GameConfig rules = board.withRules(6, 5, 9);
+
+		assertEquals(40, rules.getWidth());
+		assertEquals(16, rules.getHeight());
+		assertEquals(50, rules.getSpeed(GameConfig.SPEED_COUNT));
+		assertEquals(500, rules.getSpawnPeriod());
+		assertEquals(6, rules.getInitialSize());
+		assertEquals(5, rules.getStartRow());
+		assertEquals(9, rules.getScorePenalty());
+
+		// Neither may leave a snake that doesn't fit.
+		expectRejected(new Runnable()
+		{
+			@Override public void run()
+			{
+				rules.withBoardSize(8, 16);
+			}
+		});
+
+		expectRejected(new Runnable()
+		{
+			@Override public void run()
+			{
+				board.withRules(0, 5, 9);
+			}
+		});
+	}
+
+	@Test
+	public void snakeStartsMidwayOnShortBoards()
+	{
+		GameConfig config = GameConfig.DEFAULT.withRules(3, 15, 25);
+
+		assertEquals(15, config.withBoardSize(40, 16).getStartRow());
+		assertEquals(5, config.withBoardSize(40, 10).getStartRow());
+		assertEquals(7, config.withBoardSize(40, 15).getStartRow());
+		assertEquals(15, config.withBoardSize(40, 10).getConfiguredStartRow());
+
+		GameState state = new GameState(config.withBoardSize(40, 10), 1, BoardStorage.HEAP);
+
+		assertEquals(5, state.getSnakeHead().getY());
+	}
+
+	/**
+	 * @return properties holding the given names and values, in turn.
+	 */
+	private static Properties properties(String... pairs)
+	{
+		Properties properties = new Properties();
+
+		for(int i = 0; i < pairs.length; i += 2)
+			properties.setProperty(pairs[i], pairs[i + 1]);
+
+		return properties;
+	}
+
+	/**
+	 * @return a new properties file of the given lines.
+	 */
+	private Path write(String... lines) throws IOException
+	{
+		Path file = folder.newFile().toPath();
+
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+
+		return file;
+	}
+
+	/**
+	 * Checks that the given properties make no configuration.
+	 */
+	private static void expectRejected(final Properties properties)
+	{
+		expectRejected(new Runnable()
+		{
+			@Override public void run()
+			{
+				GameConfig.fromProperties(properties);
+			}
+		});
+	}
+
+	/**
+	 * Checks that the given command line makes no configuration.
+	 */
+	private static void expectRejected(String... args) throws IOException
+	{
+		try
+		{
+			GameConfig.load(args);
+			fail("Accepted " + Arrays.toString(args));
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// As expected.
+		}
+	}
+
+	/**
+	 * Checks that the given code throws an IllegalArgumentException.
+	 */
+	private static void expectRejected(Runnable code)
+	{
+		try
+		{
+			code.run();
+			fail("Accepted");
+		}
+		catch (IllegalArgumentException iae)
+		{
+			// As expected.
+		}
+	}
+}
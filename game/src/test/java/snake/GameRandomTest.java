@@ -0,0 +1,75 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks that GameRandom draws the very numbers SplittableRandom does from
+ * the same seed, and that its state resumes the sequence.
+ */
+public class GameRandomTest
+{
+	@Test
+	public void matchesSplittableRandom()
+	{
+		Random seeds = new Random(13);
+
+		for(int run = 0; run < 100; run++)
+		{
+			long seed = seeds.nextLong();
+
+			GameRandom rand        = new GameRandom(seed);
+			SplittableRandom model = new SplittableRandom(seed);
+
+			for(int i = 0; i < 1000; i++)
+			{
+				switch(seeds.nextInt(3))
+				{
+					case 0:
+						assertEquals(model.nextLong(), rand.nextLong());
+						break;
+
+					case 1:
+						assertEquals(model.nextInt(), rand.nextInt());
+						break;
+
+					default:
+						// Small bounds, powers of two, and large ones that
+						// reject often.
+						int bound = 1 + seeds.nextInt(seeds.nextBoolean() ? 100 : Integer.MAX_VALUE);
+
+						if(seeds.nextInt(4) == 0)
+							bound = Integer.highestOneBit(bound);
+
+						assertEquals(model.nextInt(bound), rand.nextInt(bound));
+						break;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void resumesFromItsState()
+	{
+		GameRandom rand = new GameRandom(14);
+
+		for(int i = 0; i < 10; i++)
+			rand.nextInt(17);
+
+		GameRandom resumed = new GameRandom(rand.getState());
+
+		for(int i = 0; i < 1000; i++)
+			assertEquals(rand.nextLong(), resumed.nextLong());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsANonPositiveBound()
+	{
+		new GameRandom(15).nextInt(0);
+	}
+}
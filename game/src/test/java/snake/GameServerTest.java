@@ -0,0 +1,165 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * Plays an arena hosted by a GameServer over the loopback interface, with
+ * clients that rebuild the board from what it sends, and checks that they
+ * drive their snakes and agree on the board with a player joining late.
+ */
+public class GameServerTest
+{
+	/*
+	 * The board. Snake 0 starts with its head on (4, 5), facing RIGHT, and
+	 * snake 1 on (36, 10), facing LEFT.
+	 */
+	private final static GameConfig CONFIG = GameConfig.DEFAULT.withBoardSize(40, 16);
+
+	/*
+	 * The time in milliseconds a client waits for a message.
+	 */
+	private final static int TIMEOUT = 5000;
+
+	/*
+	 * The server, and the thread running it.
+	 */
+	private GameServer server;
+	private Thread thread;
+
+	@Before
+	public void startServer() throws IOException
+	{
+		server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CONFIG, 2, 25);
+
+		thread = new Thread(new Runnable()
+		{
+			@Override public void run()
+			{
+				try
+				{
+					server.run();
+				}
+				catch (IOException ioe)
+				{
+					throw new UncheckedIOException(ioe);
+				}
+			}
+		}, "GameServerTest");
+
+		thread.start();
+	}
+
+	@After
+	public void stopServer() throws IOException, InterruptedException
+	{
+		server.stop();
+		thread.join(TIMEOUT);
+		server.close();
+	}
+
+	@Test
+	public void clientsDriveTheirSnakes() throws IOException
+	{
+		try(Socket first = connect(); Socket second = connect())
+		{
+			DataInputStream in = new DataInputStream(first.getInputStream());
+			NetBoard board     = new NetBoard();
+
+			assertEquals(NetFormat.STATE, board.read(NetBoard.readMessage(in)));
+			assertEquals(0, board.snake);
+
+			NetBoard other = new NetBoard();
+
+			other.read(NetBoard.readMessage(new DataInputStream(second.getInputStream())));
+
+			assertEquals(1, other.snake);
+
+			first.getOutputStream().write(NetFormat.encodeInput(Direction.DOWN));
+
+			// The turn is taken on one of the next moves, depending on when
+			// the server reads it.
+			boolean turned = false;
+
+			for(int i = 0; i < 5 && !turned; i++)
+			{
+				int head = board.bodies.get(0).peekLast();
+
+				assertEquals(NetFormat.TICK, board.read(NetBoard.readMessage(in)));
+
+				turned = board.bodies.get(0).peekLast() == head + board.columns;
+			}
+
+			assertTrue(turned);
+		}
+	}
+
+	@Test
+	public void lateClientSeesTheSameBoard() throws IOException
+	{
+		try(Socket player = connect())
+		{
+			DataInputStream in = new DataInputStream(player.getInputStream());
+			NetBoard board     = new NetBoard();
+
+			// Let a few moves and maybe a round go by, checking that every
+			// move follows the last.
+			for(int i = 0; i < 50; i++)
+			{
+				int tick = board.tick;
+
+				if(board.read(NetBoard.readMessage(in)) == NetFormat.TICK)
+					assertEquals(tick + 1, board.tick);
+			}
+
+			try(Socket late = connect())
+			{
+				DataInputStream late_in = new DataInputStream(late.getInputStream());
+				NetBoard joined         = new NetBoard();
+
+				// It takes the free snake, whatever the round.
+				assertEquals(NetFormat.STATE, joined.read(NetBoard.readMessage(late_in)));
+				assertEquals(1, joined.snake);
+
+				// The first player catches up with the late one's STATE ...
+				for(int i = 0; i < 100 && !board.toString().equals(joined.toString()); i++)
+					board.read(NetBoard.readMessage(in));
+
+				assertEquals(joined.toString(), board.toString());
+
+				// ... from which on both get the same messages.
+				for(int i = 0; i < 50; i++)
+				{
+					board.read(NetBoard.readMessage(in));
+					joined.read(NetBoard.readMessage(late_in));
+
+					assertEquals(board.toString(), joined.toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a socket connected to the server.
+	 */
+	private Socket connect() throws IOException
+	{
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+
+		socket.setSoTimeout(TIMEOUT);
+
+		return socket;
+	}
+}
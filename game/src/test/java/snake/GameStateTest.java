@@ -0,0 +1,149 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks how GameState keeps the fruits and dynamites: the grid indexing them
+ * by cell must always agree with the sets of their positions.
+ */
+public class GameStateTest
+{
+	/*
+	 * The board of the original game. The snake starts with its head on
+	 * (6, 15), facing RIGHT.
+	 */
+	private final static int WIDTH  = 79;
+	private final static int HEIGHT = 21;
+
+	@Test
+	public void objectsAreIndexedByCell()
+	{
+		GameState state = new GameState(WIDTH, HEIGHT, 1);
+
+		state.addFruit(Position.of(10, 15));
+		state.addDynamite(Position.of(12, 15));
+
+		// A cell holds one object at most, and never one over the snake.
+		state.addFruit(Position.of(12, 15));
+		state.addDynamite(Position.of(10, 15));
+
+		assertTrue(state.isFruit(Position.of(10, 15)));
+		assertTrue(state.isDynamite(Position.of(12, 15)));
+		assertFalse(state.isFruit(Position.of(12, 15)));
+		assertFalse(state.isDynamite(Position.of(10, 15)));
+
+		assertEquals(1, state.getFruits().size());
+		assertEquals(1, state.getDynamites().size());
+		assertEquals(2, state.getObjectChanges());
+	}
+
+	@Test
+	public void eatingAFruitScoresAndGrows()
+	{
+		GameState state = new GameState(WIDTH, HEIGHT, 1);
+
+		state.addDynamite(Position.of(20, 5));
+		state.addFruit(Position.of(7, 15));
+		state.moveSnake();
+
+		assertTrue(state.snakeAteFruit());
+		assertEquals(Snake.SNAKE_INITIAL_SIZE * 2 + 1, state.getScore());
+		assertEquals(Snake.SNAKE_INITIAL_SIZE + 1, state.getSnakeLength());
+		assertFalse(state.isFruit(Position.of(7, 15)));
+		assertTrue(state.getFruits().isEmpty());
+	}
+
+	@Test
+	public void steppingOnADynamiteCostsThePenalty()
+	{
+		GameConfig config = GameConfig.DEFAULT.withRules(Snake.SNAKE_INITIAL_SIZE, 15, 7);
+		GameState state   = new GameState(config, 1, BoardStorage.HEAP);
+
+		state.addDynamite(Position.of(7, 15));
+		state.moveSnake();
+
+		assertFalse(state.snakeAteFruit());
+		assertTrue(state.snakeSteppedDynamite());
+		assertEquals(-7, state.getScore());
+		assertFalse(state.isDynamite(Position.of(7, 15)));
+		assertTrue(state.getDynamites().isEmpty());
+	}
+
+	@Test
+	public void indexAgreesWithTheSetsDuringPlay()
+	{
+		Random random = new Random(2);
+
+		for(int game = 0; game < 40; game++)
+		{
+			int width  = 8 + random.nextInt(40);
+			int height = 4 + random.nextInt(20);
+
+			SnakeEngine engine  = new SnakeEngine(width, height);
+			Autopilot autopilot = new Autopilot();
+
+			engine.reset(random.nextLong());
+
+			GameState state = engine.getState();
+
+			for(int move = 0; move < 2000 && state.isSnakeAlive(); move++)
+			{
+				if(move % 3 == 0)
+				{
+					engine.spawnFruit();
+					engine.spawnDynamite();
+				}
+
+				engine.step(autopilot.decide(state));
+
+				checkObjects(state);
+			}
+		}
+	}
+
+	/**
+	 * Checks every cell of the board against the sets of objects.
+	 */
+	private static void checkObjects(GameState state)
+	{
+		int fruits    = 0;
+		int dynamites = 0;
+
+		for(int y = 0; y <= state.getHeight(); y++)
+		{
+			for(int x = 0; x <= state.getWidth(); x++)
+			{
+				Position p = Position.of(x, y);
+
+				assertEquals(state.getFruits().contains(p), state.isFruit(p));
+				assertEquals(state.getDynamites().contains(p), state.isDynamite(p));
+
+				if(state.isFruit(p))
+					fruits++;
+
+				if(state.isDynamite(p))
+					dynamites++;
+
+				if(state.isFruit(p) || state.isDynamite(p))
+				{
+					assertFalse(state.isFruit(p) && state.isDynamite(p));
+					assertTrue(x > 0 && x < state.getWidth() && y > 0 && y < state.getHeight());
+
+					// The head may lie on the object it has just taken only
+					// if it died there.
+					assertTrue(!state.isSnakeBody(p) || !state.isSnakeAlive());
+				}
+			}
+		}
+
+		assertEquals(state.getFruits().size(), fruits);
+		assertEquals(state.getDynamites().size(), dynamites);
+	}
+}
@@ -0,0 +1,88 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks the grids of every board storage against a plain byte array, and
+ * that the sparse grid releases the chunks it no longer needs.
+ */
+public class GridTest
+{
+	@Test
+	public void gridsMatchAnArray()
+	{
+		Random random = new Random(4);
+
+		for(int run = 0; run < 50; run++)
+		{
+			// Sizes that are not a whole number of chunks, and a single row.
+			int columns = 1 + random.nextInt(300);
+			int rows    = (run == 0) ? 1 : 1 + random.nextInt(200);
+
+			for(BoardStorage storage : BoardStorage.values())
+			{
+				Grid grid    = storage.newGrid(columns, rows);
+				byte[] model = new byte[columns * rows];
+
+				for(int op = 0; op < 5000; op++)
+				{
+					int cell   = random.nextInt(model.length);
+					byte value = (byte) ((random.nextInt(3) == 0) ? random.nextInt(256) : 0);
+
+					grid.set(cell, value);
+					model[cell] = value;
+
+					int other = random.nextInt(model.length);
+
+					assertEquals(model[cell], grid.get(cell));
+					assertEquals(model[other], grid.get(other));
+				}
+
+				for(int cell = 0; cell < model.length; cell++)
+					assertEquals(model[cell], grid.get(cell));
+			}
+		}
+	}
+
+	@Test
+	public void sparseGridOnlyKeepsTheChunksInUse()
+	{
+		int columns     = 1000;
+		SparseGrid grid = new SparseGrid(columns, 1000);
+
+		assertEquals(0, grid.getChunkCount());
+
+		// Zeros don't allocate anything.
+		grid.set(0, (byte) 0);
+		assertEquals(0, grid.getChunkCount());
+
+		// Two cells of the same chunk, then one of another.
+		grid.set(0, (byte) 1);
+		grid.set(63 * columns + 63, (byte) 2);
+		assertEquals(1, grid.getChunkCount());
+
+		grid.set(64, (byte) 3);
+		assertEquals(2, grid.getChunkCount());
+
+		// A chunk goes once its last cell is back to zero.
+		grid.set(0, (byte) 0);
+		assertEquals(2, grid.getChunkCount());
+
+		grid.set(63 * columns + 63, (byte) 0);
+		assertEquals(1, grid.getChunkCount());
+
+		// The released chunk is reused, and holds nothing from before.
+		grid.set(999 * columns + 999, (byte) 4);
+		assertEquals(2, grid.getChunkCount());
+		assertEquals(0, grid.get(0));
+		assertEquals(0, grid.get(63 * columns + 63));
+		assertEquals(0, grid.get(998 * columns + 999));
+		assertEquals(4, grid.get(999 * columns + 999));
+		assertEquals(3, grid.get(64));
+	}
+}
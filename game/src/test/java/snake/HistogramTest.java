@@ -0,0 +1,163 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks the histogram's buckets, edge to edge and within 1/32 of the values
+ * they count, its percentiles against a sorted array, and the metrics that
+ * report them.
+ */
+public class HistogramTest
+{
+	@Test
+	public void bucketsFollowEachOther()
+	{
+		// One bucket per value below 64, then two values per bucket up to 128.
+		assertEquals(63, Histogram.bucketOf(63));
+		assertEquals(64, Histogram.bucketOf(64));
+		assertEquals(64, Histogram.bucketOf(65));
+		assertEquals(65, Histogram.bucketOf(66));
+		assertEquals(63, Histogram.upperBoundOf(63));
+		assertEquals(65, Histogram.upperBoundOf(64));
+
+		// Every bucket starts right after the one before ends.
+		for(int bucket = 0; bucket < Histogram.BUCKET_COUNT - 1; bucket++)
+		{
+			long last = Histogram.upperBoundOf(bucket);
+
+			assertEquals(bucket, Histogram.bucketOf(last));
+			assertEquals(bucket + 1, Histogram.bucketOf(last + 1));
+		}
+
+		// Each power of two starts a bucket.
+		for(int power = 1; power < 63; power++)
+		{
+			long value = 1L << power;
+
+			assertEquals(Histogram.bucketOf(value - 1) + 1, Histogram.bucketOf(value));
+			assertEquals(value - 1, Histogram.upperBoundOf(Histogram.bucketOf(value - 1)));
+		}
+
+		assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketOf(Long.MAX_VALUE));
+		assertEquals(Long.MAX_VALUE, Histogram.upperBoundOf(Histogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void bucketsAreWithinAThirtySecond()
+	{
+		Random random = new Random(20);
+
+		for(int i = 0; i < 100000; i++)
+		{
+			// Values of every magnitude, up to Long.MAX_VALUE.
+			long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+			long bound = Histogram.upperBoundOf(Histogram.bucketOf(value));
+
+			assertTrue(value + " counted up to " + bound, bound >= value);
+
+			if(value < 64)
+				assertEquals(value, bound);
+			else
+				assertTrue(value + " counted up to " + bound, bound - value <= value / 32);
+		}
+	}
+
+	@Test
+	public void percentilesMatchASortedArray()
+	{
+		Random random       = new Random(21);
+		Histogram histogram = new Histogram();
+		long[] values       = new long[10000];
+		long sum            = 0;
+
+		for(int i = 0; i < values.length; i++)
+		{
+			// Roughly log-normal, as latencies are.
+			values[i] = (long) Math.exp(8 + 2 * random.nextGaussian());
+			sum      += values[i];
+
+			histogram.record(values[i]);
+		}
+
+		Arrays.sort(values);
+
+		assertEquals(values.length, histogram.getCount());
+		assertEquals(values[values.length - 1], histogram.getMax());
+		assertEquals((double) sum / values.length, histogram.getMean(), 1e-6);
+
+		for(double percentile : new double[] { 0, 0.1, 1, 10, 50, 90, 99, 99.9, 99.99, 100 })
+		{
+			long rank     = Math.max(1, (long) Math.ceil(percentile / 100 * values.length));
+			long expected = values[(int) rank - 1];
+			long actual   = histogram.getValueAtPercentile(percentile);
+
+			assertTrue("p" + percentile + " is " + actual + ", not " + expected,
+			           actual >= expected && actual - expected <= expected / 32);
+		}
+
+		assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void resetForgetsEverything()
+	{
+		Histogram histogram = new Histogram();
+
+		histogram.record(-5);
+		histogram.record(1000);
+		histogram.record(Long.MAX_VALUE);
+
+		assertEquals(0, histogram.getValueAtPercentile(0));
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getValueAtPercentile(50));
+
+		histogram.record(7);
+
+		assertEquals(1, histogram.getCount());
+		assertEquals(7, histogram.getValueAtPercentile(99));
+	}
+
+	@Test
+	public void metricsReportTheirHistograms()
+	{
+		TickMetrics metrics = new TickMetrics();
+
+		// 100 moves, each 1 to 100 microseconds late, and as many frames.
+		for(int i = 1; i <= 100; i++)
+		{
+			metrics.startTick(i * 1000L);
+			metrics.endTick();
+			metrics.recordCellWrites(i);
+		}
+
+		assertEquals(100, metrics.getTickCount());
+		assertEquals(100000, metrics.getJitterMaxNanos());
+		assertEquals(100, metrics.getMaxCellWritesPerFrame());
+		assertEquals(50.5, metrics.getMeanCellWritesPerFrame(), 1e-9);
+
+		long p50 = metrics.getJitterP50Nanos();
+		long p99 = metrics.getJitterP99Nanos();
+
+		assertTrue("p50 is " + p50, p50 >= 50000 && p50 - 50000 <= 50000 / 32);
+		assertTrue("p99 is " + p99, p99 >= 99000 && p99 - 99000 <= 99000 / 32);
+
+		metrics.reset();
+
+		assertEquals(0, metrics.getTickCount());
+		assertEquals(0, metrics.getJitterMaxNanos());
+		assertEquals(0, metrics.getMaxCellWritesPerFrame());
+	}
+}
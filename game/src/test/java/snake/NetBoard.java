@@ -0,0 +1,318 @@
+package snake;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ *
+ * A board rebuilt from the messages of NetFormat, the way SpectatorView keeps
+ * it, for the tests to check what the servers send. It can also be taken
+ * straight from an arena or a game, to compare with.
+ *
+ * Two boards are the same if their toString() is: their dimensions, tick,
+ * snakes and objects. Right after a snake grows, its new segment shares the
+ * tail's cell, which TICK messages don't tell, so bodies are compared with
+ * repeated cells counted once. Dead snakes are compared without their bodies.
+ */
+final class NetBoard
+{
+	/*
+	 * The game play dimensions, and the number of columns, walls included.
+	 */
+	int width;
+	int height;
+	int columns;
+
+	/*
+	 * The last move received, and the index of the receiver's snake.
+	 */
+	int tick;
+	int snake;
+
+	/*
+	 * Whether a STATE was received, before which TICKs are skipped.
+	 */
+	boolean has_state;
+
+	/*
+	 * Every snake's cells, from tail to head, score, direction's ordinal as of
+	 * the last STATE, and whether it is alive.
+	 */
+	final List<ArrayDeque<Integer>> bodies = new ArrayList<ArrayDeque<Integer>>();
+	int[] scores;
+	int[] directions;
+	boolean[] alive;
+
+	/*
+	 * The cells of the objects.
+	 */
+	final TreeSet<Integer> fruits    = new TreeSet<Integer>();
+	final TreeSet<Integer> dynamites = new TreeSet<Integer>();
+
+	/**
+	 * @param arena the arena.
+	 * @param tick the number of moves since the round started.
+	 * @return the board as the arena holds it.
+	 */
+	static NetBoard of(Arena arena, int tick)
+	{
+		NetBoard board = new NetBoard();
+
+		board.start(arena.getWidth(), arena.getHeight(), tick, -1, arena.getSnakeCount());
+
+		for(int i = 0; i < arena.getSnakeCount(); i++)
+		{
+			board.alive[i]      = arena.isSnakeAlive(i);
+			board.scores[i]     = arena.getScore(i);
+			board.directions[i] = arena.getSnakeDirection(i).ordinal();
+
+			for(Position p : arena.getSnakeBody(i))
+				board.bodies.get(i).addLast(arena.toCell(p));
+		}
+
+		for(Position p : arena.getFruits())
+			board.fruits.add(arena.toCell(p));
+
+		for(Position p : arena.getDynamites())
+			board.dynamites.add(arena.toCell(p));
+
+		return board;
+	}
+
+	/**
+	 * @param state the game.
+	 * @param tick the number of moves since the game started.
+	 * @return the board as the game holds it, as an arena of one snake.
+	 */
+	static NetBoard of(GameState state, int tick)
+	{
+		NetBoard board = new NetBoard();
+
+		board.start(state.getWidth(), state.getHeight(), tick, -1, 1);
+
+		board.alive[0]      = state.isSnakeAlive();
+		board.scores[0]     = state.getScore();
+		board.directions[0] = state.getSnakeDirection().ordinal();
+
+		for(Position p : state.getSnakeBody())
+			board.bodies.get(0).addLast(board.toCell(p));
+
+		for(Position p : state.getFruits())
+			board.fruits.add(board.toCell(p));
+
+		for(Position p : state.getDynamites())
+			board.dynamites.add(board.toCell(p));
+
+		return board;
+	}
+
+	/**
+	 * Reads a whole message from a stream.
+	 *
+	 * @return the message, its length skipped.
+	 * @throws IOException if the stream fails or ends.
+	 */
+	static ByteBuffer readMessage(DataInputStream in) throws IOException
+	{
+		byte[] message = new byte[in.readInt()];
+
+		in.readFully(message);
+
+		return ByteBuffer.wrap(message);
+	}
+
+	/**
+	 * Applies a message, its length skipped, which must be read whole.
+	 *
+	 * @param in the message.
+	 * @return the message's type.
+	 * @throws IllegalArgumentException if the message is not a valid one.
+	 */
+	byte read(ByteBuffer in)
+	{
+		byte type = in.get();
+
+		if(type == NetFormat.STATE)
+			readState(in);
+		else if(type == NetFormat.TICK)
+			readTick(in);
+		else
+			throw new IllegalArgumentException("Unknown message type " + type);
+
+		if(in.hasRemaining())
+			throw new IllegalArgumentException(in.remaining() + " bytes left in a message of type " + type);
+
+		return type;
+	}
+
+	/**
+	 * @return the cell of a position.
+	 */
+	int toCell(Position p)
+	{
+		return p.getY() * columns + p.getX();
+	}
+
+	/**
+	 * Empties the board.
+	 */
+	private void start(int width, int height, int tick, int snake, int snake_count)
+	{
+		this.width   = width;
+		this.height  = height;
+		this.tick    = tick;
+		this.snake   = snake;
+		this.columns = width + 1;
+
+		has_state  = true;
+		scores     = new int[snake_count];
+		directions = new int[snake_count];
+		alive      = new boolean[snake_count];
+
+		bodies.clear();
+		fruits.clear();
+		dynamites.clear();
+
+		for(int i = 0; i < snake_count; i++)
+			bodies.add(new ArrayDeque<Integer>());
+	}
+
+	/**
+	 * Rebuilds the board from a STATE message.
+	 */
+	private void readState(ByteBuffer in)
+	{
+		short version = in.getShort();
+
+		if(version != NetFormat.VERSION)
+			throw new IllegalArgumentException("Unsupported version " + version);
+
+		int width  = in.getInt();
+		int height = in.getInt();
+		int tick   = in.getInt();
+		int snake  = in.get();
+
+		start(width, height, tick, snake, in.get());
+
+		for(int i = 0; i < alive.length; i++)
+		{
+			alive[i]      = in.get() != 0;
+			scores[i]     = in.getInt();
+			directions[i] = in.get();
+
+			int length = in.getInt();
+
+			for(int j = 0; j < length; j++)
+				bodies.get(i).addLast(in.getInt());
+		}
+
+		for(int i = in.getInt(); i > 0; i--)
+			fruits.add(in.getInt());
+
+		for(int i = in.getInt(); i > 0; i--)
+			dynamites.add(in.getInt());
+	}
+
+	/**
+	 * Applies a TICK message, in the order its parts are described in
+	 * NetFormat.
+	 */
+	private void readTick(ByteBuffer in)
+	{
+		int new_tick = in.getInt();
+
+		if(!has_state)
+		{
+			in.position(in.limit());
+			return;
+		}
+
+		tick = new_tick;
+
+		for(int i = in.get(); i > 0; i--)
+		{
+			ArrayDeque<Integer> body = bodies.get(in.get());
+
+			int head = in.getInt();
+			int tail = in.getInt();
+
+			if(tail != ArenaEvents.NO_CELL)
+				body.pollFirst();
+
+			body.addLast(head);
+		}
+
+		for(int i = in.get(); i > 0; i--)
+		{
+			int snake = in.get();
+
+			bodies.get(snake).clear();
+			alive[snake] = false;
+		}
+
+		for(int i = in.getShort(); i > 0; i--)
+		{
+			byte kind = in.get();
+			int cell  = in.getInt();
+
+			if(kind == Arena.FRUIT)
+				fruits.add(cell);
+			else if(kind == Arena.DYNAMITE)
+				dynamites.add(cell);
+			else
+				throw new IllegalArgumentException("Unknown object " + kind);
+		}
+
+		for(int i = in.getShort(); i > 0; i--)
+		{
+			int cell = in.getInt();
+
+			fruits.remove(cell);
+			dynamites.remove(cell);
+		}
+
+		for(int i = in.get(); i > 0; i--)
+		{
+			int snake = in.get();
+
+			scores[snake] = in.getInt();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder out = new StringBuilder();
+
+		out.append(width).append('x').append(height).append(" tick ").append(tick).append('\n');
+
+		for(int i = 0; i < bodies.size(); i++)
+		{
+			out.append("snake ").append(i).append(alive[i] ? " alive" : " dead")
+			   .append(" score ").append(scores[i]);
+
+			if(alive[i])
+			{
+				int last = -1;
+
+				for(int cell : bodies.get(i))
+				{
+					if(cell != last)
+						out.append(' ').append(cell % columns).append(',').append(cell / columns);
+
+					last = cell;
+				}
+			}
+
+			out.append('\n');
+		}
+
+		return out.append("fruits ").append(fruits).append('\n')
+		          .append("dynamites ").append(dynamites).toString();
+	}
+}
@@ -0,0 +1,162 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ *
+ * Encodes arenas and games as STATE and TICK messages, and checks that a
+ * board rebuilt from them, as a client keeps it, is the one they came from
+ * after every move.
+ */
+public class NetFormatTest
+{
+	@Test
+	public void ticksFollowTheArena()
+	{
+		int eaten = 0;
+
+		for(long seed = 0; seed < 10; seed++)
+		{
+			Arena arena            = new Arena(40, 16, 4, seed);
+			Autopilot[] autopilots = new Autopilot[arena.getSnakeCount()];
+			Direction[] directions = new Direction[arena.getSnakeCount()];
+
+			for(int i = 0; i < autopilots.length; i++)
+				autopilots[i] = new Autopilot();
+
+			for(int i = 0; i < 6; i++)
+				arena.spawnFruit();
+
+			NetBoard client = new NetBoard();
+
+			client.read(encodeState(arena, 0, 2));
+
+			assertEquals(2, client.snake);
+			assertEquals(NetBoard.of(arena, 0).toString(), client.toString());
+
+			for(int i = 0; i < arena.getSnakeCount(); i++)
+				assertEquals(arena.getSnakeDirection(i).ordinal(), client.directions[i]);
+
+			for(int tick = 1; tick <= 2000 && arena.getAliveCount() > 0; tick++)
+			{
+				for(int i = 0; i < autopilots.length; i++)
+					directions[i] = arena.isSnakeAlive(i) ? autopilots[i].decide(arena, i) : null;
+
+				ArenaEvents events = arena.step(directions);
+
+				// Objects placed after the move go with it, as on the server.
+				if(tick % 10 == 0)
+				{
+					arena.spawnFruit();
+					arena.spawnDynamite();
+				}
+
+				for(int i = 0; i < arena.getSnakeCount(); i++)
+				{
+					if(events.hasScoreChanged(i))
+						eaten++;
+				}
+
+				client.read(encodeTick(events, tick));
+
+				String expected = NetBoard.of(arena, tick).toString();
+
+				assertEquals(expected, client.toString());
+
+				// A client joining now gets the same board.
+				if(tick % 100 == 0)
+				{
+					NetBoard joined = new NetBoard();
+
+					joined.read(encodeState(arena, tick, -1));
+
+					assertEquals(-1, joined.snake);
+					assertEquals(expected, joined.toString());
+				}
+			}
+		}
+
+		assertTrue("Only " + eaten + " objects taken", eaten > 100);
+	}
+
+	@Test
+	public void stateDescribesAGame()
+	{
+		GameState state = new GameState(GameConfig.DEFAULT, 3, BoardStorage.HEAP);
+
+		state.addFruit(Position.of(30, 4));
+		state.addDynamite(Position.of(50, 9));
+		state.moveSnake();
+
+		ByteBuffer message = ByteBuffer.allocate(NetFormat.getStateSize(state));
+
+		NetFormat.writeState(message, state, 1);
+
+		NetBoard client = new NetBoard();
+
+		client.read(skipLength(message));
+
+		assertEquals(-1, client.snake);
+		assertEquals(NetBoard.of(state, 1).toString(), client.toString());
+		assertEquals(Direction.RIGHT.ordinal(), client.directions[0]);
+	}
+
+	@Test
+	public void inputsRoundTrip()
+	{
+		for(Direction dir : Direction.values())
+			assertEquals(dir, NetFormat.decodeInput(NetFormat.encodeInput(dir)));
+
+		assertNull(NetFormat.decodeInput(0));
+		assertNull(NetFormat.decodeInput(Direction.values().length + 1));
+		assertNull(NetFormat.decodeInput(-1));
+	}
+
+	/**
+	 * @return a STATE message of exactly its announced size, its length
+	 * skipped.
+	 */
+	private static ByteBuffer encodeState(Arena arena, int tick, int snake)
+	{
+		ByteBuffer message = ByteBuffer.allocate(NetFormat.getStateSize(arena));
+
+		NetFormat.writeState(message, arena, tick, snake);
+
+		return skipLength(message);
+	}
+
+	/**
+	 * @return a TICK message of exactly its announced size, its length
+	 * skipped.
+	 */
+	private static ByteBuffer encodeTick(ArenaEvents events, int tick)
+	{
+		ByteBuffer message = ByteBuffer.allocate(NetFormat.getTickSize(events));
+
+		NetFormat.writeTick(message, events, tick);
+
+		return skipLength(message);
+	}
+
+	/**
+	 * Checks that a message fills its buffer and that its length says so.
+	 *
+	 * @return the message, ready to be read from its type on.
+	 */
+	private static ByteBuffer skipLength(ByteBuffer message)
+	{
+		assertEquals(0, message.remaining());
+
+		message.flip();
+
+		assertEquals(message.remaining() - 4, message.getInt());
+
+		return message;
+	}
+}
@@ -0,0 +1,418 @@
+package snake;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * Records games played by the autopilot, with objects spawned at random
+ * between moves, and checks that their replays play them back exactly,
+ * however long the games last, and seek to any move of them.
+ * Games are compared through their snapshots, which hold all of their state
+ * but the turns waiting to be taken.
+ */
+public class ReplayTest
+{
+	/*
+	 * The board and the rules of the recorded games, which are not the
+	 * defaults, so that the replays must carry them.
+	 */
+	private final static GameConfig CONFIG = GameConfig.DEFAULT.withBoardSize(40, 16)
+	                                                           .withRules(6, 5, 9);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void sameSeedAndMovesPlayTheSameGame()
+	{
+		SnakeEngine first  = new SnakeEngine(CONFIG);
+		SnakeEngine second = new SnakeEngine(CONFIG);
+
+		first.reset(16);
+		second.reset(16);
+
+		Random random = new Random(17);
+
+		for(int move = 0; move < 500; move++)
+		{
+			if(random.nextInt(4) == 0)
+			{
+				assertEquals(first.spawnFruit(), second.spawnFruit());
+				assertEquals(first.spawnDynamite(), second.spawnDynamite());
+			}
+
+			Direction dir = Direction.values()[random.nextInt(4)];
+
+			first.step(dir);
+			second.step(dir);
+
+			assertArrayEquals(snapshot(first.getState()), snapshot(second.getState()));
+		}
+	}
+
+	@Test
+	public void replayPlaysTheGameBack() throws IOException
+	{
+		for(int keyframe_interval : new int[] { 0, 1, 7, ReplayFormat.DEFAULT_KEYFRAME_INTERVAL })
+		{
+			Path path            = folder.newFile().toPath();
+			List<byte[]> played  = record(path, 18 + keyframe_interval, keyframe_interval);
+
+			try(ReplayReader reader = new ReplayReader(path))
+			{
+				assertEquals(CONFIG.getWidth(), reader.getWidth());
+				assertEquals(CONFIG.getHeight(), reader.getHeight());
+				assertEquals(CONFIG.getInitialSize(), reader.getConfig().getInitialSize());
+				assertEquals(CONFIG.getScorePenalty(), reader.getConfig().getScorePenalty());
+				assertEquals(18 + keyframe_interval, reader.getSeed());
+				assertEquals(keyframe_interval, reader.getKeyframeInterval());
+				assertEquals(played.size() - 1, reader.getTickCount());
+
+				SnakeEngine engine = new SnakeEngine(reader.getConfig());
+
+				engine.reset(reader.getSeed());
+
+				assertArrayEquals(played.get(0), snapshot(engine.getState()));
+
+				for(int tick = 1; tick < played.size(); tick++)
+				{
+					ReplayReader.play(engine, reader.nextTick());
+
+					assertArrayEquals("Tick " + tick, played.get(tick), snapshot(engine.getState()));
+				}
+
+				assertEquals(-1, reader.nextTick());
+			}
+
+			assertArrayEquals(played.get(played.size() - 1), snapshot(ReplayReader.replay(path)));
+		}
+	}
+
+	@Test
+	public void seekReachesEveryTick() throws IOException
+	{
+		for(int keyframe_interval : new int[] { 0, 1, 7 })
+		{
+			Path path           = folder.newFile().toPath();
+			List<byte[]> played = record(path, 20 + keyframe_interval, keyframe_interval);
+			int last            = played.size() - 1;
+
+			assertTrue("Only " + last + " moves", last > 100);
+
+			try(ReplayReader reader = new ReplayReader(path))
+			{
+				SnakeEngine engine  = new SnakeEngine(reader.getConfig());
+				List<Integer> ticks = new ArrayList<Integer>();
+
+				// On the keyframes and around them, both ends, then anywhere,
+				// back and forth with the same engine.
+				for(int tick = 0; tick <= last; tick += Math.max(keyframe_interval, 10))
+				{
+					ticks.add(tick);
+					ticks.add(Math.max(tick - 1, 0));
+					ticks.add(Math.min(tick + 1, last));
+				}
+
+				ticks.add(last);
+				ticks.add(0);
+
+				Random random = new Random(keyframe_interval);
+
+				for(int i = 0; i < 50; i++)
+					ticks.add(random.nextInt(last + 1));
+
+				for(int tick : ticks)
+				{
+					reader.seek(engine, tick);
+
+					assertArrayEquals("Tick " + tick, played.get(tick), snapshot(engine.getState()));
+
+					// Reading goes on from there.
+					if(tick < last)
+					{
+						ReplayReader.play(engine, reader.nextTick());
+
+						assertArrayEquals("Tick " + (tick + 1), played.get(tick + 1), snapshot(engine.getState()));
+					}
+					else
+					{
+						assertEquals(-1, reader.nextTick());
+					}
+				}
+
+				// A new engine, straight to the middle of a block.
+				SnakeEngine other = new SnakeEngine(reader.getConfig());
+				int middle        = last / 2;
+
+				reader.seek(other, middle);
+
+				assertArrayEquals(played.get(middle), snapshot(other.getState()));
+			}
+		}
+	}
+
+	@Test
+	public void seekFollowsTurnsQueuedBeforeKeyframes() throws IOException
+	{
+		Path path           = folder.newFile().toPath();
+		List<byte[]> played = record(path, 23, 7, true);
+		int last            = played.size() - 1;
+
+		assertTrue("Only " + last + " moves", last > 100);
+
+		try(ReplayReader reader = new ReplayReader(path))
+		{
+			SnakeEngine engine = new SnakeEngine(reader.getConfig());
+
+			for(int tick = 0; tick <= last; tick++)
+			{
+				reader.seek(engine, tick);
+
+				assertArrayEquals("Tick " + tick, played.get(tick), snapshot(engine.getState()));
+			}
+		}
+	}
+
+	@Test
+	public void keyframesAreAboutTwiceTheMovesBeforeThem() throws IOException
+	{
+		for(GameConfig config : new GameConfig[] { GameConfig.DEFAULT, CONFIG, CONFIG.withBoardSize(300, 200),
+		                                           CONFIG.withBoardSize(1000, 1000),
+		                                           CONFIG.withBoardSize(2000, 2000) })
+		{
+			int interval = ReplayFormat.getKeyframeInterval(config);
+			int size     = new GameState(config, 1, BoardStorage.HEAP).getSnapshotSize();
+
+			assertTrue(interval >= ReplayFormat.DEFAULT_KEYFRAME_INTERVAL);
+			assertTrue(config.getWidth() + " x " + config.getHeight() + ": " + size + " bytes every "
+			           + interval + " moves", size <= 2 * interval * ReplayFormat.RECORD_SIZE);
+		}
+
+		Path path = folder.newFile().toPath();
+
+		new ReplayWriter(path, CONFIG, 1).close();
+
+		try(ReplayReader reader = new ReplayReader(path))
+		{
+			assertEquals(ReplayFormat.getKeyframeInterval(CONFIG), reader.getKeyframeInterval());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void seekRejectsTicksPastTheEnd() throws IOException
+	{
+		Path path           = folder.newFile().toPath();
+		List<byte[]> played = record(path, 21, 7);
+
+		try(ReplayReader reader = new ReplayReader(path))
+		{
+			reader.seek(new SnakeEngine(reader.getConfig()), played.size());
+		}
+	}
+
+	@Test
+	public void replayHoldsTheMostObjectsAMoveAllows() throws IOException
+	{
+		GameConfig config  = CONFIG.withBoardSize(120, 40);
+		Path path          = folder.newFile().toPath();
+		SnakeEngine engine = new SnakeEngine(config);
+
+		engine.reset(19);
+
+		try(ReplayWriter writer = new ReplayWriter(path, config, 19, 0))
+		{
+			engine.setRecorder(writer);
+
+			for(int move = 0; move < 3; move++)
+			{
+				assertTrue(engine.canSpawn());
+
+				while(engine.canSpawn())
+				{
+					engine.spawnFruit();
+					engine.spawnDynamite();
+				}
+
+				engine.step(null);
+			}
+		}
+
+		try(ReplayReader reader = new ReplayReader(path))
+		{
+			assertEquals(3, reader.getTickCount());
+
+			for(int tick = 0; tick < 3; tick++)
+			{
+				assertEquals(ReplayFormat.MAX_SPAWNS, ReplayFormat.spawnedFruits(reader.getTick(tick)));
+				assertEquals(ReplayFormat.MAX_SPAWNS, ReplayFormat.spawnedDynamites(reader.getTick(tick)));
+			}
+		}
+
+		assertArrayEquals(snapshot(engine.getState()), snapshot(ReplayReader.replay(path)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recordRejectsTooManyObjects()
+	{
+		ReplayFormat.encode(Direction.UP, ReplayFormat.MAX_SPAWNS + 1, 0);
+	}
+
+	/**
+	 * Records a game to a replay file.
+	 *
+	 * @return the snapshots of the game before its first move and after each
+	 * of the others.
+	 */
+	private static List<byte[]> record(Path path, long seed, int keyframe_interval) throws IOException
+	{
+		return record(path, seed, keyframe_interval, false);
+	}
+
+	/**
+	 * Records a game to a replay file, in which the player may queue several
+	 * turns during the move before a keyframe, so that some are still waiting
+	 * when the keyframe is written.
+	 *
+	 * @return the snapshots of the game before its first move and after each
+	 * of the others.
+	 */
+	private static List<byte[]> record(Path path, long seed, int keyframe_interval,
+	                                   boolean queue_turns) throws IOException
+	{
+		SnakeEngine engine  = new SnakeEngine(CONFIG);
+		Autopilot autopilot = new Autopilot();
+		Random random       = new Random(seed);
+		List<byte[]> played = new ArrayList<byte[]>();
+		int waiting         = 0;
+
+		engine.reset(seed);
+
+		try(ReplayWriter writer = new ReplayWriter(path, CONFIG, seed, keyframe_interval))
+		{
+			engine.setRecorder(writer);
+
+			GameState state = engine.getState();
+
+			played.add(snapshot(state));
+
+			for(int move = 0; move < 1500 && state.isSnakeAlive(); move++)
+			{
+				// Several objects now and then, in the order a replay plays
+				// them back: in pairs, and then those left over.
+				int fruits    = (random.nextInt(3) == 0) ? 1 + random.nextInt(3) : 0;
+				int dynamites = (random.nextInt(10) == 0) ? 1 + random.nextInt(3) : 0;
+
+				for(int i = 0; i < fruits || i < dynamites; i++)
+				{
+					if(i < fruits)
+						engine.spawnFruit();
+
+					if(i < dynamites)
+						engine.spawnDynamite();
+				}
+
+				// The turns queued are all taken before the autopilot drives
+				// again.
+				if(queue_turns && (move + 1) % keyframe_interval == 0)
+					waiting = queueTurns(state);
+
+				if(waiting > 0)
+				{
+					engine.step(null);
+					waiting--;
+				}
+				else
+				{
+					engine.step(autopilot.decide(state));
+				}
+
+				played.add(snapshot(state));
+			}
+		}
+
+		return played;
+	}
+
+	/**
+	 * Queues a turn, a turn back and the first turn again, if the snake
+	 * survives them: the first is taken on the next move, and the others
+	 * wait.
+	 *
+	 * @return the number of turns queued.
+	 */
+	private static int queueTurns(GameState state)
+	{
+		Direction dir = state.getSnakeDirection();
+
+		Direction[] turns = (dir == Direction.LEFT || dir == Direction.RIGHT)
+		                  ? new Direction[] { Direction.UP, Direction.DOWN }
+		                  : new Direction[] { Direction.LEFT, Direction.RIGHT };
+
+		for(Direction turn : turns)
+		{
+			Position first  = next(state.getSnakeHead(), turn);
+			Position second = next(first, dir);
+			Position third  = next(second, turn);
+
+			if(isSafe(state, first) && isSafe(state, second) && isSafe(state, third))
+			{
+				state.queueDirection(turn);
+				state.queueDirection(dir);
+				state.queueDirection(turn);
+
+				return 3;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * @return the position next to the given one in the given direction.
+	 */
+	private static Position next(Position p, Direction dir)
+	{
+		switch(dir)
+		{
+			case UP:    return Position.of(p.getX(), p.getY() - 1);
+			case DOWN:  return Position.of(p.getX(), p.getY() + 1);
+			case LEFT:  return Position.of(p.getX() - 1, p.getY());
+			default:    return Position.of(p.getX() + 1, p.getY());
+		}
+	}
+
+	/**
+	 * @return true if the position is inside the walls and off the snake.
+	 */
+	private static boolean isSafe(GameState state, Position p)
+	{
+		return p.getX() > 0 && p.getX() < state.getWidth()
+		    && p.getY() > 0 && p.getY() < state.getHeight()
+		    && !state.isSnakeBody(p);
+	}
+
+	/**
+	 * @return a snapshot of the game.
+	 */
+	private static byte[] snapshot(GameState state)
+	{
+		ByteBuffer out = ByteBuffer.allocate(state.getSnapshotSize());
+
+		state.writeSnapshot(out);
+
+		return out.array();
+	}
+}
@@ -0,0 +1,223 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks the snake's ring buffer and occupancy grid against a plain list of
+ * positions, from tail to head, moved and grown the obvious way.
+ */
+public class SnakeTest
+{
+	/*
+	 * The board the snakes move on.
+	 */
+	private final static int WIDTH  = 40;
+	private final static int HEIGHT = 30;
+
+	/*
+	 * Every direction.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	@Test
+	public void startsStretchedBehindItsHead()
+	{
+		Snake snake = new Snake(Direction.RIGHT, WIDTH, HEIGHT, Position.of(10, 5));
+
+		List<Position> expected = new ArrayList<Position>();
+
+		for(int x = 10 - Snake.SNAKE_INITIAL_SIZE + 1; x <= 10; x++)
+			expected.add(Position.of(x, 5));
+
+		assertEquals(expected, snake.getBody());
+		assertEquals(Position.of(10, 5), snake.getHead());
+		assertEquals(Position.of(7, 5), snake.getTail());
+		assertTrue(snake.isAlive());
+	}
+
+	@Test
+	public void growsOnTheMoveAfterIncreaseSize()
+	{
+		Snake snake = new Snake(Direction.RIGHT, WIDTH, HEIGHT, Position.of(10, 5));
+
+		snake.increaseSize();
+
+		// The new block lies on the tail until the next move leaves it behind.
+		assertEquals(Snake.SNAKE_INITIAL_SIZE + 1, snake.getSize());
+		assertEquals(Position.of(7, 5), snake.getBody().get(0));
+		assertEquals(Position.of(7, 5), snake.getBody().get(1));
+
+		snake.move();
+
+		assertEquals(Position.of(7, 5), snake.getTail());
+		assertEquals(Position.of(11, 5), snake.getHead());
+		assertTrue(snake.isBody(Position.of(7, 5)));
+
+		snake.move();
+
+		assertEquals(Position.of(8, 5), snake.getTail());
+		assertFalse(snake.isBody(Position.of(7, 5)));
+	}
+
+	@Test
+	public void bitesItselfWhenTurningIntoItsBody()
+	{
+		Snake snake = new Snake(Direction.RIGHT, WIDTH, HEIGHT, Position.of(10, 5));
+
+		for(int i = 0; i < 4; i++)
+			snake.increaseSize();
+
+		snake.move();
+		snake.setDirection(Direction.DOWN);
+		snake.move();
+		snake.setDirection(Direction.LEFT);
+		snake.move();
+
+		assertFalse(snake.hasBittenItself());
+
+		snake.setDirection(Direction.UP);
+		snake.move();
+
+		assertTrue(snake.hasBittenItself());
+	}
+
+	@Test
+	public void chasingItsTailIsNotABite()
+	{
+		// A snake of four turning in a square steps where its tail just left.
+		Snake snake = new Snake(Direction.RIGHT, WIDTH, HEIGHT, Position.of(10, 5));
+
+		snake.setDirection(Direction.DOWN);
+		snake.move();
+		snake.setDirection(Direction.LEFT);
+		snake.move();
+		snake.setDirection(Direction.UP);
+		snake.move();
+
+		assertFalse(snake.hasBittenItself());
+		assertEquals(Position.of(9, 5), snake.getHead());
+	}
+
+	@Test
+	public void matchesAListModel()
+	{
+		Random random = new Random(1);
+		int moves     = 0;
+
+		for(int run = 0; run < 200; run++)
+		{
+			BoardStorage storage = (run % 2 == 0) ? BoardStorage.HEAP : BoardStorage.DIRECT;
+
+			Snake snake          = new Snake(Direction.RIGHT, WIDTH, HEIGHT, Position.of(10, 15), storage);
+			List<Position> model = new ArrayList<Position>(snake.getBody());
+
+			for(int move = 0; move < 2000; move++)
+			{
+				if(random.nextInt(20) == 0)
+				{
+					snake.increaseSize();
+					model.add(0, model.get(0));
+				}
+
+				Direction dir = pickDirection(random, model);
+
+				snake.setDirection(dir);
+				snake.move();
+
+				Position head = next(model.get(model.size() - 1), dir);
+
+				model.remove(0);
+
+				boolean bitten = model.contains(head);
+
+				model.add(head);
+
+				assertEquals(bitten, snake.hasBittenItself());
+
+				moves++;
+
+				// The game ends on a bite, and so does what the snake promises.
+				if(bitten)
+					break;
+
+				assertEquals(model, snake.getBody());
+				assertEquals(model.size(), snake.getSize());
+				assertEquals(model.get(0), snake.getTail());
+				assertEquals(head, snake.getHead());
+
+				for(int i = 0; i < 8; i++)
+				{
+					Position p = Position.of(random.nextInt(WIDTH + 1), random.nextInt(HEIGHT + 1));
+
+					assertEquals(model.contains(p), snake.isBody(p));
+				}
+
+				for(Position p : model)
+					assertTrue(snake.isBody(p));
+			}
+		}
+
+		// Most runs should be long, rather than ending on an early bite.
+		assertTrue("Only " + moves + " moves", moves > 200 * 100);
+	}
+
+	/**
+	 * @return a random direction that keeps the head inside the walls, and
+	 * off the body but for one move in a hundred, if there is one.
+	 */
+	private static Direction pickDirection(Random random, List<Position> model)
+	{
+		Position head       = model.get(model.size() - 1);
+		boolean may_bite    = random.nextInt(100) == 0;
+		List<Direction> ok  = new ArrayList<Direction>();
+		List<Direction> any = new ArrayList<Direction>();
+
+		for(Direction dir : DIRECTIONS)
+		{
+			Position p = next(head, dir);
+
+			if(p.getX() <= 0 || p.getX() >= WIDTH || p.getY() <= 0 || p.getY() >= HEIGHT)
+				continue;
+
+			any.add(dir);
+
+			// The tail's cell is left by the move, unless the snake has grown.
+			if(!model.subList(1, model.size()).contains(p))
+				ok.add(dir);
+		}
+
+		List<Direction> choices = (may_bite || ok.isEmpty()) ? any : ok;
+
+		return choices.get(random.nextInt(choices.size()));
+	}
+
+	/**
+	 * @return the position next to the given one in the given direction.
+	 */
+	private static Position next(Position p, Direction dir)
+	{
+		switch(dir)
+		{
+			case UP:
+				return Position.of(p.getX(), p.getY() - 1);
+
+			case DOWN:
+				return Position.of(p.getX(), p.getY() + 1);
+
+			case LEFT:
+				return Position.of(p.getX() - 1, p.getY());
+
+			default:
+				return Position.of(p.getX() + 1, p.getY());
+		}
+	}
+}
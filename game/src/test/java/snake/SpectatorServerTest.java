@@ -0,0 +1,192 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.junit.Test;
+
+/**
+ *
+ * Streams a game to a spectator that reads nothing for a long while, and
+ * checks that it skips the moves it fell behind on and catches up with a
+ * STATE, after which its board is the game's again.
+ */
+public class SpectatorServerTest
+{
+	/*
+	 * The number of moves published while the spectator reads nothing: their
+	 * TICKs add up to far more than the spectator's backlog and the sockets'
+	 * buffers hold.
+	 */
+	private final static int FLOOD = 300000;
+
+	/*
+	 * The number of moves published between two pauses of a millisecond, few
+	 * enough for the server's thread to keep up with the ring: only the
+	 * spectator falls behind, and only its backlog can ask for a STATE.
+	 */
+	private final static int PACE = 100;
+
+	/*
+	 * The time in milliseconds to wait for the spectator to join, and for a
+	 * message once it has started.
+	 */
+	private final static int TIMEOUT = 5000;
+
+	/*
+	 * The time in milliseconds without a message after which the spectator
+	 * is taken to have read everything sent so far.
+	 */
+	private final static int IDLE = 200;
+
+	@Test
+	public void slowSpectatorCatchesUpWithAState() throws IOException, InterruptedException
+	{
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+
+		try(SpectatorServer server = new SpectatorServer(new InetSocketAddress(loopback, 0));
+		    Socket socket = new Socket())
+		{
+			socket.setReceiveBufferSize(4096);
+			socket.setSoTimeout(TIMEOUT);
+			socket.connect(new InetSocketAddress(loopback, server.getPort()));
+
+			for(long waited = 0; server.getClientCount() == 0 && waited < TIMEOUT; waited += 10)
+				Thread.sleep(10);
+
+			assertEquals(1, server.getClientCount());
+
+			SnakeEngine engine = new SnakeEngine(GameConfig.DEFAULT);
+
+			engine.reset(24);
+			server.startGame(engine.getState());
+
+			int tick = 0;
+
+			while(tick < FLOOD)
+			{
+				server.publishMove(engine.getState(), engine.step(circle(tick++)));
+
+				if(tick % PACE == 0)
+					Thread.sleep(1);
+			}
+
+			Spectator spectator = new Spectator(socket);
+
+			spectator.readAvailable();
+
+			// The STATE it asked for comes with the next move.
+			for(int i = 0; i < 50 && spectator.board.tick != tick; i++)
+			{
+				server.publishMove(engine.getState(), engine.step(circle(tick++)));
+				spectator.readAvailable();
+			}
+
+			assertEquals(NetBoard.of(engine.getState(), tick).toString(), spectator.board.toString());
+			assertTrue(spectator.skipped);
+			assertTrue(spectator.states >= 2);
+
+			// From then on, it follows every move.
+			for(int i = 0; i < 100; i++)
+			{
+				server.publishMove(engine.getState(), engine.step(circle(tick++)));
+				spectator.readMessage();
+
+				assertEquals(NetBoard.of(engine.getState(), tick).toString(), spectator.board.toString());
+			}
+		}
+	}
+
+	/**
+	 * @return the direction that keeps the snake going round a rectangle of
+	 * 10 x 5 cells, from its starting position, forever.
+	 */
+	private static Direction circle(int move)
+	{
+		int phase = move % 30;
+
+		if(phase < 10)
+			return Direction.RIGHT;
+		else if(phase < 15)
+			return Direction.UP;
+		else if(phase < 25)
+			return Direction.LEFT;
+		else
+			return Direction.DOWN;
+	}
+
+	/**
+	 * A spectator, rebuilding the board from what it reads, and checking
+	 * that the moves it gets follow each other unless a STATE comes first.
+	 */
+	private final static class Spectator
+	{
+		/*
+		 * What the server sends.
+		 */
+		final DataInputStream in;
+
+		/*
+		 * The board, the number of STATEs received, and whether moves were
+		 * skipped.
+		 */
+		final NetBoard board;
+		int states;
+		boolean skipped;
+
+		Spectator(Socket socket) throws IOException
+		{
+			in    = new DataInputStream(socket.getInputStream());
+			board = new NetBoard();
+		}
+
+		/**
+		 * Reads messages until none comes for IDLE milliseconds.
+		 */
+		void readAvailable() throws IOException, InterruptedException
+		{
+			int idle = 0;
+
+			while(idle < IDLE)
+			{
+				if(in.available() > 0)
+				{
+					readMessage();
+					idle = 0;
+				}
+				else
+				{
+					Thread.sleep(10);
+					idle += 10;
+				}
+			}
+		}
+
+		/**
+		 * Reads a whole message.
+		 */
+		void readMessage() throws IOException
+		{
+			int tick  = board.tick;
+			byte type = board.read(NetBoard.readMessage(in));
+
+			if(type == NetFormat.STATE)
+			{
+				states++;
+
+				if(board.tick > tick + 1)
+					skipped = true;
+			}
+			else if(states > 0)
+			{
+				assertEquals(tick + 1, board.tick);
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package snake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Plays the same moves on a board of a VectorEnvironment and on a SnakeEngine,
+ * and checks that both agree on the snake, the objects, the rewards and the
+ * end of the game, move after move.
+ *
+ * The two place new objects with generators of their own, so the objects the
+ * environment places before its first move are copied into the engine, and
+ * nothing else is placed: a game is only followed up to its first fruit,
+ * after which each one places the next fruit somewhere else.
+ */
+public class VectorEnvironmentTest
+{
+	/*
+	 * A small board, so that the snake eats, steps over dynamites and dies
+	 * within a few moves. The snake starts with its head on (6, 3).
+	 */
+	private final static GameConfig CONFIG = GameConfig.DEFAULT.withBoardSize(12, 7);
+
+	/*
+	 * The number of cells of the board, walls included.
+	 */
+	private final static int CHANNEL_SIZE = (CONFIG.getWidth() + 1) * (CONFIG.getHeight() + 1);
+
+	/*
+	 * Every direction.
+	 */
+	private final static Direction[] DIRECTIONS = Direction.values();
+
+	@Test
+	public void boardFollowsTheEngine()
+	{
+		Random random = new Random(21);
+		int fruits    = 0;
+		int dynamites = 0;
+		int deaths    = 0;
+
+		int[] actions    = new int[1];
+		float[] rewards  = new float[1];
+		boolean[] dones  = new boolean[1];
+		float[] observed = new float[CHANNEL_SIZE * VectorEnvironment.CHANNEL_COUNT];
+
+		for(int game = 0; game < 500; game++)
+		{
+			// Objects are only placed before the first move.
+			VectorEnvironment environment = new VectorEnvironment(1, CONFIG, Integer.MAX_VALUE, 0);
+			SnakeEngine engine            = new SnakeEngine(CONFIG);
+
+			environment.reset(game);
+			engine.reset(game);
+
+			GameState state = engine.getState();
+
+			for(int move = 0; state.isSnakeAlive(); move++)
+			{
+				Direction dir = choose(state, random);
+
+				actions[0] = (dir != null) ? dir.ordinal() + 1 : VectorEnvironment.NO_TURN;
+				environment.step(actions, rewards, dones);
+
+				if(move == 0)
+				{
+					// The first move landed on a new object, which the engine
+					// can't be given in time.
+					if(rewards[0] != 0)
+						break;
+
+					environment.observe(observed, 0);
+					copyObjects(observed, state);
+				}
+
+				int score         = state.getScore();
+				TickEvents events = engine.step(dir);
+
+				assertEquals(events.hasDied(), dones[0]);
+
+				if(dones[0])
+				{
+					deaths++;
+					break;
+				}
+
+				assertEquals(state.getScore() - score, rewards[0], 0);
+				assertEquals(state.getScore(), environment.getScore(0));
+				assertEquals(state.getSnakeLength(), environment.getSnakeLength(0));
+				assertEquals(state.getSnakeDirection().ordinal(), environment.getDirection(0));
+				assertEquals(move + 1, environment.getSteps(0));
+
+				environment.observe(observed, 0);
+				assertSameBoard(state, observed, !events.hasEatenFruit());
+
+				if(events.hasSteppedDynamite())
+					dynamites++;
+
+				if(events.hasEatenFruit())
+				{
+					fruits++;
+					break;
+				}
+			}
+		}
+
+		// The moves went through every rule.
+		assertTrue(fruits > 50);
+		assertTrue(dynamites > 50);
+		assertTrue(deaths > 50);
+	}
+
+	/**
+	 * @return a direction that mostly keeps clear of the walls and the body,
+	 * or null to keep going.
+	 */
+	private static Direction choose(GameState state, Random random)
+	{
+		Direction dir = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+
+		for(int i = 0; i < DIRECTIONS.length && random.nextInt(8) != 0; i++)
+		{
+			if(isSafe(state, dir))
+				break;
+
+			dir = DIRECTIONS[(dir.ordinal() + 1) % DIRECTIONS.length];
+		}
+
+		if(dir == state.getSnakeDirection() && random.nextBoolean())
+			return null;
+
+		return dir;
+	}
+
+	/**
+	 * @return true if turning to the given direction doesn't move the head
+	 * into a wall or onto the body.
+	 */
+	private static boolean isSafe(GameState state, Direction dir)
+	{
+		// Turning back is ignored. Opposite directions' ordinals only differ
+		// by their lowest bit.
+		if((dir.ordinal() ^ 1) == state.getSnakeDirection().ordinal())
+			dir = state.getSnakeDirection();
+
+		int x = state.getSnakeHead().getX();
+		int y = state.getSnakeHead().getY();
+
+		switch(dir)
+		{
+			case UP:
+				y--;
+				break;
+
+			case DOWN:
+				y++;
+				break;
+
+			case LEFT:
+				x--;
+				break;
+
+			default:
+				x++;
+				break;
+		}
+
+		return x > 0 && x < CONFIG.getWidth() && y > 0 && y < CONFIG.getHeight()
+		    && !state.isSnakeBody(Position.of(x, y));
+	}
+
+	/**
+	 * Places the fruits and dynamites of an observation on a game.
+	 */
+	private static void copyObjects(float[] observed, GameState state)
+	{
+		int columns = CONFIG.getWidth() + 1;
+
+		for(int cell = 0; cell < CHANNEL_SIZE; cell++)
+		{
+			Position p = Position.of(cell % columns, cell / columns);
+
+			if(observed[VectorEnvironment.FRUIT_CHANNEL * CHANNEL_SIZE + cell] != 0)
+				state.addFruit(p);
+
+			if(observed[VectorEnvironment.DYNAMITE_CHANNEL * CHANNEL_SIZE + cell] != 0)
+				state.addDynamite(p);
+		}
+	}
+
+	/**
+	 * Checks that an observation shows the same board as a game, cell by cell.
+	 */
+	private static void assertSameBoard(GameState state, float[] observed, boolean same_fruits)
+	{
+		int columns = CONFIG.getWidth() + 1;
+
+		for(int cell = 0; cell < CHANNEL_SIZE; cell++)
+		{
+			Position p = Position.of(cell % columns, cell / columns);
+
+			boolean wall = p.getX() == 0 || p.getX() == CONFIG.getWidth() || p.getY() == 0
+			            || p.getY() == CONFIG.getHeight();
+
+			assertEquals(p.toString(), wall || state.isSnakeBody(p), channel(observed, VectorEnvironment.BLOCKED_CHANNEL, cell));
+			assertEquals(p.toString(), p.equals(state.getSnakeHead()), channel(observed, VectorEnvironment.HEAD_CHANNEL, cell));
+			assertEquals(p.toString(), state.isDynamite(p), channel(observed, VectorEnvironment.DYNAMITE_CHANNEL, cell));
+
+			if(same_fruits)
+				assertEquals(p.toString(), state.isFruit(p), channel(observed, VectorEnvironment.FRUIT_CHANNEL, cell));
+		}
+	}
+
+	/**
+	 * @return true if the cell is in the given channel of an observation.
+	 */
+	private static boolean channel(float[] observed, int channel, int cell)
+	{
+		return observed[channel * CHANNEL_SIZE + cell] != 0;
+	}
+}